@@ -1,7 +1,21 @@
 package compiler;
 
+import compiler.common.checkpoint.Checkpoint;
+import compiler.common.logger.Logger;
+import compiler.common.names.Names;
 import compiler.common.report.CompilerError;
+import compiler.common.report.Position;
 import compiler.common.report.Report;
+import compiler.data.ast.code.FusedVisitor;
+import compiler.data.ast.code.NodeCounter;
+import compiler.data.codegen.Label;
+import compiler.data.frg.CodeFragment;
+import compiler.data.frg.Fragment;
+import compiler.data.codegen.PhysicalRegister;
+import compiler.data.imc.IMC;
+import compiler.data.imc.LABEL;
+import compiler.data.imc.MOVE;
+import compiler.data.imc.TEMP;
 import compiler.phase.abstr.Abstr;
 import compiler.phase.codegen.CodeGen;
 import compiler.phase.fin.Finalisation;
@@ -19,6 +33,14 @@ import compiler.phase.regalloc.RegisterAlloc;
 import compiler.phase.seman.*;
 import compiler.phase.synan.SynAn;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
 /**
  * The compiler's entry point.
  *
@@ -32,111 +54,231 @@ public class Main {
 	 * The compiler's entry point: it parses the command line and triggers the
 	 * compilation.
 	 *
+	 * <p>
+	 * If started with option <code>--server</code>, the compiler does not
+	 * compile a single file but keeps running and reads compilation jobs, one
+	 * per line, from the standard input. With option
+	 * <code>--server=port</code> the jobs are read from connections to the
+	 * specified local port instead. Each job consists of the usual command line
+	 * arguments.
+	 * </p>
+	 *
 	 * @param args Command line arguments.
 	 */
 	public static void main(String args[]) {
+		for (String arg : args) {
+			if (arg.equals("--server")) {
+				serveStdin();
+				System.exit(0);
+			}
+			if (arg.startsWith("--server=")) {
+				serveSocket(arg.replaceFirst("--server=", ""));
+				System.exit(0);
+			}
+		}
+
+		System.exit(compile(args));
+	}
+
+	/**
+	 * Performs a single compilation.
+	 *
+	 * @param args Command line arguments.
+	 * @return The exit status of the compilation.
+	 */
+	public static int compile(String args[]) {
 		System.out.println();
 		System.out.println("This is PREV compiler (2016):");
 
+		Task task = null;
 		try {
 			// Parse the command line.
-			Task task = new Task(args);
+			task = new Task(args);
 
 			// Carry out the compilation up to the specified phase.
 			while (true) {
 
 				// ***** Lexical analysis. *****
 				if (task.phase.equals("lexan")) {
+					task.stats.begin("lexan");
 					LexAn lexAn = new LexAn(task);
 					while (lexAn.lexAn().token != Symbol.Token.EOF) {
 					}
 					lexAn.close();
+					task.stats.end();
 					break;
 				}
 
-				// ***** Syntax analysis. *****
-				SynAn synAn = new SynAn(task);
-				task.prgAST = synAn.synAn();
-				synAn.close();
-				if (task.phase.equals("synan")) {
-					break;
-				}
+				if (task.resumeFrom.equals("lincode")) {
+					// The fragments are restored from the checkpoint saved
+					// after the intermediate code generation.
+					task.stats.begin("checkpoint");
+					Checkpoint.load(task);
+					task.stats.end();
+					if (!task.streaming) {
+						task.stats.begin("BasicBlocks");
+						BasicBlocks bblocs = new BasicBlocks(task);
+						bblocs.transform();
+						task.stats.end();
+					}
+				} else {
+					// ***** Syntax analysis. *****
+					task.stats.begin("synan");
+					SynAn synAn = new SynAn(task);
+					task.prgAST = synAn.synAn();
+					synAn.close();
+					task.stats.end();
+					if (task.stats.isEnabled()) {
+						NodeCounter nodeCounter = new NodeCounter();
+						nodeCounter.visit(task.prgAST);
+						task.stats.count("ast_nodes", nodeCounter.numNodes());
+					}
+					if (task.phase.equals("synan")) {
+						break;
+					}
 
-				// ***** Abstract syntax tree. *****
-				Abstr abstr = new Abstr(task);
-				abstr.close();
-				if (task.phase.equals("abstr")) {
-					break;
-				}
+					// ***** Abstract syntax tree. *****
+					task.stats.begin("abstr");
+					Abstr abstr = new Abstr(task);
+					abstr.close();
+					task.stats.end();
+					if (task.phase.equals("abstr")) {
+						break;
+					}
 
-				// ***** Semantic analysis. *****
-				SemAn seman = new SemAn(task);
-				(new EvalValue(task.prgAttrs)).visit(task.prgAST);
-				(new EvalDecl(task.prgAttrs)).visit(task.prgAST);
-				(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
-				(new EvalMem(task.prgAttrs)).visit(task.prgAST);
-				seman.close();
-				if (task.phase.equals("seman")) {
-					break;
-				}
+					// ***** Semantic analysis. *****
+					task.stats.begin("seman");
+					SemAn seman = new SemAn(task);
+					// Constant values and declarations in a single traversal
+					// (type checking needs the declarations of all names first).
+					task.stats.begin("EvalValue+EvalDecl");
+					(new FusedVisitor(new EvalValue(task.prgAttrs), new EvalDecl(task.prgAttrs))).visit(task.prgAST);
+					task.stats.end();
+					if (task.jobs > 1) {
+						// Function definitions are checked concurrently once
+						// all declarations have been type checked.
+						task.stats.begin("EvalTyp+EvalMem");
+						(new EvalFunDefs(task)).visit(task.prgAST);
+						task.stats.end();
+					} else {
+						task.stats.begin("EvalTyp");
+						(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
+						task.stats.end();
+						task.stats.begin("EvalMem");
+						(new EvalMem(task.prgAttrs)).visit(task.prgAST);
+						task.stats.end();
+					}
+					seman.close();
+					task.stats.end();
+					if (task.phase.equals("seman")) {
+						break;
+					}
 
-				if (Report.getNumWarnings() > 0) {
-					break;
-				}
+					if (Report.getNumWarnings() > 0) {
+						break;
+					}
+
+					// Frames and accesses.
+					task.stats.begin("frames");
+					Frames frames = new Frames(task);
+					task.stats.begin("EvalFrames+EvalFrameOut");
+					(new FusedVisitor(new EvalFrames(task.prgAttrs), new EvalFrameOut(task.prgAttrs))).visit(task.prgAST);
+					task.stats.end();
+					frames.close();
+					task.stats.end();
+					if (task.phase.equals("frames")) {
+						break;
+					}
 
-				// Frames and accesses.
-				Frames frames = new Frames(task);
-				(new EvalFrames(task.prgAttrs)).visit(task.prgAST);
-				(new EvalFrameOut(task.prgAttrs)).visit(task.prgAST);
-				frames.close();
-				if (task.phase.equals("frames")) {
-					break;
-				}
 
-				
-				// Intermediate code generation.
-				Imcode imcode = new Imcode(task);
-				(new EvalImcode(task.prgAttrs, task.fragments)).visit(task.prgAST);
+					// Intermediate code generation.
+					task.stats.begin("imcode");
+					Imcode imcode = new Imcode(task);
+					task.stats.begin("EvalImcode");
+					(new EvalImcode(task.prgAttrs, task.fragments)).visit(task.prgAST);
+					task.stats.end();
+					if (task.saveAfter.equals("imcode")) {
+						task.stats.begin("checkpoint");
+						Checkpoint.save(task);
+						task.stats.end();
+					}
 
-				//Do basic blocks -> linearisation should have been done here
-				BasicBlocks bblocs = new BasicBlocks(task);
-				bblocs.transform();
+					//Do basic blocks -> linearisation should have been done here
+					//(when streaming, each fragment is transformed in the back end)
+					if (!task.streaming) {
+						task.stats.begin("BasicBlocks");
+						BasicBlocks bblocs = new BasicBlocks(task);
+						bblocs.transform();
+						task.stats.end();
+					}
 
 
-				imcode.close();
+					imcode.close();
+					task.stats.end();
+				}
+				if (task.stats.isEnabled() && !task.streaming) {
+					for (Fragment fragment : task.fragments.values()) {
+						if (fragment instanceof CodeFragment) {
+							task.stats.count(fragment.label, "imc_nodes", IMC.numNodes(((CodeFragment) fragment).linCode));
+						}
+					}
+				}
 				if (task.phase.equals("imcode")) {
 					break;
 				}
+				task.releaseAST();
 
+				if (task.streaming) {
+					// Linearization, code generation, register allocation
+					// and finalisation, one code fragment at a time.
+					task.stats.begin("backend");
+					Finalisation fin = new Finalisation(task);
+					fin.streamCode();
+					fin.close();
+					task.stats.end();
+					break;
+				}
 
 				// Linearization of the intermediate code.
+				task.stats.begin("lincode");
 				LinCode linCode = new LinCode(task);
 				linCode.close();
+				task.stats.end();
 				if (task.phase.equals("lincode")) {
 					break;
 				}
 
+				task.stats.begin("codegen");
 				CodeGen codeGen = new CodeGen(task);
 				codeGen.generateCode();
 				codeGen.close();
+				task.stats.end();
+				task.releaseIMC();
 
 
 				if (task.phase.equals("codegen")) {
+					task.stats.begin("liveness");
 					Liveness liveness = new Liveness(task);
 					liveness.analyse();
 					liveness.close();
+					task.stats.end();
 					break;
 				}
 
 
+				task.stats.begin("regalloc");
 				RegisterAlloc regalloc = new RegisterAlloc(task);
 				regalloc.allocate();
 				regalloc.mapRegisters();
 				regalloc.close();
+				task.stats.end();
+				task.releaseIntfGraphs();
 
+				task.stats.begin("fin");
 				Finalisation fin = new Finalisation(task);
 				fin.finishCode();
 				fin.close();
+				task.stats.end();
 
 				if (task.phase.equals("regalloc")) {
 					break;
@@ -147,16 +289,115 @@ public class Main {
 		} catch (CompilerError errorReport) {
 			System.err.println(errorReport.getMessage());
 			System.out.println();
-			System.exit(1);
+			return 1;
+		} finally {
+			if (task != null) {
+				task.stats.write();
+			}
+			Logger.discardUnfinished();
 		}
 
 		if (Report.getNumWarnings() > 0) {
 			Report.warning("Have you seen all warning messages?");
-			System.exit(0);
+			return 0;
 		} else {
 			Report.info("Done.");
-			System.exit(0);
+			return 0;
+		}
+	}
+
+	// ***** Compile server. *****
+
+	/**
+	 * Reads compilation jobs from the standard input until its end.
+	 */
+	private static void serveStdin() {
+		BufferedReader jobs = new BufferedReader(new InputStreamReader(System.in));
+		try {
+			serve(jobs);
+		} catch (IOException ex) {
+			Report.warning("Cannot read compilation jobs from the standard input.");
+		}
+	}
+
+	/**
+	 * Accepts connections on a local port and reads compilation jobs from each
+	 * of them. The output of a job is sent back through the connection the job
+	 * has been read from.
+	 *
+	 * @param port The port number.
+	 */
+	private static void serveSocket(String port) {
+		ServerSocket server;
+		try {
+			server = new ServerSocket(Integer.parseInt(port), 0, InetAddress.getLoopbackAddress());
+		} catch (NumberFormatException | IOException ex) {
+			Report.warning("Cannot listen on port '" + port + "'.");
+			return;
 		}
+
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		Report.info("Compile server listening on port " + server.getLocalPort() + ".");
+		while (true) {
+			try (Socket client = server.accept()) {
+				PrintStream clientOut = new PrintStream(client.getOutputStream(), true);
+				System.setOut(clientOut);
+				System.setErr(clientOut);
+				serve(new BufferedReader(new InputStreamReader(client.getInputStream())));
+			} catch (IOException ex) {
+				stderr.println(":-o Connection to a client of the compile server lost.");
+			} finally {
+				System.setOut(stdout);
+				System.setErr(stderr);
+			}
+		}
+	}
+
+	/**
+	 * Performs all compilation jobs read from the specified reader. Every job
+	 * is terminated by a line stating its exit status.
+	 *
+	 * @param jobs The reader the jobs are read from.
+	 * @throws IOException If the jobs cannot be read.
+	 */
+	private static void serve(BufferedReader jobs) throws IOException {
+		String job;
+		while ((job = jobs.readLine()) != null) {
+			job = job.trim();
+			if (job.equals("")) {
+				continue;
+			}
+
+			resetGlobalState();
+			int status;
+			try {
+				status = compile(job.split("\\s+"));
+			} catch (RuntimeException | StackOverflowError ex) {
+				// A broken job must not take the server down.
+				ex.printStackTrace();
+				status = 1;
+			}
+			System.out.println("%% exit " + status);
+			System.out.flush();
+			System.err.flush();
+		}
+	}
+
+	/**
+	 * Resets all process-global state of the compiler so that every job of the
+	 * compile server starts just like a freshly started compiler.
+	 */
+	public static void resetGlobalState() {
+		Report.resetNumWarnings();
+		Position.resetFileNames();
+		Names.reset();
+		TEMP.resetTempNames();
+		LABEL.resetLabelNames();
+		MOVE.resetIds();
+		Label.reset();
+		PhysicalRegister.reset();
+		EvalFrameOut.globalProgramOutSize = 0;
 	}
 
 }
@@ -1,7 +1,10 @@
 package compiler;
 
+import compiler.common.cache.FragmentCache;
+import compiler.common.logger.LogFilter;
 import compiler.common.report.CompilerError;
 import compiler.common.report.Report;
+import compiler.common.stats.Statistics;
 import compiler.data.ast.Program;
 import compiler.data.ast.attr.Attributes;
 import compiler.data.codegen.InstructionSet;
@@ -10,6 +13,7 @@ import compiler.data.frg.Fragment;
 import compiler.data.liveness.InterferenceGraph;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 /**
  * The parameters and internal data of the compilation process.
@@ -33,9 +37,59 @@ public class Task {
 	/** A list of phases logging should be performed for. */
 	public final String loggedPhases;
 
+	/** The filter restricting the logs to selected functions and lines. */
+	public final LogFilter logFilter;
+
 	/** The last phase of the compiler to be performed. */
 	public final String phase;
 
+	/**
+	 * The phase after which a checkpoint of the fragments is saved (either
+	 * <code>imcode</code> or an empty string if no checkpoint is saved).
+	 */
+	public final String saveAfter;
+
+	/**
+	 * The phase the compilation resumes from using a saved checkpoint (either
+	 * <code>lincode</code> or an empty string if the compilation starts from
+	 * the source file).
+	 */
+	public final String resumeFrom;
+
+	/**
+	 * The number of workers the back end processes code fragments with, the
+	 * lexical analyzer lexes chunks of large source files with and the
+	 * semantic analyzer checks function definitions with (1 if everything is
+	 * processed sequentially).
+	 */
+	public final int jobs;
+
+	/**
+	 * Whether the lexical analyzer runs on its own thread and passes tokens to
+	 * the parser while the parser is running.
+	 */
+	public final boolean pipelined;
+
+	/**
+	 * Whether code fragments are taken through the back end one at a time,
+	 * each of them being written out before the next one is started (used
+	 * only if requested, if the final code is produced and if none of the
+	 * phases from the intermediate code on is logged, as the logs need the
+	 * results of a phase for all fragments at once).
+	 */
+	public final boolean streaming;
+
+	/** Compile time statistics (collected only if requested). */
+	public final Statistics stats;
+
+	/**
+	 * The cache of the final code of code fragments (used only if requested and
+	 * if the code generator and the register allocator are neither skipped nor
+	 * logged, as their results are not produced for fragments found in the
+	 * cache).
+	 */
+	public final FragmentCache cache;
+
 	/**
 	 * Construct a new compilation task based on the command-line agruments.
 	 * 
@@ -48,7 +102,15 @@ public class Task {
 		String xmlFName = "";
 		String xslDName = "";
 		String loggedPhases = "";
+		String logFilter = "";
 		String phase = "";
+		int jobs = 0;
+		String stats = "";
+		String cache = "";
+		String frontend = "";
+		String backend = "";
+		String saveAfter = "";
+		String resumeFrom = "";
 
 		for (String arg : args) {
 			if (arg.startsWith("-")) {
@@ -80,6 +142,20 @@ public class Task {
 					continue;
 				}
 
+				if (arg.startsWith("--logfilter=")) {
+					if (logFilter.equals("")) {
+						logFilter = arg.replaceFirst("--logfilter=", "");
+						String item = "([A-Za-z_][A-Za-z_0-9]*|[0-9]+(-[0-9]+)?)";
+						if (!logFilter.matches(item + "(," + item + ")*")) {
+							Report.warning("Illegal log filter specified by '" + arg + "' ignored.");
+							logFilter = "";
+						}
+					} else {
+						Report.warning("Log filter already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
 				if (arg.startsWith("--xsldir=")) {
 					if (xslDName.equals("")) {
 						xslDName = arg.replaceFirst("--xsldir=", "");
@@ -93,6 +169,100 @@ public class Task {
 					continue;
 				}
 
+				if (arg.startsWith("--jobs=")) {
+					if (jobs == 0) {
+						try {
+							jobs = Integer.parseInt(arg.replaceFirst("--jobs=", ""));
+						} catch (NumberFormatException ex) {
+							jobs = -1;
+						}
+						if (jobs < 1) {
+							Report.warning("Illegal number of jobs specified by '" + arg + "' ignored.");
+							jobs = 0;
+						}
+					} else {
+						Report.warning("Number of jobs already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--stats=")) {
+					if (stats.equals("")) {
+						stats = arg.replaceFirst("--stats=", "");
+						if (!stats.equals("json")) {
+							Report.warning("Illegal statistics format specified by '" + arg + "' ignored.");
+							stats = "";
+						}
+					} else {
+						Report.warning("Statistics format already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--cache=")) {
+					if (cache.equals("")) {
+						cache = arg.replaceFirst("--cache=", "");
+						if (cache.equals("")) {
+							Report.warning("No cache directory specified by '" + arg + "'; option ignored.");
+						}
+					} else {
+						Report.warning("Cache directory already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--frontend=")) {
+					if (frontend.equals("")) {
+						frontend = arg.replaceFirst("--frontend=", "");
+						if (!frontend.matches("sequential|pipelined")) {
+							Report.warning("Illegal front end specified by '" + arg + "' ignored.");
+							frontend = "";
+						}
+					} else {
+						Report.warning("Front end already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--backend=")) {
+					if (backend.equals("")) {
+						backend = arg.replaceFirst("--backend=", "");
+						if (!backend.matches("batch|streaming")) {
+							Report.warning("Illegal back end specified by '" + arg + "' ignored.");
+							backend = "";
+						}
+					} else {
+						Report.warning("Back end already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--save-after=")) {
+					if (saveAfter.equals("")) {
+						saveAfter = arg.replaceFirst("--save-after=", "");
+						if (!saveAfter.equals("imcode")) {
+							Report.warning("Illegal checkpoint phase specified by '" + arg + "' ignored.");
+							saveAfter = "";
+						}
+					} else {
+						Report.warning("Checkpoint phase already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
+				if (arg.startsWith("--resume-from=")) {
+					if (resumeFrom.equals("")) {
+						resumeFrom = arg.replaceFirst("--resume-from=", "");
+						if (!resumeFrom.equals("lincode")) {
+							Report.warning("Illegal resumption phase specified by '" + arg + "' ignored.");
+							resumeFrom = "";
+						}
+					} else {
+						Report.warning("Resumption phase already specified, option '" + arg + "' ignored.");
+					}
+					continue;
+				}
+
 				Report.warning("Unknown command line option '" + arg + "'.");
 			} else {
 				// This is a file name.
@@ -105,11 +275,48 @@ public class Task {
 			}
 		}
 
+		// Check the checkpoint options against the phases performed.
+		String frontEndPhases = "(lexan|synan|abstr|seman|frames|imcode)";
+		if (!resumeFrom.equals("")) {
+			if (phase.matches(frontEndPhases)) {
+				Report.warning("Phase '" + phase + "' precedes the checkpoint resumed from; option '--resume-from=" + resumeFrom + "' ignored.");
+				resumeFrom = "";
+			} else {
+				if (!saveAfter.equals("")) {
+					Report.warning("No checkpoint is saved when resuming from one; option '--save-after=" + saveAfter + "' ignored.");
+					saveAfter = "";
+				}
+				if (!logFilter.equals("")) {
+					Report.warning("Log filter needs the abstract syntax tree, which is not restored from a checkpoint; option '--logfilter=" + logFilter + "' ignored.");
+					logFilter = "";
+				}
+				if (loggedPhases.matches("(.*,)?" + frontEndPhases + "(,.*)?")) {
+					Report.warning("Phases up to imcode are not performed when resuming from a checkpoint, so they are not logged.");
+				}
+			}
+		}
+		if (!saveAfter.equals("") && phase.matches("(lexan|synan|abstr|seman|frames)")) {
+			Report.warning("Phase '" + phase + "' precedes the checkpoint saved after " + saveAfter + "; option '--save-after=" + saveAfter + "' ignored.");
+			saveAfter = "";
+		}
+
 		this.srcFName = srcFName;
 		this.xmlFName = xmlFName;
 		this.xslDName = xslDName;
 		this.loggedPhases = loggedPhases;
+		this.logFilter = new LogFilter(logFilter.equals("") ? null : logFilter);
 		this.phase = phase;
+		this.saveAfter = saveAfter;
+		this.resumeFrom = resumeFrom;
+		this.jobs = (jobs == 0) ? 1 : jobs;
+		this.pipelined = frontend.equals("pipelined");
+		this.stats = new Statistics(stats.equals("") ? null : xmlFName + ".stats.json", srcFName, this.jobs);
+		boolean cacheable = (phase.equals("") || phase.equals("fin"))
+				&& !loggedPhases.matches("(.*,)?(codegen|liveness|regalloc)(,.*)?");
+		this.cache = new FragmentCache(cache.equals("") || !cacheable ? null : cache);
+		this.streaming = backend.equals("streaming")
+				&& (phase.equals("") || phase.equals("regalloc") || phase.equals("fin"))
+				&& !loggedPhases.matches("(.*,)?(imcode|lincode|codegen|liveness|regalloc)(,.*)?");
 
 		// Check the source file name.
 		if (this.srcFName.equals(""))
@@ -131,7 +338,47 @@ public class Task {
 	 */
     public HashMap<String, Fragment> fragments = new HashMap<>();
 
-	public HashMap<CodeFragment, InstructionSet> fragInstrs = new HashMap<>();
-	public HashMap<CodeFragment, InterferenceGraph> intfGraph = new HashMap<>();
-    
+	// Code fragments are hashed by identity, so the insertion order is kept to
+	// make the generated code independent of the state of the JVM
+	public HashMap<CodeFragment, InstructionSet> fragInstrs = new LinkedHashMap<>();
+	public HashMap<CodeFragment, InterferenceGraph> intfGraph = new LinkedHashMap<>();
+
+	// Releasing the data no later phase needs, so that the heap holds the data
+	// of the phases still to come rather than of all phases so far.
+
+	/**
+	 * Releases the abstract syntax tree and its attributes (including the
+	 * intermediate code of its nodes) once the code fragments have been
+	 * produced. The log filter keeps the code fragments it has selected.
+	 */
+	public void releaseAST() {
+		logFilter.select(prgAST, prgAttrs);
+		logFilter.release();
+		prgAST = null;
+		prgAttrs = null;
+	}
+
+	/**
+	 * Releases the intermediate code of code fragments once their
+	 * instructions have been generated.
+	 */
+	public void releaseIMC() {
+		for (Fragment fragment : fragments.values()) {
+			if (fragment instanceof CodeFragment) {
+				((CodeFragment) fragment).releaseCode();
+			}
+		}
+	}
+
+	/**
+	 * Releases the interference graphs and the sets of virtual registers of
+	 * code fragments once the registers have been mapped.
+	 */
+	public void releaseIntfGraphs() {
+		intfGraph.clear();
+		for (InstructionSet instrs : fragInstrs.values()) {
+			instrs.registers = null;
+		}
+	}
+
 }
@@ -0,0 +1,219 @@
+package compiler.bench;
+
+import compiler.Main;
+import compiler.Task;
+import compiler.common.report.CompilerError;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.regex.Pattern;
+
+/**
+ * The benchmark harness: measures the throughput and the allocation rate of
+ * individual compiler phases on the sample programs and on generated
+ * programs of different sizes.
+ *
+ * <p>
+ * Usage: <code>java compiler.bench.Bench [--benchmarks=regex] [--samples=dir]
+ * [--sizes=n,...] [--warmup=n] [--iterations=n]</code>
+ * </p>
+ */
+public class Bench {
+
+	/** The names of the benchmarks to run. */
+	private static Pattern benchmarks = Pattern.compile(".*");
+
+	/** The directory containing the sample programs. */
+	private static String samplesDir = "prev";
+
+	/** The sizes of generated programs (the numbers of functions). */
+	private static int[] sizes = { 10, 100 };
+
+	/** The number of operations performed before measuring. */
+	private static int warmup = 5;
+
+	/** The number of measured operations. */
+	private static int iterations = 10;
+
+	/** The bean measuring allocated memory (or <code>null</code> if unsupported). */
+	private static com.sun.management.ThreadMXBean threadBean;
+
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			if (arg.startsWith("--benchmarks=")) {
+				benchmarks = Pattern.compile(arg.replaceFirst("--benchmarks=", ""), Pattern.CASE_INSENSITIVE);
+			} else if (arg.startsWith("--samples=")) {
+				samplesDir = arg.replaceFirst("--samples=", "");
+			} else if (arg.startsWith("--sizes=")) {
+				String[] values = arg.replaceFirst("--sizes=", "").split(",");
+				sizes = new int[values.length];
+				for (int s = 0; s < values.length; s++) {
+					sizes[s] = Integer.parseInt(values[s]);
+				}
+			} else if (arg.startsWith("--warmup=")) {
+				warmup = Integer.parseInt(arg.replaceFirst("--warmup=", ""));
+			} else if (arg.startsWith("--iterations=")) {
+				iterations = Integer.parseInt(arg.replaceFirst("--iterations=", ""));
+			} else {
+				System.err.println("Unknown option '" + arg + "'.");
+				System.exit(1);
+			}
+		}
+
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (!threadBean.isThreadAllocatedMemorySupported()) {
+				threadBean = null;
+			}
+		}
+
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		PrintStream nowhere = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		});
+
+		// Collect the inputs.
+		LinkedList<String> inputs = new LinkedList<>();
+		LinkedList<String> samples = new LinkedList<>();
+		findSamples(new File(samplesDir), samples);
+		Collections.sort(samples);
+		inputs.addAll(samples);
+		Path genDir = Files.createTempDirectory("prev-bench");
+		for (int size : sizes) {
+			Path genFile = genDir.resolve("gen" + size + ".prev");
+			Files.write(genFile, new ProgramGenerator(size).generate().getBytes(StandardCharsets.US_ASCII));
+			inputs.add(genFile.toString());
+		}
+
+		stdout.println(String.format("%-20s %-40s %12s %12s %12s %-10s %14s", "Benchmark", "Input", "ops/s", "ms/op",
+				"items/op", "items", "bytes/op"));
+		for (String input : inputs) {
+			// Skip the programs that cannot be compiled.
+			System.setOut(nowhere);
+			System.setErr(nowhere);
+			boolean compiles = true;
+			try {
+				Main.resetGlobalState();
+				Task task = new Task(new String[] { "--phase=fin", input });
+				Benchmark.REGALLOC.prepare(task);
+				Benchmark.REGALLOC.run(task);
+			} catch (CompilerError | RuntimeException ex) {
+				compiles = false;
+			} finally {
+				System.setOut(stdout);
+				System.setErr(stderr);
+			}
+			if (!compiles) {
+				continue;
+			}
+
+			String inputName = input.startsWith(genDir.toString()) ? new File(input).getName() : input;
+			for (Benchmark benchmark : Benchmark.values()) {
+				if (!benchmarks.matcher(benchmark.name()).matches()) {
+					continue;
+				}
+				System.setOut(nowhere);
+				System.setErr(nowhere);
+				Result result;
+				try {
+					result = measure(benchmark, input);
+				} finally {
+					System.setOut(stdout);
+					System.setErr(stderr);
+				}
+				stdout.println(String.format("%-20s %-40s %12.1f %12.3f %12.1f %-10s %14s",
+						benchmark.name().toLowerCase(), inputName, result.opsPerSecond(), result.msPerOp(),
+						result.itemsPerOp(), benchmark.items, threadBean == null ? "n/a" : String.format("%.0f", result.bytesPerOp())));
+			}
+		}
+
+		for (int size : sizes) {
+			Files.deleteIfExists(genDir.resolve("gen" + size + ".prev"));
+		}
+		Files.deleteIfExists(genDir);
+	}
+
+	private static void findSamples(File dir, LinkedList<String> samples) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				findSamples(file, samples);
+			} else if (file.getName().endsWith(".prev")) {
+				samples.add(file.getPath());
+			}
+		}
+	}
+
+	private static Result measure(Benchmark benchmark, String input) {
+		Result result = new Result();
+		for (int i = 0; i < warmup + iterations; i++) {
+			Main.resetGlobalState();
+			Task task = new Task(new String[] { "--phase=fin", input });
+			benchmark.prepare(task);
+
+			long allocatedBytes = allocatedBytes();
+			long time = System.nanoTime();
+			long items = benchmark.run(task);
+			time = System.nanoTime() - time;
+			allocatedBytes = allocatedBytes() - allocatedBytes;
+
+			if (i >= warmup) {
+				result.ops++;
+				result.time += time;
+				result.items += items;
+				result.allocatedBytes += allocatedBytes;
+			}
+		}
+		return result;
+	}
+
+	private static long allocatedBytes() {
+		return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * The measurements of a benchmark on a single input.
+	 */
+	private static class Result {
+
+		long ops;
+
+		long time;
+
+		long items;
+
+		long allocatedBytes;
+
+		double opsPerSecond() {
+			return ops * 1e9 / time;
+		}
+
+		double msPerOp() {
+			return time / 1e6 / ops;
+		}
+
+		double itemsPerOp() {
+			return (double) items / ops;
+		}
+
+		double bytesPerOp() {
+			return (double) allocatedBytes / ops;
+		}
+
+	}
+
+}
@@ -0,0 +1,241 @@
+package compiler.bench;
+
+import compiler.Task;
+import compiler.data.ast.code.FusedVisitor;
+import compiler.data.codegen.InstructionSet;
+import compiler.data.frg.CodeFragment;
+import compiler.data.frg.Fragment;
+import compiler.data.liveness.InterferenceGraph;
+import compiler.phase.codegen.CodeGen;
+import compiler.phase.frames.EvalFrameOut;
+import compiler.phase.frames.EvalFrames;
+import compiler.phase.imcode.EvalImcode;
+import compiler.phase.lexan.LexAn;
+import compiler.phase.lexan.Symbol;
+import compiler.phase.lincode.BasicBlocks;
+import compiler.phase.regalloc.RegisterAlloc;
+import compiler.phase.seman.EvalDecl;
+import compiler.phase.seman.EvalMem;
+import compiler.phase.seman.EvalTyp;
+import compiler.phase.seman.EvalValue;
+import compiler.phase.synan.SynAn;
+
+import java.util.Map;
+
+/**
+ * The benchmarks, one for each compiler phase (or step of a phase).
+ *
+ * <p>
+ * Every benchmark consists of two parts: {@link #prepare(Task) prepare}
+ * performs all phases preceding the measured one and is not measured, while
+ * {@link #run(Task) run} performs the measured phase itself. Both are
+ * performed on a fresh compilation task for every operation as all phases
+ * modify the task.
+ * </p>
+ */
+public enum Benchmark {
+
+	LEXAN("tokens") {
+		@Override
+		public void prepare(Task task) {
+		}
+
+		@Override
+		public long run(Task task) {
+			long tokens = 1;
+			LexAn lexAn = new LexAn(task);
+			while (lexAn.lexAn().token != Symbol.Token.EOF) {
+				tokens++;
+			}
+			lexAn.close();
+			return tokens;
+		}
+	},
+
+	SYNAN("programs") {
+		@Override
+		public void prepare(Task task) {
+		}
+
+		@Override
+		public long run(Task task) {
+			synAn(task);
+			return 1;
+		}
+	},
+
+	EVAL_VALUE("programs") {
+		@Override
+		public void prepare(Task task) {
+			synAn(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new FusedVisitor(new EvalValue(task.prgAttrs))).visit(task.prgAST);
+			return 1;
+		}
+	},
+
+	EVAL_DECL("programs") {
+		@Override
+		public void prepare(Task task) {
+			EVAL_VALUE.prepare(task);
+			EVAL_VALUE.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new FusedVisitor(new EvalDecl(task.prgAttrs))).visit(task.prgAST);
+			return 1;
+		}
+	},
+
+	EVAL_TYP("programs") {
+		@Override
+		public void prepare(Task task) {
+			EVAL_DECL.prepare(task);
+			EVAL_DECL.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new EvalTyp(task.prgAttrs)).visit(task.prgAST);
+			return 1;
+		}
+	},
+
+	EVAL_MEM("programs") {
+		@Override
+		public void prepare(Task task) {
+			EVAL_TYP.prepare(task);
+			EVAL_TYP.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new EvalMem(task.prgAttrs)).visit(task.prgAST);
+			return 1;
+		}
+	},
+
+	EVAL_IMCODE("fragments") {
+		@Override
+		public void prepare(Task task) {
+			EVAL_MEM.prepare(task);
+			EVAL_MEM.run(task);
+			(new FusedVisitor(new EvalFrames(task.prgAttrs), new EvalFrameOut(task.prgAttrs))).visit(task.prgAST);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new EvalImcode(task.prgAttrs, task.fragments)).visit(task.prgAST);
+			return task.fragments.size();
+		}
+	},
+
+	BASIC_BLOCKS("fragments") {
+		@Override
+		public void prepare(Task task) {
+			EVAL_IMCODE.prepare(task);
+			EVAL_IMCODE.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new BasicBlocks(task)).transform();
+			return numCodeFragments(task);
+		}
+	},
+
+	CODEGEN("fragments") {
+		@Override
+		public void prepare(Task task) {
+			BASIC_BLOCKS.prepare(task);
+			BASIC_BLOCKS.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			long fragments = 0;
+			for (Fragment fragment : task.fragments.values()) {
+				if (fragment instanceof CodeFragment) {
+					CodeFragment codeFragment = (CodeFragment) fragment;
+					task.fragInstrs.put(codeFragment, new CodeGen(task).generateFragmentCode(codeFragment));
+					fragments++;
+				}
+			}
+			return fragments;
+		}
+	},
+
+	INTERFERENCE_GRAPH("fragments") {
+		@Override
+		public void prepare(Task task) {
+			CODEGEN.prepare(task);
+			CODEGEN.run(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			for (Map.Entry<CodeFragment, InstructionSet> fragInstrs : task.fragInstrs.entrySet()) {
+				new InterferenceGraph(fragInstrs.getValue(), fragInstrs.getKey());
+			}
+			return task.fragInstrs.size();
+		}
+	},
+
+	REGALLOC("fragments") {
+		@Override
+		public void prepare(Task task) {
+			INTERFERENCE_GRAPH.prepare(task);
+		}
+
+		@Override
+		public long run(Task task) {
+			(new RegisterAlloc(task)).allocate();
+			return task.fragInstrs.size();
+		}
+	};
+
+	/** What a single operation of the benchmark processes. */
+	public final String items;
+
+	Benchmark(String items) {
+		this.items = items;
+	}
+
+	/**
+	 * Performs all phases preceding the benchmarked one.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	public abstract void prepare(Task task);
+
+	/**
+	 * Performs the benchmarked phase.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 * @return The number of items processed.
+	 */
+	public abstract long run(Task task);
+
+	private static void synAn(Task task) {
+		SynAn synAn = new SynAn(task);
+		task.prgAST = synAn.synAn();
+		synAn.close();
+	}
+
+	private static long numCodeFragments(Task task) {
+		long fragments = 0;
+		for (Fragment fragment : task.fragments.values()) {
+			if (fragment instanceof CodeFragment) {
+				fragments++;
+			}
+		}
+		return fragments;
+	}
+
+}
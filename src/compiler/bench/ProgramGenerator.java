@@ -0,0 +1,241 @@
+package compiler.bench;
+
+/**
+ * Generates synthetic PREV programs of tunable size and shape.
+ *
+ * <p>
+ * The program consists of a number of top-level functions, each computing a
+ * value in (possibly nested) loops, and of a main expression calling all of
+ * them. The shape of the program is controlled by the following knobs:
+ * </p>
+ * <ul>
+ * <li>{@link #functions}: the number of top-level functions;</li>
+ * <li>{@link #whereDepth}: the depth of functions nested in the
+ * <code>where</code> part of every top-level function;</li>
+ * <li>{@link #exprDepth}: the depth of the arithmetic expression computed in
+ * the innermost loop of every top-level function;</li>
+ * <li>{@link #loopDepth}: the nesting depth of the loops of every top-level
+ * function;</li>
+ * <li>{@link #typeDepth}: the nesting depth of record types (each record
+ * contains an array of {@link #arraySize} elements and the previous record)
+ * accessed by every top-level function;</li>
+ * <li>{@link #strings}: the number of string literals printed by the main
+ * expression.</li>
+ * </ul>
+ */
+public class ProgramGenerator {
+
+	/** The number of top-level functions. */
+	public int functions = 10;
+
+	/** The depth of functions nested in every top-level function. */
+	public int whereDepth = 0;
+
+	/** The depth of the expression computed by every top-level function. */
+	public int exprDepth = 1;
+
+	/** The nesting depth of loops in every top-level function. */
+	public int loopDepth = 1;
+
+	/** The nesting depth of record types (0 if no records are used). */
+	public int typeDepth = 0;
+
+	/** The number of elements of arrays contained in records. */
+	public int arraySize = 4;
+
+	/** The number of string literals. */
+	public int strings = 0;
+
+	/** The number of leaves generated so far (used to vary expressions). */
+	private int leaves;
+
+	/**
+	 * Constructs a new program generator with default knobs.
+	 */
+	public ProgramGenerator() {
+	}
+
+	/**
+	 * Constructs a new program generator with default knobs but for the
+	 * number of top-level functions.
+	 *
+	 * @param functions
+	 *            The number of top-level functions.
+	 */
+	public ProgramGenerator(int functions) {
+		this.functions = functions;
+	}
+
+	/**
+	 * Sets a knob by its name.
+	 *
+	 * @param knob
+	 *            The name of the knob (the name of its field).
+	 * @param value
+	 *            The new value of the knob.
+	 * @return <code>false</code> if there is no knob of the specified name.
+	 */
+	public boolean setKnob(String knob, int value) {
+		switch (knob) {
+			case "functions":
+				functions = value;
+				return true;
+			case "whereDepth":
+				whereDepth = value;
+				return true;
+			case "exprDepth":
+				exprDepth = value;
+				return true;
+			case "loopDepth":
+				loopDepth = value;
+				return true;
+			case "typeDepth":
+				typeDepth = value;
+				return true;
+			case "arraySize":
+				arraySize = value;
+				return true;
+			case "strings":
+				strings = value;
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Generates the source of a program.
+	 *
+	 * @return The source of the program.
+	 */
+	public String generate() {
+		StringBuilder src = new StringBuilder();
+		leaves = 0;
+
+		src.append("(r=0,\n");
+		for (int f = 0; f < functions; f++) {
+			src.append(" r=r+f").append(f).append("(").append(f % 10).append("),\n");
+		}
+		for (int s = 0; s < strings; s++) {
+			src.append(" printStr(\"string number ").append(s).append("\"),\n");
+		}
+		src.append(" printInt(r),\n");
+		src.append(" 0)\n");
+		src.append("\n");
+		src.append("where\n");
+		src.append("\n");
+		src.append("  var r:integer\n");
+		if (typeDepth > 0) {
+			src.append("\n");
+			src.append("  typ rec0:integer\n");
+			for (int t = 1; t <= typeDepth; t++) {
+				src.append("  typ rec").append(t).append(":rec{v:integer,a:arr[").append(arraySize)
+						.append("]integer,next:rec").append(t - 1).append("}\n");
+			}
+			src.append("  var data:rec").append(typeDepth).append("\n");
+		}
+		for (int f = 0; f < functions; f++) {
+			function(src, f);
+		}
+		src.append("\n");
+		src.append("  fun printInt(i:integer):void\n");
+		src.append("  fun printStr(s:string):void\n");
+		src.append("\n");
+		src.append("end\n");
+
+		return src.toString();
+	}
+
+	private void function(StringBuilder src, int f) {
+		src.append("\n");
+		src.append("  fun f").append(f).append("(n:integer):integer=\n");
+		src.append("    (s=0,\n");
+		String indent = "     ";
+		for (int l = 0; l < loopDepth; l++) {
+			src.append(indent).append("for k").append(l).append("=0,n:\n");
+			indent += "  ";
+		}
+		src.append(indent).append("s=s+");
+		expression(src, exprDepth);
+		src.append(loopDepth == 0 ? ",\n" : "\n");
+		for (int l = loopDepth - 1; l >= 0; l--) {
+			indent = indent.substring(2);
+			src.append(indent).append("end").append(l == 0 ? ",\n" : "\n");
+		}
+		src.append("     if s>100 then s=s-1 else s=s+1 end,\n");
+		if (whereDepth > 0) {
+			src.append("     s=s+f").append(f).append("w1(n),\n");
+		}
+		if (typeDepth > 0) {
+			String path = "data";
+			for (int t = typeDepth; t > 0; t--) {
+				src.append("     ").append(path).append(".v=s,\n");
+				src.append("     ").append(path).append(".a[").append((f + t) % arraySize).append("]=s+")
+						.append(t).append(",\n");
+				src.append("     s=s+").append(path).append(".a[").append((f + t + 1) % arraySize).append("],\n");
+				path += ".next";
+			}
+			src.append("     ").append(path).append("=s,\n");
+		}
+		src.append("     s)\n");
+		src.append("    where\n");
+		src.append("      var s:integer\n");
+		for (int l = 0; l < loopDepth; l++) {
+			src.append("      var k").append(l).append(":integer\n");
+		}
+		nestedFunctions(src, f, 1, "      ");
+		src.append("    end\n");
+	}
+
+	private void nestedFunctions(StringBuilder src, int f, int depth, String indent) {
+		if (depth > whereDepth) {
+			return;
+		}
+		String name = "f" + f + "w" + depth;
+		src.append(indent).append("fun ").append(name).append("(m:integer):integer=\n");
+		if (depth == whereDepth) {
+			src.append(indent).append("  (t=m*").append(depth + 1).append("+n,\n");
+		} else {
+			src.append(indent).append("  (t=m+n,\n");
+			src.append(indent).append("   t=t+f").append(f).append("w").append(depth + 1).append("(m-1),\n");
+		}
+		src.append(indent).append("   t)\n");
+		src.append(indent).append("  where\n");
+		src.append(indent).append("    var t:integer\n");
+		nestedFunctions(src, f, depth + 1, indent + "    ");
+		src.append(indent).append("  end\n");
+	}
+
+	private void expression(StringBuilder src, int depth) {
+		if (depth == 0) {
+			switch (leaves++ % 3) {
+				case 0:
+					src.append(loopDepth > 0 ? "k" + (leaves % loopDepth) : "n");
+					break;
+				case 1:
+					src.append("n");
+					break;
+				default:
+					src.append(leaves % 97);
+					break;
+			}
+			return;
+		}
+		src.append("(");
+		expression(src, depth - 1);
+		switch (depth % 3) {
+			case 0:
+				src.append("+");
+				break;
+			case 1:
+				src.append("*");
+				break;
+			default:
+				src.append("-");
+				break;
+		}
+		expression(src, depth - 1);
+		src.append(")");
+	}
+
+}
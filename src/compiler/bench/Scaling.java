@@ -0,0 +1,351 @@
+package compiler.bench;
+
+import compiler.Main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The scalability driver: compiles generated programs of growing size with
+ * {@link compiler.Main} and plots the compile time and the peak heap usage
+ * against the size.
+ *
+ * <p>
+ * Usage: <code>java compiler.bench.Scaling [--vary=knob] [--values=n,...]
+ * [--knob=n ...] [--phase=phase] [--csv=file] [--live-heap]
+ * [--baseline=file] [--tolerance=percent]</code>
+ * </p>
+ *
+ * <p>
+ * The knob named by <code>--vary</code> (see {@link ProgramGenerator}) takes
+ * all the values listed by <code>--values</code> while all other knobs are
+ * fixed. The smallest program is compiled once before the measurements to
+ * warm the JVM up. For every pair of consecutive sizes the growth exponent
+ * <code>log(t2/t1)/log(n2/n1)</code> is printed as well: about 1 means linear
+ * and about 2 quadratic behaviour.
+ * </p>
+ *
+ * <p>
+ * With <code>--live-heap</code> the measured compilations are run with
+ * <code>--stats=json</code> and the live heap at the start of every phase
+ * (<code>live_heap_bytes</code> of the statistics) is reported per size and
+ * written to the CSV file as well. With <code>--baseline</code> the live heap
+ * of every phase is compared against a CSV file written by an earlier run with
+ * the same knobs, and the driver exits with status 1 if any of them has grown
+ * by more than <code>--tolerance</code> percent (10 by default), so that a
+ * change that holds onto data of a finished phase again gets caught.
+ * </p>
+ */
+public class Scaling {
+
+	public static void main(String[] args) throws IOException {
+		ProgramGenerator generator = new ProgramGenerator();
+		String vary = "functions";
+		int[] values = { 10, 20, 40, 80, 160 };
+		String phase = "fin";
+		String csvFileName = null;
+		boolean liveHeap = false;
+		String baselineFileName = null;
+		double tolerance = 10.0;
+
+		for (String arg : args) {
+			if (arg.startsWith("--vary=")) {
+				vary = arg.replaceFirst("--vary=", "");
+			} else if (arg.startsWith("--values=")) {
+				String[] vals = arg.replaceFirst("--values=", "").split(",");
+				values = new int[vals.length];
+				for (int v = 0; v < vals.length; v++) {
+					values[v] = Integer.parseInt(vals[v]);
+				}
+			} else if (arg.startsWith("--phase=")) {
+				phase = arg.replaceFirst("--phase=", "");
+			} else if (arg.startsWith("--csv=")) {
+				csvFileName = arg.replaceFirst("--csv=", "");
+			} else if (arg.equals("--live-heap")) {
+				liveHeap = true;
+			} else if (arg.startsWith("--baseline=")) {
+				baselineFileName = arg.replaceFirst("--baseline=", "");
+				liveHeap = true;
+			} else if (arg.startsWith("--tolerance=")) {
+				tolerance = Double.parseDouble(arg.replaceFirst("--tolerance=", ""));
+			} else if (arg.startsWith("--") && arg.contains("=")) {
+				String knob = arg.substring(2, arg.indexOf('='));
+				if (!generator.setKnob(knob, Integer.parseInt(arg.substring(arg.indexOf('=') + 1)))) {
+					System.err.println("Unknown knob '" + knob + "'.");
+					System.exit(1);
+				}
+			} else {
+				System.err.println("Unknown option '" + arg + "'.");
+				System.exit(1);
+			}
+		}
+		if (!generator.setKnob(vary, values[0])) {
+			System.err.println("Unknown knob '" + vary + "'.");
+			System.exit(1);
+		}
+
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		PrintStream nowhere = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		});
+
+		Path genDir = Files.createTempDirectory("prev-scaling");
+		long[] srcBytes = new long[values.length];
+		double[] times = new double[values.length];
+		double[] heaps = new double[values.length];
+		int[] statuses = new int[values.length];
+		List<Map<String, Double>> liveHeaps = new ArrayList<Map<String, Double>>();
+		LinkedHashSet<String> phases = new LinkedHashSet<String>();
+		for (int v = 0; v < values.length; v++) {
+			generator.setKnob(vary, values[v]);
+			byte[] src = generator.generate().getBytes(StandardCharsets.US_ASCII);
+			Path srcFile = genDir.resolve(vary + values[v] + ".prev");
+			Files.write(srcFile, src);
+			srcBytes[v] = src.length;
+
+			// The smallest program is compiled once more first to warm the JVM up.
+			if (v == 0) {
+				compile(phase, srcFile, false, nowhere);
+			}
+
+			System.gc();
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					pool.resetPeakUsage();
+				}
+			}
+
+			long time = System.nanoTime();
+			statuses[v] = compile(phase, srcFile, liveHeap, nowhere);
+			times[v] = (System.nanoTime() - time) / 1e6;
+
+			long peakHeap = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					peakHeap += pool.getPeakUsage().getUsed();
+				}
+			}
+			heaps[v] = peakHeap / (1024.0 * 1024.0);
+
+			if (liveHeap) {
+				Path statsFile = genDir.resolve(vary + values[v] + ".stats.json");
+				Map<String, Double> phaseHeaps = readLiveHeaps(statsFile);
+				Files.deleteIfExists(statsFile);
+				phases.addAll(phaseHeaps.keySet());
+				liveHeaps.add(phaseHeaps);
+			}
+		}
+
+		// The table.
+		stdout.println(String.format("%12s %12s %12s %8s %14s %8s  %s", vary, "bytes", "time [ms]", "growth",
+				"peak heap [MB]", "growth", "status"));
+		for (int v = 0; v < values.length; v++) {
+			stdout.println(String.format("%12d %12d %12.1f %8s %14.1f %8s  %s", values[v], srcBytes[v], times[v],
+					growth(values, times, v), heaps[v], growth(values, heaps, v), statuses[v] == 0 ? "ok" : "failed"));
+		}
+
+		// The plots.
+		plot(stdout, "time [ms]", vary, values, times);
+		plot(stdout, "peak heap [MB]", vary, values, heaps);
+
+		// The live heap at the start of every phase.
+		if (liveHeap) {
+			stdout.println();
+			stdout.println("live heap at the start of a phase [MB]:");
+			StringBuilder header = new StringBuilder(String.format("%12s", vary));
+			for (String p : phases) {
+				header.append(String.format(" %10s", p));
+			}
+			stdout.println(header);
+			for (int v = 0; v < values.length; v++) {
+				StringBuilder row = new StringBuilder(String.format("%12d", values[v]));
+				for (String p : phases) {
+					Double mb = liveHeaps.get(v).get(p);
+					row.append(mb == null ? String.format(" %10s", "-") : String.format(" %10.1f", mb));
+				}
+				stdout.println(row);
+			}
+		}
+
+		if (csvFileName != null) {
+			try (PrintWriter csv = new PrintWriter(csvFileName, "US-ASCII")) {
+				StringBuilder header = new StringBuilder(vary + ",bytes,time_ms,peak_heap_mb,status");
+				for (String p : phases) {
+					header.append(",live_heap_mb_" + p);
+				}
+				csv.println(header);
+				for (int v = 0; v < values.length; v++) {
+					StringBuilder row = new StringBuilder(
+							values[v] + "," + srcBytes[v] + "," + times[v] + "," + heaps[v] + "," + statuses[v]);
+					for (String p : phases) {
+						Double mb = liveHeaps.get(v).get(p);
+						row.append("," + (mb == null ? "" : mb));
+					}
+					csv.println(row);
+				}
+			} catch (FileNotFoundException ex) {
+				stderr.println("Cannot write file '" + csvFileName + "'.");
+			}
+		}
+
+		File[] files = genDir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		Files.deleteIfExists(genDir);
+
+		// The comparison against the baseline.
+		if (baselineFileName != null) {
+			int regressions = 0;
+			Map<Integer, Map<String, Double>> baseline = readBaseline(baselineFileName);
+			for (int v = 0; v < values.length; v++) {
+				Map<String, Double> baseHeaps = baseline.get(values[v]);
+				if (baseHeaps == null) {
+					stderr.println("No baseline for " + vary + "=" + values[v] + ".");
+					continue;
+				}
+				for (String p : phases) {
+					Double mb = liveHeaps.get(v).get(p);
+					Double baseMb = baseHeaps.get(p);
+					if (mb == null || baseMb == null) {
+						continue;
+					}
+					if (mb > baseMb * (1.0 + tolerance / 100.0)) {
+						stderr.println(String.format("Live heap at the start of phase %s for %s=%d: %.1f MB, baseline %.1f MB.",
+								p, vary, values[v], mb, baseMb));
+						regressions++;
+					}
+				}
+			}
+			if (regressions > 0) {
+				System.exit(1);
+			}
+		}
+	}
+
+	private static int compile(String phase, Path srcFile, boolean stats, PrintStream nowhere) {
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		System.setOut(nowhere);
+		System.setErr(nowhere);
+		try {
+			Main.resetGlobalState();
+			if (stats) {
+				return Main.compile(new String[] { "--phase=" + phase, "--stats=json", srcFile.toString() });
+			}
+			return Main.compile(new String[] { "--phase=" + phase, srcFile.toString() });
+		} catch (RuntimeException | StackOverflowError ex) {
+			return 1;
+		} finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+		}
+	}
+
+	/** Matches a phase of the statistics file that records its live heap. */
+	private static final Pattern phasePattern = Pattern
+			.compile("\\{ \"name\": \"([^\"]*)\".*\"live_heap_bytes\": ([0-9]+)");
+
+	/**
+	 * Reads the live heap at the start of every phase from the statistics file.
+	 *
+	 * @param statsFile The statistics file written by option
+	 *                  <code>--stats=json</code>.
+	 * @return The live heap in MB by phase names, in the order of the phases.
+	 */
+	private static Map<String, Double> readLiveHeaps(Path statsFile) {
+		Map<String, Double> phaseHeaps = new LinkedHashMap<String, Double>();
+		try {
+			for (String line : Files.readAllLines(statsFile, StandardCharsets.US_ASCII)) {
+				Matcher matcher = phasePattern.matcher(line);
+				if (matcher.find()) {
+					phaseHeaps.put(matcher.group(1), Long.parseLong(matcher.group(2)) / (1024.0 * 1024.0));
+				}
+			}
+		} catch (IOException ex) {
+			// The compilation failed before the statistics were written.
+		}
+		return phaseHeaps;
+	}
+
+	/**
+	 * Reads the live heap of every phase from a CSV file written by an earlier
+	 * run.
+	 *
+	 * @param csvFileName The name of the CSV file.
+	 * @return The live heap in MB by phase names for every value of the knob.
+	 */
+	private static Map<Integer, Map<String, Double>> readBaseline(String csvFileName) throws IOException {
+		Map<Integer, Map<String, Double>> baseline = new HashMap<Integer, Map<String, Double>>();
+		try (BufferedReader csv = Files.newBufferedReader(Path.of(csvFileName), StandardCharsets.US_ASCII)) {
+			String line = csv.readLine();
+			if (line == null) {
+				return baseline;
+			}
+			String[] header = line.split(",", -1);
+			while ((line = csv.readLine()) != null) {
+				String[] fields = line.split(",", -1);
+				Map<String, Double> phaseHeaps = new HashMap<String, Double>();
+				for (int f = 0; f < Math.min(header.length, fields.length); f++) {
+					if (header[f].startsWith("live_heap_mb_") && !fields[f].equals("")) {
+						phaseHeaps.put(header[f].replaceFirst("live_heap_mb_", ""), Double.parseDouble(fields[f]));
+					}
+				}
+				baseline.put(Integer.parseInt(fields[0]), phaseHeaps);
+			}
+		}
+		return baseline;
+	}
+
+	private static String growth(int[] values, double[] measurements, int v) {
+		if (v == 0 || values[v] == values[v - 1] || measurements[v - 1] <= 0 || measurements[v] <= 0) {
+			return "";
+		}
+		return String.format("%.2f", Math.log(measurements[v] / measurements[v - 1])
+				/ Math.log((double) values[v] / values[v - 1]));
+	}
+
+	private static void plot(PrintStream out, String title, String vary, int[] values, double[] measurements) {
+		final int width = 60;
+		double max = 0;
+		for (double measurement : measurements) {
+			max = Math.max(max, measurement);
+		}
+
+		out.println();
+		out.println(title + " against " + vary + ":");
+		for (int v = 0; v < values.length; v++) {
+			int length = max == 0 ? 0 : (int) Math.round(measurements[v] / max * width);
+			StringBuilder bar = new StringBuilder();
+			for (int i = 0; i < length; i++) {
+				bar.append('#');
+			}
+			out.println(String.format("%10d | %-" + width + "s %.1f", values[v], bar, measurements[v]));
+		}
+	}
+
+}
@@ -0,0 +1,24 @@
+/**
+ * Benchmarks of the compiler phases.
+ * 
+ * <p>
+ * Run with <code>java -classpath bin compiler.bench.Bench</code> from the root
+ * of the project. Every phase (or step of a phase) listed in
+ * {@link compiler.bench.Benchmark} is measured on the programs found in
+ * directory <code>prev</code> and on programs of different sizes produced by
+ * {@link compiler.bench.ProgramGenerator}. For each of them the throughput
+ * (operations per second), the time per operation, the number of items
+ * (tokens, fragments, ...) processed per operation and the number of bytes
+ * allocated per operation are reported.
+ * </p>
+ * 
+ * <p>
+ * Run <code>java -classpath bin compiler.bench.Scaling</code> to compile
+ * generated programs of growing size (or shape) with {@link compiler.Main}
+ * and to plot the compile time and the peak heap usage against the size.
+ * With <code>--live-heap</code> it reports the live heap at the start of
+ * every phase as well and, given <code>--baseline</code>, fails if any of
+ * them has grown since an earlier run.
+ * </p>
+ */
+package compiler.bench;
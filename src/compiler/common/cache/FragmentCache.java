@@ -0,0 +1,511 @@
+package compiler.common.cache;
+
+import compiler.common.io.AtomicFile;
+import compiler.common.report.InternalCompilerError;
+import compiler.common.report.Report;
+import compiler.data.codegen.*;
+import compiler.data.frg.CodeFragment;
+import compiler.data.frm.Frame;
+import compiler.data.imc.*;
+import compiler.phase.codegen.CodeGen;
+import compiler.phase.regalloc.RegisterAlloc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An on-disk cache of the code generated for individual code fragments.
+ *
+ * <p>
+ * Every cache entry contains the final, register-allocated code of a single
+ * fragment together with the size of its frame (which grows if registers are
+ * spilled) and the names of the spilled registers. An entry is keyed by a hash
+ * of the linearized intermediate code of the fragment and of its frame: the
+ * intermediate code reflects the fragment's part of the AST, the sizes and
+ * offsets derived from the types it refers to and the frame and static link
+ * layout, and it is exactly what the code generator is given. The names of
+ * temporaries, anonymous labels and moves are numbered by a global counter
+ * and thus depend on the rest of the program, so they are replaced by their
+ * order of appearance within the fragment both in the key and in the cached
+ * code.
+ * </p>
+ *
+ * <p>
+ * If the cache has not been requested, all methods do nothing and no fragment
+ * is ever found in the cache.
+ * </p>
+ */
+public class FragmentCache {
+
+	/** The version of the format of cache entries. */
+	private static final String version = "prev-fragment-cache 1";
+
+	/** The names of anonymous labels generated during intermediate code generation. */
+	private static final Pattern anonymousLabel = Pattern.compile("L[0-9]+");
+
+	/** The comment preceding the code of a move. */
+	private static final Pattern moveComment = Pattern.compile("Move \\(([0-9]+)\\)");
+
+	/** The name of the cache directory. */
+	private final String cacheDName;
+
+	/** Whether the cache is used at all. */
+	private final boolean enabled;
+
+	/** The canonical forms of the fragments looked up so far. */
+	private final ConcurrentHashMap<CodeFragment, Canonical> canonicals = new ConcurrentHashMap<>();
+
+	/** The entries of the fragments found in the cache. */
+	private final ConcurrentHashMap<CodeFragment, Entry> hits = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new fragment cache.
+	 *
+	 * @param cacheDName
+	 *            The name of the cache directory (or <code>null</code> if the
+	 *            cache has not been requested).
+	 */
+	public FragmentCache(String cacheDName) {
+		this.cacheDName = cacheDName;
+		this.enabled = cacheDName != null;
+	}
+
+	/**
+	 * Tells whether the cache is used.
+	 *
+	 * @return <code>true</code> if the cache is used.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Looks a code fragment up in the cache. If the fragment is found, its
+	 * frame is updated to the size it had once its code had been generated.
+	 * Fragments may be looked up concurrently.
+	 *
+	 * @param frag
+	 *            The code fragment.
+	 * @return The final code of the fragment or <code>null</code> if the
+	 *         fragment is not in the cache.
+	 */
+	public InstructionSet lookup(CodeFragment frag) {
+		if (!enabled)
+			return null;
+		Canonical canonical = new Canonical(frag);
+		canonicals.put(frag, canonical);
+
+		Entry entry = read(canonical);
+		if (entry == null)
+			return null;
+		frag.frame.tmpVarsSize = entry.tmpVarsSize;
+		frag.frame.numTemps = entry.numTemps;
+		frag.frame.setSize();
+		hits.put(frag, entry);
+		return entry.instrs;
+	}
+
+	/**
+	 * Tells whether the code of a fragment has been found in the cache.
+	 *
+	 * @param frag
+	 *            The code fragment.
+	 * @return <code>true</code> if the code has been found in the cache.
+	 */
+	public boolean isHit(CodeFragment frag) {
+		return enabled && hits.containsKey(frag);
+	}
+
+	/**
+	 * Returns the names of registers spilled when the cached code of a fragment
+	 * had been generated.
+	 *
+	 * @param frag
+	 *            The code fragment found in the cache.
+	 * @return The names of the spilled registers.
+	 */
+	public List<String> spilled(CodeFragment frag) {
+		return hits.get(frag).spilled;
+	}
+
+	/**
+	 * Stores the final code of a fragment that has not been found in the
+	 * cache. The code must be register-allocated but must not contain the
+	 * prolog and the epilog yet.
+	 *
+	 * @param frag
+	 *            The code fragment.
+	 * @param instrs
+	 *            The final code of the fragment.
+	 * @param spilled
+	 *            The registers spilled while generating the code.
+	 */
+	public void store(CodeFragment frag, InstructionSet instrs, List<VirtualRegister> spilled) {
+		if (!enabled || hits.containsKey(frag))
+			return;
+		Canonical canonical = canonicals.get(frag);
+		if (canonical == null)
+			return;
+
+		ArrayList<String> lines = new ArrayList<>();
+		lines.add(version);
+		lines.add("frame " + frag.frame.tmpVarsSize + " " + frag.frame.numTemps);
+		StringBuilder spilledLine = new StringBuilder("spilled");
+		for (VirtualRegister reg : spilled) {
+			spilledLine.append(' ').append(reg);
+		}
+		lines.add(spilledLine.toString());
+		for (Instruction instr : instrs.instrs) {
+			String line = canonical.encode(instr);
+			if (line == null) {
+				// Code that cannot be restored is not cached at all.
+				return;
+			}
+			lines.add(line);
+		}
+
+		Path dir = Paths.get(cacheDName);
+		AtomicFile file = new AtomicFile(dir.resolve(canonical.key));
+		try {
+			Files.createDirectories(dir);
+			try (PrintWriter writer = new PrintWriter(file.newWriter())) {
+				for (String line : lines) {
+					writer.println(line);
+				}
+			}
+			file.commit();
+		} catch (IOException ex) {
+			file.discard();
+			Report.warning("Cannot write fragment cache entry '" + file.file + "'.");
+		}
+	}
+
+	private Entry read(Canonical canonical) {
+		Path file = Paths.get(cacheDName, canonical.key);
+		if (!Files.isRegularFile(file))
+			return null;
+		// A damaged entry is ignored and overwritten once the code is generated.
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (!version.equals(reader.readLine()))
+				return null;
+			Entry entry = new Entry();
+			String[] frame = reader.readLine().split(" ");
+			if (frame.length != 3 || !frame[0].equals("frame"))
+				return null;
+			entry.tmpVarsSize = Long.parseLong(frame[1]);
+			entry.numTemps = Long.parseLong(frame[2]);
+			String[] spilled = reader.readLine().split(" ");
+			if (!spilled[0].equals("spilled"))
+				return null;
+			for (int s = 1; s < spilled.length; s++) {
+				entry.spilled.add(spilled[s]);
+			}
+			entry.instrs = new InstructionSet(canonical.frag.label);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Instruction instr = canonical.decode(line);
+				if (instr == null)
+					return null;
+				entry.instrs.add(instr);
+			}
+			entry.instrs.countRegisters();
+			return entry;
+		} catch (IOException | RuntimeException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * A cache entry.
+	 */
+	private static class Entry {
+
+		long tmpVarsSize;
+
+		long numTemps;
+
+		final LinkedList<String> spilled = new LinkedList<>();
+
+		InstructionSet instrs;
+
+	}
+
+	/**
+	 * The canonical form of a code fragment: its key and the numbering of the
+	 * names that depend on the rest of the program.
+	 */
+	private static class Canonical {
+
+		final CodeFragment frag;
+
+		final HashMap<Integer, Integer> temps = new HashMap<>();
+
+		final HashMap<String, Integer> labels = new HashMap<>();
+
+		final ArrayList<String> labelNames = new ArrayList<>();
+
+		final HashMap<Long, Integer> moves = new HashMap<>();
+
+		final ArrayList<Long> moveIds = new ArrayList<>();
+
+		final String key;
+
+		Canonical(CodeFragment frag) {
+			this.frag = frag;
+
+			StringBuilder text = new StringBuilder(version).append('\n');
+			text.append("registers ").append(RegisterAlloc.physicalRegisters);
+			text.append(" comments ").append(CodeGen.commentAnnotations).append(' ').append(CodeGen.spacingComments);
+			text.append('\n');
+			Frame frame = frag.frame;
+			text.append("frame ").append(frame.level).append(' ').append(frame.label).append(' ').append(frame.size);
+			text.append(' ').append(frame.inpCallSize).append(' ').append(frame.locVarsSize).append(' ')
+					.append(frame.tmpVarsSize).append(' ').append(frame.hidRegsSize).append(' ')
+					.append(frame.outCallSize).append(' ').append(frame.numTemps).append('\n');
+			text.append("FP ").append(temp(frag.FP)).append(" RV ").append(temp(frag.RV)).append('\n');
+			imc(frag.linCode, text);
+
+			try {
+				StringBuilder key = new StringBuilder();
+				for (byte b : MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8))) {
+					key.append(String.format("%02x", b));
+				}
+				this.key = key.toString();
+			} catch (NoSuchAlgorithmException ex) {
+				throw new InternalCompilerError();
+			}
+		}
+
+		private int temp(int name) {
+			return temps.computeIfAbsent(name, n -> temps.size());
+		}
+
+		private String label(String name) {
+			if (!anonymousLabel.matcher(name).matches())
+				return name;
+			Integer index = labels.get(name);
+			if (index == null) {
+				index = labelNames.size();
+				labels.put(name, index);
+				labelNames.add(name);
+			}
+			return "=" + index;
+		}
+
+		private int move(long id) {
+			Integer index = moves.get(id);
+			if (index == null) {
+				index = moveIds.size();
+				moves.put(id, index);
+				moveIds.add(id);
+			}
+			return index;
+		}
+
+		private void imc(IMC imc, StringBuilder text) {
+			if (imc instanceof BINOP) {
+				BINOP binop = (BINOP) imc;
+				text.append("BINOP(").append(binop.oper).append(',');
+				imc(binop.expr1, text);
+				text.append(',');
+				imc(binop.expr2, text);
+				text.append(')');
+			} else if (imc instanceof CALL) {
+				CALL call = (CALL) imc;
+				text.append("CALL(").append(label(call.label));
+				for (int arg = 0; arg < call.numArgs(); arg++) {
+					text.append(',').append(call.widths(arg)).append(':');
+					imc(call.args(arg), text);
+				}
+				text.append(')');
+			} else if (imc instanceof CJUMP) {
+				CJUMP cjump = (CJUMP) imc;
+				text.append("CJUMP(");
+				imc(cjump.cond, text);
+				text.append(',').append(label(cjump.posLabel)).append(',').append(label(cjump.negLabel)).append(')');
+			} else if (imc instanceof CONST) {
+				text.append("CONST(").append(((CONST) imc).value).append(')');
+			} else if (imc instanceof ESTMT) {
+				text.append("ESTMT(");
+				imc(((ESTMT) imc).expr, text);
+				text.append(')');
+			} else if (imc instanceof JUMP) {
+				text.append("JUMP(").append(label(((JUMP) imc).label)).append(')');
+			} else if (imc instanceof LABEL) {
+				text.append("LABEL(").append(label(((LABEL) imc).label)).append(')');
+			} else if (imc instanceof MEM) {
+				MEM mem = (MEM) imc;
+				text.append("MEM(").append(mem.width).append(',');
+				imc(mem.addr, text);
+				text.append(')');
+			} else if (imc instanceof MOVE) {
+				MOVE move = (MOVE) imc;
+				text.append("MOVE(").append(move(move.id)).append(',');
+				imc(move.dst, text);
+				text.append(',');
+				imc(move.src, text);
+				text.append(')');
+			} else if (imc instanceof NAME) {
+				text.append("NAME(").append(label(((NAME) imc).name)).append(')');
+			} else if (imc instanceof NOP) {
+				text.append("NOP");
+			} else if (imc instanceof SEXPR) {
+				SEXPR sexpr = (SEXPR) imc;
+				text.append("SEXPR(");
+				imc(sexpr.stmt, text);
+				text.append(',');
+				imc(sexpr.expr, text);
+				text.append(')');
+			} else if (imc instanceof STMTS) {
+				text.append("STMTS(");
+				for (IMCStmt stmt : ((STMTS) imc).stmts) {
+					imc(stmt, text);
+					text.append('\n');
+				}
+				text.append(')');
+			} else if (imc instanceof TEMP) {
+				text.append("TEMP(").append(temp(((TEMP) imc).name)).append(')');
+			} else if (imc instanceof UNOP) {
+				UNOP unop = (UNOP) imc;
+				text.append("UNOP(").append(unop.oper).append(',');
+				imc(unop.expr, text);
+				text.append(')');
+			} else {
+				throw new InternalCompilerError();
+			}
+		}
+
+		/**
+		 * Encodes an instruction as a line of a cache entry.
+		 *
+		 * @return The encoded instruction or <code>null</code> if it cannot be
+		 *         restored from the cache.
+		 */
+		String encode(Instruction instr) {
+			if (instr instanceof Label) {
+				String name = encodeLabel(((Label) instr).label);
+				return name == null ? null : "label " + name;
+			} else if (instr instanceof Comment) {
+				String content = ((Comment) instr).content;
+				if (content == null)
+					return "space";
+				if (content.indexOf('\n') >= 0 || content.indexOf('\r') >= 0)
+					return null;
+				Matcher move = moveComment.matcher(content);
+				if (move.matches()) {
+					Integer index = moves.get(Long.parseLong(move.group(1)));
+					return index == null ? null : "move " + index;
+				}
+				return "comment " + content;
+			} else if (instr instanceof Mnemonic) {
+				Mnemonic mnemonic = (Mnemonic) instr;
+				StringBuilder line = new StringBuilder("instr ").append(mnemonic.mnemonic);
+				for (Operand operand : mnemonic.operands) {
+					line.append(' ');
+					if (operand instanceof PhysicalRegister) {
+						line.append(operand);
+					} else if (operand instanceof FixedRegister) {
+						line.append('%').append(operand);
+					} else if (operand instanceof ConstantOperand) {
+						line.append('#').append(operand);
+					} else if (operand instanceof OperandLabel) {
+						String name = encodeLabel(((OperandLabel) operand).label.label);
+						if (name == null)
+							return null;
+						line.append('@').append(name);
+					} else {
+						return null;
+					}
+				}
+				return line.toString();
+			} else {
+				return null;
+			}
+		}
+
+		private String encodeLabel(String name) {
+			if (name.indexOf(' ') >= 0)
+				return null;
+			if (!anonymousLabel.matcher(name).matches())
+				return name;
+			Integer index = labels.get(name);
+			return index == null ? null : "=" + index;
+		}
+
+		/**
+		 * Decodes a line of a cache entry.
+		 *
+		 * @return The decoded instruction or <code>null</code> if the line is
+		 *         damaged.
+		 */
+		Instruction decode(String line) {
+			if (line.equals("space"))
+				return new Comment(null);
+			if (line.startsWith("comment "))
+				return new Comment(line.substring("comment ".length()));
+			if (line.startsWith("move ")) {
+				int index = Integer.parseInt(line.substring("move ".length()));
+				return new Comment("Move (" + moveIds.get(index) + ")");
+			}
+			if (line.startsWith("label "))
+				return Label.get(decodeLabel(line.substring("label ".length())));
+			if (line.startsWith("instr ")) {
+				String[] fields = line.split(" ");
+				Operand[] operands = new Operand[fields.length - 2];
+				for (int o = 0; o < operands.length; o++) {
+					String field = fields[o + 2];
+					switch (field.charAt(0)) {
+						case '$':
+							operands[o] = PhysicalRegister.get(Integer.parseInt(field.substring(1)));
+							break;
+						case '%':
+							operands[o] = fixedRegister(field.substring(1));
+							break;
+						case '#':
+							// Constants are printed as signed 16-bit values.
+							operands[o] = new ConstantOperand(Long.parseLong(field.substring(1)) & 0xFFFF);
+							break;
+						case '@':
+							operands[o] = new OperandLabel(decodeLabel(field.substring(1)));
+							break;
+						default:
+							return null;
+					}
+					if (operands[o] == null)
+						return null;
+				}
+				return new Mnemonic(fields[1], operands);
+			}
+			return null;
+		}
+
+		private String decodeLabel(String name) {
+			return name.startsWith("=") ? labelNames.get(Integer.parseInt(name.substring(1))) : name;
+		}
+
+		private static FixedRegister fixedRegister(String name) {
+			for (FixedRegister reg : new FixedRegister[] { CodeGen.sp, CodeGen.fp, CodeGen.rv, CodeGen.returnJumpReg,
+					CodeGen.reminderReg, CodeGen.colorRegister }) {
+				if (reg.toString().equals(name))
+					return reg;
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,12 @@
+/**
+ * Incremental compilation.
+ * 
+ * <p>
+ * If requested by option <code>--cache=dir</code>, the final code of every
+ * code fragment is stored in the directory <code>dir</code> by an object of
+ * class {@link compiler.common.cache.FragmentCache}. When the same program (or
+ * a program sharing some of its functions) is compiled again, code generation
+ * and register allocation are skipped for all fragments found in the cache.
+ * </p>
+ */
+package compiler.common.cache;
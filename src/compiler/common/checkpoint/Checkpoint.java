@@ -0,0 +1,471 @@
+package compiler.common.checkpoint;
+
+import compiler.Task;
+import compiler.common.io.AtomicFile;
+import compiler.common.report.CompilerError;
+import compiler.common.report.InternalCompilerError;
+import compiler.common.report.Report;
+import compiler.data.frg.CodeFragment;
+import compiler.data.frg.ConstFragment;
+import compiler.data.frg.DataFragment;
+import compiler.data.frg.Fragment;
+import compiler.data.frm.Frame;
+import compiler.data.imc.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.zip.CRC32;
+
+/**
+ * A binary checkpoint of the fragments of a program taken after the
+ * intermediate code generation.
+ *
+ * <p>
+ * The checkpoint contains all data, constant and code fragments (in the order
+ * they are kept in by the task), the frames of code fragments, their
+ * linearized intermediate code (the basic blocks are formed once the code has
+ * been restored) and the counters the names of temporaries, anonymous labels
+ * and moves are generated by. The ids of moves are kept as they are, since
+ * they appear in the final code.
+ * </p>
+ *
+ * <p>
+ * Integers are written as variable-length quantities and every string is
+ * written only once and referred to by its index afterwards. The checkpoint
+ * starts with the version of the format and with the length and the checksum
+ * of the source file, so that a checkpoint of an older compiler or of a
+ * source file that has been changed since is never restored.
+ * </p>
+ */
+public class Checkpoint {
+
+	/** The version of the format of checkpoints. */
+	private static final String version = "prev-checkpoint 1";
+
+	/** The kinds of fragments and of intermediate code nodes. */
+	private enum Tag {
+		DATA, CONST_FRAGMENT, CODE,
+		NULL, BINOP, CALL, CJUMP, CONST, ESTMT, JUMP, LABEL, MEM, MOVE, NAME, NOP, SEXPR, STMTS, TEMP, UNOP
+	}
+
+	private static final Tag[] tags = Tag.values();
+
+	private static final BINOP.Oper[] binOpers = BINOP.Oper.values();
+	private static final UNOP.Oper[] unOpers = UNOP.Oper.values();
+
+	/**
+	 * Returns the name of the checkpoint file saved after the intermediate
+	 * code generation.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 * @return The name of the checkpoint file.
+	 */
+	public static String fileName(Task task) {
+		return task.xmlFName + ".imcode.chk";
+	}
+
+	/**
+	 * Saves the fragments of the program and the name generators.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	public static void save(Task task) {
+		Writer writer = new Writer();
+		writer.string(version);
+		byte[] src = source(task);
+		writer.number(src.length);
+		writer.number(checksum(src));
+		writer.number(TEMP.tempNameCount);
+		writer.number(LABEL.labelNameCount);
+		writer.number(MOVE.idGen);
+
+		writer.number(task.fragments.size());
+		for (Fragment fragment : task.fragments.values()) {
+			if (fragment instanceof DataFragment) {
+				writer.tag(Tag.DATA);
+				writer.string(fragment.label);
+				writer.number(((DataFragment) fragment).width);
+			} else if (fragment instanceof ConstFragment) {
+				writer.tag(Tag.CONST_FRAGMENT);
+				writer.string(fragment.label);
+				writer.string(((ConstFragment) fragment).string);
+			} else if (fragment instanceof CodeFragment) {
+				CodeFragment codeFragment = (CodeFragment) fragment;
+				Frame frame = codeFragment.frame;
+				writer.tag(Tag.CODE);
+				writer.string(frame.label);
+				writer.number(frame.level);
+				writer.number(frame.inpCallSize);
+				writer.number(frame.locVarsSize);
+				writer.number(frame.tmpVarsSize);
+				writer.number(frame.hidRegsSize);
+				writer.number(frame.outCallSize);
+				writer.number(frame.numTemps);
+				writer.number(codeFragment.FP);
+				writer.number(codeFragment.RV);
+				writer.imc(codeFragment.linCode);
+			} else {
+				throw new InternalCompilerError();
+			}
+		}
+
+		AtomicFile file = new AtomicFile(Paths.get(fileName(task)));
+		try {
+			try (OutputStream out = file.newOutputStream()) {
+				out.write(writer.buf, 0, writer.len);
+			}
+			file.commit();
+		} catch (IOException ex) {
+			file.discard();
+			Report.warning("Cannot write checkpoint '" + file.file + "'.");
+		}
+	}
+
+	/**
+	 * Restores the fragments of the program and the name generators.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 */
+	public static void load(Task task) {
+		String fileName = fileName(task);
+		Reader reader;
+		try {
+			reader = new Reader(Files.readAllBytes(Paths.get(fileName)));
+		} catch (IOException ex) {
+			throw new CompilerError("Cannot read checkpoint '" + fileName + "'.");
+		}
+
+		try {
+			if (!reader.string().equals(version))
+				throw new CompilerError("Checkpoint '" + fileName + "' has been saved by another version of the compiler.");
+			byte[] src = source(task);
+			if ((reader.number() != src.length) || (reader.number() != checksum(src)))
+				throw new CompilerError("Checkpoint '" + fileName + "' has been saved for another source file.");
+			int tempNameCount = (int) reader.number();
+			int labelNameCount = (int) reader.number();
+			long idGen = reader.number();
+
+			int numFragments = reader.count();
+			for (int f = 0; f < numFragments; f++) {
+				Fragment fragment;
+				switch (reader.tag()) {
+				case DATA:
+					fragment = new DataFragment(reader.string(), reader.number());
+					break;
+				case CONST_FRAGMENT:
+					fragment = new ConstFragment(reader.string(), reader.string());
+					break;
+				case CODE: {
+					String label = reader.string();
+					int level = (int) reader.number();
+					long inpCallSize = reader.number();
+					long locVarsSize = reader.number();
+					long tmpVarsSize = reader.number();
+					long hidRegsSize = reader.number();
+					long outCallSize = reader.number();
+					Frame frame = new Frame(level, label, inpCallSize, locVarsSize, tmpVarsSize, hidRegsSize,
+							outCallSize);
+					frame.numTemps = reader.number();
+					int FP = (int) reader.number();
+					int RV = (int) reader.number();
+					CodeFragment codeFragment = new CodeFragment(frame, FP, RV, null);
+					codeFragment.linCode = (STMTS) reader.imc();
+					fragment = codeFragment;
+					break;
+				}
+				default:
+					throw new IndexOutOfBoundsException();
+				}
+				task.fragments.put(fragment.label, fragment);
+			}
+			if (reader.pos != reader.buf.length)
+				throw new IndexOutOfBoundsException();
+
+			TEMP.tempNameCount = tempNameCount;
+			LABEL.labelNameCount = labelNameCount;
+			MOVE.idGen = idGen;
+		} catch (IndexOutOfBoundsException | ClassCastException ex) {
+			throw new CompilerError("Checkpoint '" + fileName + "' is corrupt.");
+		}
+	}
+
+	private static byte[] source(Task task) {
+		try {
+			return Files.readAllBytes(Paths.get(task.srcFName));
+		} catch (IOException ex) {
+			throw new CompilerError("Cannot read source file '" + task.srcFName + "'.");
+		}
+	}
+
+	private static long checksum(byte[] src) {
+		CRC32 crc = new CRC32();
+		crc.update(src);
+		return crc.getValue();
+	}
+
+	/**
+	 * The writer of checkpoints.
+	 */
+	private static class Writer {
+
+		byte[] buf = new byte[1 << 16];
+
+		int len = 0;
+
+		/** The indices of the strings written so far. */
+		private final HashMap<String, Integer> strings = new HashMap<>();
+
+		/** Writes a signed integer (zigzag encoded, 7 bits per byte). */
+		void number(long value) {
+			long bits = (value << 1) ^ (value >> 63);
+			if (len + 10 > buf.length) {
+				buf = Arrays.copyOf(buf, 2 * buf.length);
+			}
+			while ((bits & ~0x7FL) != 0) {
+				buf[len++] = (byte) ((bits & 0x7F) | 0x80);
+				bits >>>= 7;
+			}
+			buf[len++] = (byte) bits;
+		}
+
+		void tag(Tag tag) {
+			number(tag.ordinal());
+		}
+
+		/** Writes a string or, if it has been written already, its index. */
+		void string(String string) {
+			Integer index = strings.get(string);
+			if (index != null) {
+				number(index);
+				return;
+			}
+			strings.put(string, strings.size());
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			number(-1 - bytes.length);
+			if (len + bytes.length > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(2 * buf.length, len + bytes.length));
+			}
+			System.arraycopy(bytes, 0, buf, len, bytes.length);
+			len += bytes.length;
+		}
+
+		void imc(IMC imc) {
+			if (imc == null) {
+				tag(Tag.NULL);
+			} else if (imc instanceof BINOP) {
+				BINOP binop = (BINOP) imc;
+				tag(Tag.BINOP);
+				number(binop.oper.ordinal());
+				imc(binop.expr1);
+				imc(binop.expr2);
+			} else if (imc instanceof CALL) {
+				CALL call = (CALL) imc;
+				tag(Tag.CALL);
+				string(call.label);
+				number(call.numArgs());
+				for (int arg = 0; arg < call.numArgs(); arg++) {
+					number(call.widths(arg));
+					imc(call.args(arg));
+				}
+			} else if (imc instanceof CJUMP) {
+				CJUMP cjump = (CJUMP) imc;
+				tag(Tag.CJUMP);
+				imc(cjump.cond);
+				string(cjump.posLabel);
+				string(cjump.negLabel);
+			} else if (imc instanceof CONST) {
+				tag(Tag.CONST);
+				number(((CONST) imc).value);
+			} else if (imc instanceof ESTMT) {
+				tag(Tag.ESTMT);
+				imc(((ESTMT) imc).expr);
+			} else if (imc instanceof JUMP) {
+				tag(Tag.JUMP);
+				string(((JUMP) imc).label);
+			} else if (imc instanceof LABEL) {
+				tag(Tag.LABEL);
+				string(((LABEL) imc).label);
+			} else if (imc instanceof MEM) {
+				MEM mem = (MEM) imc;
+				tag(Tag.MEM);
+				number(mem.width);
+				imc(mem.addr);
+			} else if (imc instanceof MOVE) {
+				MOVE move = (MOVE) imc;
+				tag(Tag.MOVE);
+				number(move.id);
+				imc(move.dst);
+				imc(move.src);
+			} else if (imc instanceof NAME) {
+				tag(Tag.NAME);
+				string(((NAME) imc).name);
+			} else if (imc instanceof NOP) {
+				tag(Tag.NOP);
+			} else if (imc instanceof SEXPR) {
+				SEXPR sexpr = (SEXPR) imc;
+				tag(Tag.SEXPR);
+				imc(sexpr.stmt);
+				imc(sexpr.expr);
+			} else if (imc instanceof STMTS) {
+				STMTS stmts = (STMTS) imc;
+				tag(Tag.STMTS);
+				number(stmts.numStmts());
+				for (IMCStmt stmt : stmts.stmts) {
+					imc(stmt);
+				}
+			} else if (imc instanceof TEMP) {
+				tag(Tag.TEMP);
+				number(((TEMP) imc).name);
+			} else if (imc instanceof UNOP) {
+				UNOP unop = (UNOP) imc;
+				tag(Tag.UNOP);
+				number(unop.oper.ordinal());
+				imc(unop.expr);
+			} else {
+				throw new InternalCompilerError();
+			}
+		}
+
+	}
+
+	/**
+	 * The reader of checkpoints.
+	 */
+	private static class Reader {
+
+		final byte[] buf;
+
+		int pos = 0;
+
+		/** The strings read so far (in the order of their indices). */
+		private final ArrayList<String> strings = new ArrayList<>();
+
+		Reader(byte[] buf) {
+			this.buf = buf;
+		}
+
+		long number() {
+			long bits = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buf[pos++];
+				bits |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return (bits >>> 1) ^ -(bits & 1);
+		}
+
+		/**
+		 * Reads the number of items that follow. As every item takes at
+		 * least one byte, a number larger than the number of bytes left is
+		 * rejected before anything is allocated for the items.
+		 */
+		int count() {
+			long count = number();
+			if ((count < 0) || (count > buf.length - pos)) {
+				throw new IndexOutOfBoundsException();
+			}
+			return (int) count;
+		}
+
+		Tag tag() {
+			return tags[(int) number()];
+		}
+
+		String string() {
+			long number = number();
+			if (number >= 0) {
+				return strings.get((int) number);
+			}
+			int length = (int) (-1 - number);
+			if (length > buf.length - pos) {
+				throw new IndexOutOfBoundsException();
+			}
+			String string = new String(buf, pos, length, StandardCharsets.UTF_8);
+			pos += length;
+			strings.add(string);
+			return string;
+		}
+
+		IMCExpr expr() {
+			return (IMCExpr) imc();
+		}
+
+		IMC imc() {
+			switch (tag()) {
+			case NULL:
+				return null;
+			case BINOP: {
+				BINOP.Oper oper = binOpers[(int) number()];
+				IMCExpr expr1 = expr();
+				IMCExpr expr2 = expr();
+				BINOP binop = new BINOP(oper, expr1, expr2);
+				// The operation has been normalized when it was constructed.
+				binop.oper = oper;
+				binop.expr2 = expr2;
+				return binop;
+			}
+			case CALL: {
+				String label = string();
+				int numArgs = count();
+				IMCExpr[] args = new IMCExpr[numArgs];
+				long[] widths = new long[numArgs];
+				for (int arg = 0; arg < numArgs; arg++) {
+					widths[arg] = number();
+					args[arg] = expr();
+				}
+				return new CALL(label, args, widths);
+			}
+			case CJUMP:
+				return new CJUMP(expr(), string(), string());
+			case CONST:
+				return new CONST(number());
+			case ESTMT:
+				return new ESTMT(expr());
+			case JUMP:
+				return new JUMP(string());
+			case LABEL:
+				return new LABEL(string());
+			case MEM: {
+				long width = number();
+				return new MEM(expr(), width);
+			}
+			case MOVE:
+				return new MOVE(number(), expr(), expr());
+			case NAME:
+				return new NAME(string());
+			case NOP:
+				return new NOP();
+			case SEXPR:
+				return new SEXPR((IMCStmt) imc(), expr());
+			case STMTS: {
+				int numStmts = count();
+				Vector<IMCStmt> stmts = new Vector<IMCStmt>(numStmts);
+				for (int stmt = 0; stmt < numStmts; stmt++) {
+					stmts.add((IMCStmt) imc());
+				}
+				return new STMTS(stmts);
+			}
+			case TEMP:
+				return new TEMP((int) number());
+			case UNOP:
+				return new UNOP(unOpers[(int) number()], expr());
+			default:
+				throw new IndexOutOfBoundsException();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,14 @@
+/**
+ * Phase checkpoints.
+ *
+ * <p>
+ * If requested by option <code>--save-after=imcode</code>, the fragments of
+ * the program are saved in a binary checkpoint file once the intermediate
+ * code has been generated. A later compilation of the same source file with
+ * option <code>--resume-from=lincode</code> restores the fragments from the
+ * checkpoint by an object of class
+ * {@link compiler.common.checkpoint.Checkpoint} and skips all phases up to
+ * and including the intermediate code generation.
+ * </p>
+ */
+package compiler.common.checkpoint;
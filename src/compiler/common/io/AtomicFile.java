@@ -0,0 +1,87 @@
+package compiler.common.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A file that is written to a temporary file next to it and then renamed into
+ * place, so that a partially written file is never seen by anyone.
+ */
+public class AtomicFile {
+
+	/** The number of temporary files named so far by this compiler. */
+	private static final AtomicLong tmpFileCount = new AtomicLong();
+
+	/** The file. */
+	public final Path file;
+
+	/** The temporary file the file is written to. */
+	private final Path tmpFile;
+
+	/**
+	 * Constructs a new file.
+	 *
+	 * @param file
+	 *            The file.
+	 */
+	public AtomicFile(Path file) {
+		this.file = file;
+		// Unique to this compiler so that compilers writing the same file do not
+		// clobber each other's temporary files. Not created by
+		// Files.createTempFile, which would make it readable by the owner only.
+		this.tmpFile = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + "."
+				+ tmpFileCount.incrementAndGet() + ".tmp");
+	}
+
+	/**
+	 * Creates the temporary file and opens it for writing bytes.
+	 *
+	 * @return The output stream of the temporary file.
+	 * @throws IOException
+	 *             If the temporary file cannot be created.
+	 */
+	public OutputStream newOutputStream() throws IOException {
+		return Files.newOutputStream(tmpFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Creates the temporary file and opens it for writing UTF-8 text.
+	 *
+	 * @return The writer of the temporary file.
+	 * @throws IOException
+	 *             If the temporary file cannot be created.
+	 */
+	public Writer newWriter() throws IOException {
+		return Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Renames the (closed) temporary file into place, replacing the file if it
+	 * exists.
+	 *
+	 * @throws IOException
+	 *             If the temporary file cannot be renamed.
+	 */
+	public void commit() throws IOException {
+		Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes the (closed) temporary file if it exists.
+	 */
+	public void discard() {
+		try {
+			Files.deleteIfExists(tmpFile);
+		} catch (IOException ex) {
+		}
+	}
+
+}
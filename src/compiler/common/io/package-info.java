@@ -0,0 +1,11 @@
+/**
+ * Output files.
+ * 
+ * <p>
+ * Files other compilers might read while they are being written, i.e., log
+ * files, fragment cache entries and checkpoints, are written by class
+ * {@link compiler.common.io.AtomicFile} to a temporary file first and then
+ * renamed into place.
+ * </p>
+ */
+package compiler.common.io;
@@ -0,0 +1,223 @@
+package compiler.common.logger;
+
+import compiler.common.report.InternalCompilerError;
+import compiler.common.report.Position;
+import compiler.data.ast.*;
+import compiler.data.ast.attr.Attributes;
+import compiler.data.ast.code.FullVisitor;
+import compiler.data.frg.Fragment;
+import compiler.data.frm.Frame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * A filter restricting the logs of compiler phases to selected functions and
+ * lines of the source file.
+ *
+ * <p>
+ * The filter is specified by a comma separated list of function names and
+ * line ranges (<code>from-to</code> or a single line). A function name selects
+ * the lines of all functions of that name, including their nested functions.
+ * The logs of the abstract syntax tree contain only the subtrees overlapping
+ * the selected lines (and, to keep their context, their ancestors), and the
+ * dumps of the generated code contain only the code fragments of the named
+ * functions, their nested functions and the functions overlapping the line
+ * ranges. The main program is selected by a line range overlapping its main
+ * expression.
+ * </p>
+ *
+ * <p>
+ * If no filter has been requested, everything is logged.
+ * </p>
+ */
+public class LogFilter {
+
+	/** Whether the filter is used at all. */
+	private final boolean enabled;
+
+	/** The names of the selected functions. */
+	private final HashSet<String> names = new HashSet<String>();
+
+	/** The first and the last line of the specified line ranges. */
+	private final ArrayList<int[]> ranges = new ArrayList<int[]>();
+
+	/**
+	 * The first and the last line of the specified line ranges and of the
+	 * named functions (or <code>null</code> if not selected yet).
+	 */
+	private ArrayList<int[]> lines = null;
+
+	/** The selected functions (or <code>null</code> if not selected yet). */
+	private ArrayList<FunDecl> funDecls = null;
+
+	/** Whether the main program is selected. */
+	private boolean main = false;
+
+	/** The labels of the selected code fragments. */
+	private final HashSet<String> labels = new HashSet<String>();
+
+	/** Whether the abstract syntax tree has been released. */
+	private boolean released = false;
+
+	/**
+	 * Constructs a new log filter.
+	 *
+	 * @param filter
+	 *            The comma separated list of function names and line ranges
+	 *            (or <code>null</code> if no filter has been requested).
+	 */
+	public LogFilter(String filter) {
+		this.enabled = filter != null;
+		if (filter == null) {
+			return;
+		}
+		for (String item : filter.split(",")) {
+			if (item.matches("[0-9]+(-[0-9]+)?")) {
+				String[] bounds = item.split("-");
+				int from = Integer.parseInt(bounds[0]);
+				int to = bounds.length == 1 ? from : Integer.parseInt(bounds[1]);
+				ranges.add(new int[] { from, to });
+			} else {
+				names.add(item);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the filter is used at all.
+	 *
+	 * @return <code>true</code> if a filter has been requested.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Selects the lines of the named functions and the functions whose code
+	 * fragments are logged. The abstract syntax tree is traversed only the
+	 * first time; the labels of code fragments are collected from the frames
+	 * evaluated so far. Once the abstract syntax tree has been released (see
+	 * {@link #release()}), the selection does not change any more.
+	 *
+	 * @param program
+	 *            The abstract syntax tree of the program.
+	 * @param attrs
+	 *            The attributes of the abstract syntax tree.
+	 */
+	public void select(Program program, Attributes attrs) {
+		if (!enabled || released) {
+			return;
+		}
+
+		if (funDecls == null) {
+			ArrayList<FunDecl> allFunDecls = new ArrayList<FunDecl>();
+			program.accept(new FullVisitor() {
+				@Override
+				public void visit(FunDecl funDecl) {
+					allFunDecls.add(funDecl);
+					super.visit(funDecl);
+				}
+
+				@Override
+				public void visit(FunDef funDef) {
+					allFunDecls.add(funDef);
+					super.visit(funDef);
+				}
+			});
+
+			lines = new ArrayList<int[]>(ranges);
+			for (FunDecl funDecl : allFunDecls) {
+				if (names.contains(funDecl.name)) {
+					lines.add(new int[] { funDecl.begLine(), funDecl.endLine() });
+				}
+			}
+
+			funDecls = new ArrayList<FunDecl>();
+			for (FunDecl funDecl : allFunDecls) {
+				if (overlaps(ranges, funDecl) || within(funDecl)) {
+					funDecls.add(funDecl);
+				}
+			}
+
+			Expr mainExpr = program.expr instanceof WhereExpr ? ((WhereExpr) program.expr).expr : program.expr;
+			main = overlaps(ranges, mainExpr);
+		}
+
+		labels.clear();
+		if (main) {
+			labels.add("_");
+		}
+		for (FunDecl funDecl : funDecls) {
+			Frame frame = attrs.frmAttr.get(funDecl);
+			if (frame != null) {
+				labels.add(frame.label);
+			}
+		}
+	}
+
+	/**
+	 * Forgets the selected functions, keeping the selected lines and labels of
+	 * code fragments (called once the abstract syntax tree is released, when
+	 * all frames have been evaluated).
+	 */
+	public void release() {
+		released = true;
+		funDecls = null;
+	}
+
+	/**
+	 * Returns whether a part of the source file is logged.
+	 *
+	 * @param position
+	 *            The position of the part of the source file.
+	 * @return <code>true</code> if the position overlaps the selected lines.
+	 */
+	public boolean includes(Position position) {
+		if (!enabled) {
+			return true;
+		}
+		if (lines == null) {
+			throw new InternalCompilerError();
+		}
+		// Nodes created for syntax errors have no position.
+		if (position.begLine() == 0) {
+			return true;
+		}
+		return overlaps(lines, position);
+	}
+
+	/**
+	 * Returns whether a fragment is logged.
+	 *
+	 * @param fragment
+	 *            The fragment.
+	 * @return <code>true</code> if the fragment belongs to a selected
+	 *         function.
+	 */
+	public boolean includes(Fragment fragment) {
+		return !enabled || labels.contains(fragment.label);
+	}
+
+	/**
+	 * Returns whether a function lies within a named function.
+	 */
+	private boolean within(FunDecl funDecl) {
+		for (int range = ranges.size(); range < lines.size(); range++) {
+			if ((lines.get(range)[0] <= funDecl.begLine()) && (funDecl.endLine() <= lines.get(range)[1])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean overlaps(ArrayList<int[]> lines, Position position) {
+		for (int[] range : lines) {
+			if ((range[0] <= position.endLine()) && (position.begLine() <= range[1])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -1,5 +1,6 @@
 package compiler.common.logger;
 
+import compiler.common.io.AtomicFile;
 import compiler.common.report.InternalCompilerError;
 import compiler.common.report.Report;
 import org.w3c.dom.Document;
@@ -13,12 +14,32 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.EmptyStackException;
 import java.util.Stack;
 
 /**
  * A logger used to generate a log file for a compiler phase.
- * 
+ *
+ * <p>
+ * Unless a {@link Transformer} is set, the log is not kept in memory but
+ * written out element by element as it is produced: an element is written
+ * once its first child is started or once it is ended (so that its
+ * attributes can still be added until then). The log is written to a
+ * temporary file that replaces the log file when the logger is closed, so
+ * no log file is produced if the phase fails. If a transformer is set, the
+ * entire log document is built in memory and transformed and dumped out
+ * when the logger is closed.
+ * </p>
+ *
+ * <p>
+ * Both ways produce the same file: attributes are sorted by their names and
+ * escaped as by the default XML transformer.
+ * </p>
+ *
  * @author sliva
  */
 public class Logger implements AutoCloseable {
@@ -29,8 +50,11 @@ public class Logger implements AutoCloseable {
 	/** The name of the style file. */
 	private final String xslFileName;
 
-	/** The document representing the entire log. */
-	private final Document doc;
+	/**
+	 * The document representing the entire log (or <code>null</code> if the
+	 * log is written out as it is produced).
+	 */
+	private Document doc;
 
 	/** The path from the root of the log document to the current node. */
 	private final Stack<Element> elements = new Stack<Element>();
@@ -38,9 +62,30 @@ public class Logger implements AutoCloseable {
 	/** The document transformer. */
 	private Transformer transformer;
 
+	/** The log file while it is being written (or <code>null</code> if not opened yet). */
+	private AtomicFile tmpFile;
+
+	/** The writer of the temporary file. */
+	private Writer out;
+
+	/**
+	 * The logs whose temporary files have been opened but neither moved into
+	 * place nor deleted yet.
+	 */
+	private static final ArrayList<Logger> unfinished = new ArrayList<Logger>();
+
+	/** The tags of the current element and all its ancestors. */
+	private final ArrayList<String> tags = new ArrayList<String>();
+
+	/** Whether the start tag of the current element has not been written yet. */
+	private boolean pending;
+
+	/** The names and values of attributes of the current element not written yet. */
+	private final ArrayList<String> pendingAttrs = new ArrayList<String>();
+
 	/**
 	 * Constructs a new logger.
-	 * 
+	 *
 	 * @param xmlFileName
 	 *            The file name of the log file (without phase name and
 	 *            <code>.xml</code> extension).
@@ -51,23 +96,12 @@ public class Logger implements AutoCloseable {
 		this.xmlFileName = xmlFileName;
 		this.xslFileName = xslFileName;
 		this.transformer = null;
+		this.doc = null;
+		this.out = null;
 
-		// Prepare a new log document.
-		try {
-			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (ParserConfigurationException ex) {
-			throw new InternalCompilerError();
-		}
-
-		// Create the root element representing the entire phase.
-		Element phase = doc.createElement("report");
-		doc.appendChild(phase);
-		elements.push(phase);
-
-		// Add XSL declaration.
-		ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
-				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
-		doc.insertBefore(xsl, phase);
+		// The root element representing the entire phase.
+		tags.add("report");
+		pending = true;
 	}
 
 	/**
@@ -75,6 +109,25 @@ public class Logger implements AutoCloseable {
 	 */
 	@Override
 	public void close() {
+		if (doc == null) {
+			if (tags.size() != 1) {
+				throw new InternalCompilerError();
+			}
+			try {
+				open();
+				endElement();
+				out.close();
+				tmpFile.commit();
+				synchronized (unfinished) {
+					unfinished.remove(this);
+				}
+			} catch (IOException ex) {
+				discard();
+				Report.warning("Cannot generate log file '" + xmlFileName + "'.");
+			}
+			return;
+		}
+
 		try {
 			elements.pop();
 		} catch (EmptyStackException ex) {
@@ -94,20 +147,66 @@ public class Logger implements AutoCloseable {
 			Report.warning("Cannot generate log file '" + xmlFileName + "'.");
 		}
 	}
-	
+
+	/**
+	 * Sets the transformer of the log document. As the transformer needs the
+	 * entire document, it must be set before any element is added.
+	 *
+	 * @param transformer
+	 *            The document transformer.
+	 */
 	public void setTransformer(Transformer transformer) {
+		if (out != null || tags.size() != 1 || !pendingAttrs.isEmpty()) {
+			throw new InternalCompilerError();
+		}
 		this.transformer = transformer;
+		if (doc != null) {
+			return;
+		}
+
+		// Prepare a new log document.
+		try {
+			doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch (ParserConfigurationException ex) {
+			throw new InternalCompilerError();
+		}
+
+		// Create the root element representing the entire phase.
+		Element phase = doc.createElement("report");
+		doc.appendChild(phase);
+		elements.push(phase);
+
+		// Add XSL declaration.
+		ProcessingInstruction xsl = doc.createProcessingInstruction("xml-stylesheet",
+				"type=\"text/xsl\" href=\"" + this.xslFileName + "\"");
+		doc.insertBefore(xsl, phase);
 	}
 
 	/**
 	 * Starts constructing a new log element with a specified tag name as a
 	 * child of the current log element, and makes the new log element the
 	 * current log element.
-	 * 
+	 *
 	 * @param tagName
 	 *            The tag of the new log element.
 	 */
 	public void begElement(String tagName) {
+		if (doc == null) {
+			if (tags.isEmpty()) {
+				throw new InternalCompilerError();
+			}
+			try {
+				open();
+				writeStartTag(false);
+			} catch (IOException ex) {
+				discard();
+				throw new InternalCompilerError();
+			}
+			tags.add(tagName);
+			pending = true;
+			return;
+		}
+
 		try {
 			Element element = doc.createElement(tagName);
 			elements.peek().appendChild(element);
@@ -118,14 +217,32 @@ public class Logger implements AutoCloseable {
 	}
 
 	/**
-	 * Adds a new attribute to the current log element.
-	 * 
+	 * Adds a new attribute to the current log element. Unless a transformer is
+	 * set, all attributes must be added before the first child element.
+	 *
 	 * @param attrName
 	 *            The attribute name.
 	 * @param attrValue
 	 *            The attribute value.
 	 */
 	public void addAttribute(String attrName, String attrValue) {
+		if (doc == null) {
+			// The start tag has already been written if the element has children.
+			if (!pending) {
+				throw new InternalCompilerError();
+			}
+			String value = attrValue == null ? "" : attrValue;
+			for (int attr = 0; attr < pendingAttrs.size(); attr += 2) {
+				if (pendingAttrs.get(attr).equals(attrName)) {
+					pendingAttrs.set(attr + 1, value);
+					return;
+				}
+			}
+			pendingAttrs.add(attrName);
+			pendingAttrs.add(value);
+			return;
+		}
+
 		try {
 			elements.peek().setAttribute(attrName, attrValue);
 		} catch (EmptyStackException ex) {
@@ -138,6 +255,27 @@ public class Logger implements AutoCloseable {
 	 * current log element again.
 	 */
 	public void endElement() {
+		if (doc == null) {
+			if (tags.isEmpty()) {
+				throw new InternalCompilerError();
+			}
+			try {
+				open();
+				if (pending) {
+					writeStartTag(true);
+				} else {
+					out.write("</");
+					out.write(tags.get(tags.size() - 1));
+					out.write('>');
+				}
+			} catch (IOException ex) {
+				discard();
+				throw new InternalCompilerError();
+			}
+			tags.remove(tags.size() - 1);
+			return;
+		}
+
 		try {
 			elements.pop();
 		} catch (EmptyStackException ex) {
@@ -145,4 +283,116 @@ public class Logger implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Opens the temporary file and writes the XML and XSL declarations unless
+	 * this has already been done.
+	 */
+	private void open() throws IOException {
+		if (out != null) {
+			return;
+		}
+		tmpFile = new AtomicFile(Paths.get(xmlFileName));
+		synchronized (unfinished) {
+			unfinished.add(this);
+		}
+		out = tmpFile.newWriter();
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+		out.write("<?xml-stylesheet type=\"text/xsl\" href=\"" + xslFileName + "\"?>");
+	}
+
+	/**
+	 * Deletes the temporary files of all logs that have not been closed (used
+	 * once a compilation has ended, as a failed one does not close its logs).
+	 */
+	public static void discardUnfinished() {
+		ArrayList<Logger> loggers;
+		synchronized (unfinished) {
+			loggers = new ArrayList<Logger>(unfinished);
+		}
+		for (Logger logger : loggers) {
+			logger.discard();
+		}
+	}
+
+	/**
+	 * Closes and deletes the temporary file once the log cannot be written.
+	 */
+	private void discard() {
+		synchronized (unfinished) {
+			unfinished.remove(this);
+		}
+		try {
+			if (out != null) {
+				out.close();
+			}
+		} catch (IOException ex) {
+		}
+		if (tmpFile != null) {
+			tmpFile.discard();
+		}
+	}
+
+	/**
+	 * Writes the start tag of the current element if it has not been written
+	 * yet.
+	 *
+	 * @param empty
+	 *            Whether the element has no children.
+	 */
+	private void writeStartTag(boolean empty) throws IOException {
+		if (!pending) {
+			return;
+		}
+		out.write('<');
+		out.write(tags.get(tags.size() - 1));
+		while (!pendingAttrs.isEmpty()) {
+			// Attributes are written sorted by their names.
+			int first = 0;
+			for (int attr = 2; attr < pendingAttrs.size(); attr += 2) {
+				if (pendingAttrs.get(attr).compareTo(pendingAttrs.get(first)) < 0) {
+					first = attr;
+				}
+			}
+			out.write(' ');
+			out.write(pendingAttrs.get(first));
+			out.write("=\"");
+			writeEscaped(pendingAttrs.get(first + 1));
+			out.write('"');
+			pendingAttrs.remove(first + 1);
+			pendingAttrs.remove(first);
+		}
+		out.write(empty ? "/>" : ">");
+		pending = false;
+	}
+
+	/**
+	 * Writes an attribute value with the same characters escaped as by the
+	 * default XML transformer.
+	 */
+	private void writeEscaped(String value) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '&':
+					out.write("&amp;");
+					break;
+				case '<':
+					out.write("&lt;");
+					break;
+				case '>':
+					out.write("&gt;");
+					break;
+				case '"':
+					out.write("&quot;");
+					break;
+				default:
+					if (c < 32) {
+						out.write("&#" + (int) c + ";");
+					} else {
+						out.write(c);
+					}
+			}
+		}
+	}
+
 }
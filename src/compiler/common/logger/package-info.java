@@ -14,6 +14,15 @@
  * <li>each time a construction of the current element is finished, its parent
  * becomes the current element again.</li>
  * </ul>
+ * Attributes of an element must be added before its first child element is
+ * added, as the log is written out while it is being produced.
+ * 
+ * <p>
+ * If requested by option <code>--logfilter=</code> followed by a comma
+ * separated list of function names and line ranges, the logs are restricted to
+ * the selected parts of the program by a
+ * {@link compiler.common.logger.LogFilter}.
+ * </p>
  * 
  * @author sliva
  */
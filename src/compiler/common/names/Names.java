@@ -0,0 +1,158 @@
+package compiler.common.names;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The pool of identifiers.
+ *
+ * <p>
+ * The lexical analyzer interns every identifier it reads, so that each
+ * distinct identifier is represented by a single string and a dense ID
+ * (starting with 0). AST nodes and the symbol table refer to names by their
+ * IDs only.
+ * </p>
+ *
+ * <p>
+ * The pool is shared by all compilations performed by the same process until
+ * it is {@link #reset() reset}. All methods may be called concurrently;
+ * {@link #name(int) name}, which is called by the workers of the semantic
+ * analysis, does not take the lock of the pool.
+ * </p>
+ */
+public class Names {
+
+	/**
+	 * The names indexed by their IDs. The array is only ever replaced by a
+	 * larger copy and is published again after every name added to it.
+	 */
+	private static volatile String[] names = new String[1024];
+
+	/** The ASCII bytes of the names indexed by their IDs. */
+	private static byte[][] bytes = new byte[1024][];
+
+	/** The number of names in the pool. */
+	private static int numNames = 0;
+
+	/** The open addressing hash table of names containing ID+1 (0 for an empty slot). */
+	private static int[] slots = new int[2048];
+
+	/**
+	 * Returns the ID of a name, adding the name to the pool if it is not there
+	 * yet. The name is given as a range of ASCII bytes, so no string is created
+	 * unless the name is new.
+	 *
+	 * @param buf
+	 *            The buffer containing the name.
+	 * @param begin
+	 *            The index of the first byte of the name.
+	 * @param end
+	 *            The index of the byte following the name.
+	 * @return The ID of the name.
+	 */
+	public static synchronized int id(byte[] buf, int begin, int end) {
+		int hash = hash(buf, begin, end);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				return add(Arrays.copyOfRange(buf, begin, end), slot);
+			}
+			if (equals(bytes[id], buf, begin, end)) {
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Returns the ID of a name, adding the name to the pool if it is not there
+	 * yet.
+	 *
+	 * @param name
+	 *            The name.
+	 * @return The ID of the name.
+	 */
+	public static int id(String name) {
+		byte[] buf = name.getBytes(StandardCharsets.US_ASCII);
+		return id(buf, 0, buf.length);
+	}
+
+	/**
+	 * Returns the name with the specified ID.
+	 *
+	 * @param id
+	 *            The ID of the name.
+	 * @return The name.
+	 */
+	public static String name(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Returns the number of names in the pool. All IDs are smaller.
+	 *
+	 * @return The number of names.
+	 */
+	public static synchronized int size() {
+		return numNames;
+	}
+
+	/**
+	 * Empties the pool (used between compilations performed by the same
+	 * process).
+	 */
+	public static synchronized void reset() {
+		names = new String[1024];
+		bytes = new byte[1024][];
+		numNames = 0;
+		slots = new int[2048];
+	}
+
+	private static int add(byte[] name, int slot) {
+		String[] names = Names.names;
+		if (numNames == names.length) {
+			names = Arrays.copyOf(names, 2 * names.length);
+			bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+		}
+		int id = numNames++;
+		names[id] = new String(name, StandardCharsets.US_ASCII);
+		bytes[id] = name;
+		Names.names = names;
+		slots[slot] = id + 1;
+
+		// Keep the hash table at most half full.
+		if (2 * numNames > slots.length) {
+			slots = new int[2 * slots.length];
+			int mask = slots.length - 1;
+			for (int i = 0; i < numNames; i++) {
+				int s = hash(bytes[i], 0, bytes[i].length) & mask;
+				while (slots[s] != 0) {
+					s = (s + 1) & mask;
+				}
+				slots[s] = i + 1;
+			}
+		}
+		return id;
+	}
+
+	private static int hash(byte[] buf, int begin, int end) {
+		int hash = 0;
+		for (int i = begin; i < end; i++) {
+			hash = 31 * hash + buf[i];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equals(byte[] name, byte[] buf, int begin, int end) {
+		if (name.length != end - begin) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (name[i] != buf[begin + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,10 @@
+/**
+ * Identifier interning.
+ * 
+ * <p>
+ * Every distinct identifier is stored only once, by class
+ * {@link compiler.common.names.Names}, and is denoted by a dense integer ID
+ * everywhere after lexical analysis.
+ * </p>
+ */
+package compiler.common.names;
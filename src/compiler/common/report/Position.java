@@ -3,30 +3,32 @@ package compiler.common.report;
 import compiler.common.logger.Loggable;
 import compiler.common.logger.Logger;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
 /**
  * Denotes the position of a text within a file.
  * 
+ * <p>
+ * The first and the last character of the text are each packed into a single
+ * <code>long</code> holding the ID of the file (see {@link #fileId(String)}),
+ * the line and the column, which are decoded only when the position is
+ * printed or logged. Lines and columns beyond {@link #MAX_LINE_COLUMN} are
+ * stored as {@link #MAX_LINE_COLUMN}.
+ * </p>
+ * 
  * @author sliva
  */
 public class Position implements Loggable {
 
-	/** The name of the file containing the first character of text. */
-	private final String begFileName;
-
-	/** The line of the first character of the text. */
-	private final int begLine;
-
-	/** The column of the first character of the text. */
-	private final int begColumn;
+	/** The first character of the text (see {@link #pack(int, int, int)}). */
+	private final long beg;
 
-	/** The name of the file containing the last character of the text. */
-	private final String endFileName;
+	/** The last character of the text (see {@link #pack(int, int, int)}). */
+	private final long end;
 
-	/** The line of the last character of the text. */
-	private final int endLine;
-
-	/** The column of the last character of the text. */
-	private final int endColumn;
+	/** The largest line or column that can be stored. */
+	public static final int MAX_LINE_COLUMN = (1 << 24) - 1;
 
 	/**
 	 * Constructs a new position denoting a single character.
@@ -39,7 +41,8 @@ public class Position implements Loggable {
 	 *            The column of the character.
 	 */
 	public Position(String fileName, int line, int column) {
-		this(fileName, line, column, fileName, line, column);
+		this.beg = pack(fileId(fileName), line, column);
+		this.end = this.beg;
 	}
 
 	/**
@@ -61,12 +64,9 @@ public class Position implements Loggable {
 	 *            The column of the last character of the text.
 	 */
 	public Position(String begFileName, int begLine, int begColumn, String endFileName, int endLine, int endColumn) {
-		this.begFileName = begFileName;
-		this.begLine = begLine;
-		this.begColumn = begColumn;
-		this.endFileName = endFileName;
-		this.endLine = endLine;
-		this.endColumn = endColumn;
+		int begFileId = fileId(begFileName);
+		this.beg = pack(begFileId, begLine, begColumn);
+		this.end = pack(endFileName == begFileName ? begFileId : fileId(endFileName), endLine, endColumn);
 	}
 
 	/**
@@ -76,12 +76,8 @@ public class Position implements Loggable {
 	 *            The specified position.
 	 */
 	public Position(Position position) {
-		this.begFileName = position.begFileName;
-		this.begLine = position.begLine;
-		this.begColumn = position.begColumn;
-		this.endFileName = position.endFileName;
-		this.endLine = position.endLine;
-		this.endColumn = position.endColumn;
+		this.beg = position.beg;
+		this.end = position.end;
 	}
 
 	/**
@@ -93,17 +89,128 @@ public class Position implements Loggable {
 	 *            The last position.
 	 */
 	public Position(Position begPosition, Position endPosition) {
-		this.begFileName = begPosition.begFileName;
-		this.begLine = begPosition.begLine;
-		this.begColumn = begPosition.begColumn;
-		this.endFileName = begPosition.endFileName;
-		this.endLine = endPosition.endLine;
-		this.endColumn = endPosition.endColumn;
+		this.beg = begPosition.beg;
+		this.end = (begPosition.end & ~LINE_COLUMN_MASK) | (endPosition.end & LINE_COLUMN_MASK);
+	}
+
+	// Packed characters.
+
+	/** The bits of a packed character holding its line and column. */
+	private static final long LINE_COLUMN_MASK = (1L << 48) - 1;
+
+	/**
+	 * Packs the file ID, the line and the column of a character into a single
+	 * <code>long</code>: the file ID is kept in the upper 16 bits, the line in
+	 * the next 24 and the column in the lower 24 bits.
+	 * 
+	 * @param fileId
+	 *            The ID of the file.
+	 * @param line
+	 *            The line.
+	 * @param column
+	 *            The column.
+	 * @return The packed character.
+	 */
+	private static long pack(int fileId, int line, int column) {
+		return ((long) fileId << 48) | ((long) clamp(line) << 24) | clamp(column);
+	}
+
+	private static int clamp(int lineColumn) {
+		return Math.max(0, Math.min(lineColumn, MAX_LINE_COLUMN));
+	}
+
+	private static String fileName(long pos) {
+		return fileName((int) (pos >>> 48));
+	}
+
+	private static int line(long pos) {
+		return (int) (pos >>> 24) & MAX_LINE_COLUMN;
+	}
+
+	private static int column(long pos) {
+		return (int) pos & MAX_LINE_COLUMN;
+	}
+
+	// File names.
+
+	/** The names of files indexed by their IDs. */
+	private static final ArrayList<String> fileNames = new ArrayList<String>();
+
+	/** The IDs of file names. */
+	private static final HashMap<String, Integer> fileIds = new HashMap<String, Integer>();
+
+	/** The file name whose ID has been asked for last. */
+	private static String lastFileName = null;
+
+	/** The ID of {@link #lastFileName}. */
+	private static int lastFileId = -1;
+
+	/**
+	 * Returns the ID of a file name, adding the file name if it has no ID yet.
+	 * 
+	 * @param fileName
+	 *            The file name.
+	 * @return The ID of the file name.
+	 */
+	private static synchronized int fileId(String fileName) {
+		if (fileName == lastFileName)
+			return lastFileId;
+		Integer fileId = fileIds.get(fileName);
+		if (fileId == null) {
+			if (fileNames.size() > 0xFFFF)
+				throw new InternalCompilerError();
+			fileId = fileNames.size();
+			fileNames.add(fileName);
+			fileIds.put(fileName, fileId);
+		}
+		lastFileName = fileName;
+		lastFileId = fileId;
+		return fileId;
+	}
+
+	/**
+	 * Returns the file name with the specified ID.
+	 * 
+	 * @param fileId
+	 *            The ID of the file name.
+	 * @return The file name.
+	 */
+	private static synchronized String fileName(int fileId) {
+		return fileNames.get(fileId);
+	}
+
+	/**
+	 * Forgets all file names (called between compilations, when no position
+	 * created earlier is used any more).
+	 */
+	public static synchronized void resetFileNames() {
+		fileNames.clear();
+		fileIds.clear();
+		lastFileName = null;
+		lastFileId = -1;
+	}
+
+	/**
+	 * Returns the line of the first character of the text.
+	 * 
+	 * @return The line of the first character of the text.
+	 */
+	public int begLine() {
+		return line(beg);
+	}
+
+	/**
+	 * Returns the line of the last character of the text.
+	 * 
+	 * @return The line of the last character of the text.
+	 */
+	public int endLine() {
+		return line(end);
 	}
 
 	@Override
 	public String toString() {
-		return "[" + begLine + "." + begColumn + "--" + endLine + "." + endColumn + "]";
+		return "[" + line(beg) + "." + column(beg) + "--" + line(end) + "." + column(end) + "]";
 	}
 
 	@Override
@@ -111,12 +218,12 @@ public class Position implements Loggable {
 		if (logger == null)
 			return;
 		logger.begElement("position");
-		logger.addAttribute("begsource", begFileName);
-		logger.addAttribute("begLine", Integer.toString(begLine));
-		logger.addAttribute("begColumn", Integer.toString(begColumn));
-		logger.addAttribute("endsource", endFileName);
-		logger.addAttribute("endLine", Integer.toString(endLine));
-		logger.addAttribute("endColumn", Integer.toString(endColumn));
+		logger.addAttribute("begsource", fileName(beg));
+		logger.addAttribute("begLine", Integer.toString(line(beg)));
+		logger.addAttribute("begColumn", Integer.toString(column(beg)));
+		logger.addAttribute("endsource", fileName(end));
+		logger.addAttribute("endLine", Integer.toString(line(end)));
+		logger.addAttribute("endColumn", Integer.toString(column(end)));
 		logger.endElement();
 	}
 
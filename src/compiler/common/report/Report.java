@@ -68,6 +68,14 @@ public class Report {
 		return numWarnings;
 	}
 
+	/**
+	 * Resets the number of warnings printed out so far (used between
+	 * compilations performed by the same process).
+	 */
+	public static void resetNumWarnings() {
+		numWarnings = 0;
+	}
+
 	/**
 	 * Prints out a warning message.
 	 * 
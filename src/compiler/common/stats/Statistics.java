@@ -0,0 +1,323 @@
+package compiler.common.stats;
+
+import compiler.common.report.InternalCompilerError;
+import compiler.common.report.Report;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EmptyStackException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compile time statistics: the wall time and the allocated memory of every
+ * (nested) step of the compilation, the live heap at the beginning of every
+ * phase and the sizes of the intermediate representations.
+ *
+ * <p>
+ * If statistics have not been requested, all methods but
+ * {@link #isEnabled() isEnabled} do nothing.
+ * </p>
+ */
+public class Statistics {
+
+	/** The name of the generated statistics file. */
+	private final String jsonFileName;
+
+	/** The name of the source file. */
+	private final String srcFileName;
+
+	/** The number of workers used by the back end. */
+	private final int jobs;
+
+	/** Whether statistics are collected at all. */
+	private final boolean enabled;
+
+	/** The bean measuring allocated memory (or <code>null</code> if unsupported). */
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	/** Memory allocated by the workers of the back end. */
+	private final AtomicLong workerAllocatedBytes = new AtomicLong();
+
+	/** The top-level steps, i.e., the phases. */
+	private final ArrayList<Step> phases = new ArrayList<>();
+
+	/** The steps currently being measured. */
+	private final Stack<Step> steps = new Stack<>();
+
+	/** The counters describing the entire program. */
+	private final LinkedHashMap<String, Long> counters = new LinkedHashMap<>();
+
+	/** The counters describing individual code fragments (indexed by labels). */
+	private final LinkedHashMap<String, LinkedHashMap<String, Long>> fragments = new LinkedHashMap<>();
+
+	/**
+	 * Constructs new statistics.
+	 *
+	 * @param jsonFileName
+	 *            The name of the statistics file (or <code>null</code> if
+	 *            statistics have not been requested).
+	 * @param srcFileName
+	 *            The name of the source file.
+	 * @param jobs
+	 *            The number of workers used by the back end.
+	 */
+	public Statistics(String jsonFileName, String srcFileName, int jobs) {
+		this.jsonFileName = jsonFileName;
+		this.srcFileName = srcFileName;
+		this.jobs = jobs;
+		this.enabled = jsonFileName != null;
+
+		com.sun.management.ThreadMXBean threadBean = null;
+		if (enabled && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (threadBean.isThreadAllocatedMemorySupported()) {
+				threadBean.setThreadAllocatedMemoryEnabled(true);
+			} else {
+				threadBean = null;
+			}
+		}
+		this.threadBean = threadBean;
+	}
+
+	/**
+	 * Tells whether statistics are being collected.
+	 *
+	 * @return <code>true</code> if statistics are being collected.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts measuring a new step. The new step is nested inside the step
+	 * currently being measured (if any).
+	 *
+	 * @param name
+	 *            The name of the step.
+	 */
+	public void begin(String name) {
+		if (!enabled)
+			return;
+		Step step = new Step(name);
+		if (steps.empty()) {
+			phases.add(step);
+			step.liveHeapBytes = liveHeapBytes();
+		} else {
+			steps.peek().steps.add(step);
+		}
+		steps.push(step);
+		step.allocatedBytes = allocatedBytes();
+		step.wallTime = System.nanoTime();
+	}
+
+	/**
+	 * Finishes measuring the current step.
+	 */
+	public void end() {
+		if (!enabled)
+			return;
+		try {
+			finish(steps.pop());
+		} catch (EmptyStackException ex) {
+			throw new InternalCompilerError();
+		}
+	}
+
+	private void finish(Step step) {
+		step.wallTime = System.nanoTime() - step.wallTime;
+		step.allocatedBytes = allocatedBytes() - step.allocatedBytes;
+	}
+
+	/**
+	 * Returns the number of bytes of the heap used by live objects, i.e., used
+	 * after a full garbage collection. As the garbage collection takes place
+	 * before a phase starts being measured, it does not affect the wall times
+	 * of the phases.
+	 *
+	 * @return The number of bytes used by live objects.
+	 */
+	private static long liveHeapBytes() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 *
+	 * @return The number of allocated bytes (or -1 if it cannot be measured).
+	 */
+	public long threadAllocatedBytes() {
+		if (threadBean == null)
+			return -1;
+		return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Accounts for memory allocated by a worker thread of the back end.
+	 *
+	 * @param bytes
+	 *            The number of bytes allocated by the worker.
+	 */
+	public void addWorkerAllocatedBytes(long bytes) {
+		if (!enabled || threadBean == null)
+			return;
+		workerAllocatedBytes.addAndGet(bytes);
+	}
+
+	private long allocatedBytes() {
+		if (threadBean == null)
+			return -1;
+		return threadAllocatedBytes() + workerAllocatedBytes.get();
+	}
+
+	/**
+	 * Adds a value to a counter describing the entire program.
+	 *
+	 * @param counter
+	 *            The name of the counter.
+	 * @param value
+	 *            The value to be added.
+	 */
+	public void count(String counter, long value) {
+		if (!enabled)
+			return;
+		counters.merge(counter, value, Long::sum);
+	}
+
+	/**
+	 * Adds a value to a counter describing a code fragment. The value is
+	 * added to the counter of the same name describing the entire program as
+	 * well.
+	 *
+	 * @param fragment
+	 *            The label of the code fragment.
+	 * @param counter
+	 *            The name of the counter.
+	 * @param value
+	 *            The value to be added.
+	 */
+	public void count(String fragment, String counter, long value) {
+		if (!enabled)
+			return;
+		fragments.computeIfAbsent(fragment, label -> new LinkedHashMap<>()).merge(counter, value, Long::sum);
+		count(counter, value);
+	}
+
+	/**
+	 * Writes the statistics collected so far to the statistics file. The steps
+	 * still being measured, i.e., those interrupted by an error, are finished
+	 * first and marked as not completed.
+	 */
+	public void write() {
+		if (!enabled)
+			return;
+		while (!steps.empty()) {
+			Step step = steps.pop();
+			finish(step);
+			step.completed = false;
+		}
+		try (PrintWriter writer = new PrintWriter(jsonFileName, "UTF-8")) {
+			writer.println("{");
+			writer.println("\t\"file\": " + string(srcFileName) + ",");
+			writer.println("\t\"jobs\": " + jobs + ",");
+			writer.print("\t\"phases\": ");
+			writeSteps(writer, phases, "\t");
+			writer.println(",");
+			writer.print("\t\"counters\": ");
+			writeCounters(writer, counters);
+			writer.println(",");
+			writer.println("\t\"fragments\": {");
+			int f = 0;
+			for (Map.Entry<String, LinkedHashMap<String, Long>> fragment : fragments.entrySet()) {
+				writer.print("\t\t" + string(fragment.getKey()) + ": ");
+				writeCounters(writer, fragment.getValue());
+				writer.println(++f < fragments.size() ? "," : "");
+			}
+			writer.println("\t}");
+			writer.println("}");
+		} catch (FileNotFoundException | UnsupportedEncodingException ex) {
+			Report.warning("Cannot generate statistics file '" + jsonFileName + "'.");
+		}
+	}
+
+	private void writeSteps(PrintWriter writer, ArrayList<Step> steps, String indent) {
+		if (steps.isEmpty()) {
+			writer.print("[]");
+			return;
+		}
+		writer.println("[");
+		for (int s = 0; s < steps.size(); s++) {
+			Step step = steps.get(s);
+			writer.print(indent + "\t{ \"name\": " + string(step.name));
+			writer.print(", \"wall_ns\": " + step.wallTime);
+			writer.print(", \"allocated_bytes\": " + step.allocatedBytes);
+			if (step.liveHeapBytes >= 0) {
+				writer.print(", \"live_heap_bytes\": " + step.liveHeapBytes);
+			}
+			if (!step.completed) {
+				writer.print(", \"completed\": false");
+			}
+			if (!step.steps.isEmpty()) {
+				writer.print(", \"steps\": ");
+				writeSteps(writer, step.steps, indent + "\t");
+			}
+			writer.println(s + 1 < steps.size() ? " }," : " }");
+		}
+		writer.print(indent + "]");
+	}
+
+	private void writeCounters(PrintWriter writer, LinkedHashMap<String, Long> counters) {
+		writer.print("{");
+		int c = 0;
+		for (Map.Entry<String, Long> counter : counters.entrySet()) {
+			writer.print((c++ == 0 ? " " : ", ") + string(counter.getKey()) + ": " + counter.getValue());
+		}
+		writer.print(" }");
+	}
+
+	private static String string(String value) {
+		StringBuilder json = new StringBuilder("\"");
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+
+	/**
+	 * A measured step of the compilation.
+	 */
+	private static class Step {
+
+		final String name;
+
+		long wallTime;
+
+		long allocatedBytes;
+
+		/** The live heap at the beginning of the step (or -1 if not measured). */
+		long liveHeapBytes = -1;
+
+		/** Whether the step has been finished by {@link Statistics#end()}. */
+		boolean completed = true;
+
+		final ArrayList<Step> steps = new ArrayList<>();
+
+		Step(String name) {
+			this.name = name;
+		}
+
+	}
+
+}
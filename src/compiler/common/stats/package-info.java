@@ -0,0 +1,11 @@
+/**
+ * Compile time statistics.
+ * 
+ * <p>
+ * If requested by option <code>--stats=json</code>, the time and memory spent
+ * in every phase of the compiler (and in the steps the phases consist of) and
+ * the sizes of the intermediate representations are collected by an object of
+ * class {@link compiler.common.stats.Statistics} and written to a JSON file.
+ * </p>
+ */
+package compiler.common.stats;
@@ -6,4 +6,13 @@ public interface AST {
 		
 	public abstract void accept(Visitor visitor);
 
+	/**
+	 * Returns the ID of the node, which is unique within the program and used
+	 * to index the node's attributes (see
+	 * {@link compiler.data.ast.attr.Attribute}).
+	 * 
+	 * @return The ID of the node.
+	 */
+	public abstract int id();
+
 }
\ No newline at end of file
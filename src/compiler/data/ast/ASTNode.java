@@ -7,8 +7,39 @@ import compiler.common.report.Position;
  */
 public abstract class ASTNode extends Position implements AST, Typeable {
 
+	/** The number of AST nodes constructed since the last reset. */
+	private static int numIds = 0;
+
+	/** The ID of this node. */
+	private final int id;
+
 	public ASTNode(Position position) {
 		super(position);
+		this.id = numIds++;
+	}
+
+	@Override
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * Returns the number of AST nodes constructed since the last reset, i.e.,
+	 * an upper bound of IDs of AST nodes.
+	 * 
+	 * @return The number of AST nodes.
+	 */
+	public static int numIds() {
+		return numIds;
+	}
+
+	/**
+	 * Restarts numbering AST nodes at 0 (called by the syntax analyzer before
+	 * the abstract syntax tree is built, so that the IDs of its nodes are
+	 * dense).
+	 */
+	public static void resetIds() {
+		numIds = 0;
 	}
 
 }
@@ -8,8 +8,8 @@ import compiler.data.ast.code.Visitor;
  */
 public class CompDecl extends VarDecl {
 
-	public CompDecl(Position position, String name, Type type) {
-		super(position, name, type);
+	public CompDecl(Position position, int nameId, Type type) {
+		super(position, nameId, type);
 	}
 
 	@Override
@@ -8,8 +8,8 @@ import compiler.data.ast.code.Visitor;
  */
 public class CompName extends VarName {
 
-	public CompName(Position position, String name) {
-		super(position, name);
+	public CompName(Position position, int nameId) {
+		super(position, nameId);
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package compiler.data.ast;
 
+import compiler.common.names.Names;
 import compiler.common.report.Position;
 
 /**
@@ -9,11 +10,15 @@ public abstract class Decl extends ASTNode {
 
 	public final String name;
 
+	/** The ID of the name (or -1 if there is no name). */
+	public final int nameId;
+
 	public final Type type;
 
-	public Decl(Position position, String name, Type type) {
+	public Decl(Position position, int nameId, Type type) {
 		super(position);
-		this.name = name;
+		this.name = (nameId < 0) ? null : Names.name(nameId);
+		this.nameId = nameId;
 		this.type = type;
 	}
 
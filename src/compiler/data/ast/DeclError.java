@@ -11,7 +11,7 @@ import compiler.data.ast.code.Visitor;
 public class DeclError extends Decl {
 
 	public DeclError() {
-		super(new Position("", 0, 0), null, null);
+		super(new Position("", 0, 0), -1, null);
 	}
 
 	@Override
@@ -8,5 +8,12 @@ package compiler.data.ast;
 public interface Declarable extends AST {
 
 	public String name();
+
+	/**
+	 * Returns the ID of the name (see {@link compiler.common.names.Names}).
+	 * 
+	 * @return The ID of the name.
+	 */
+	public int nameId();
 	
 }
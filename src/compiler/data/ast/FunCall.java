@@ -1,5 +1,6 @@
 package compiler.data.ast;
 
+import compiler.common.names.Names;
 import compiler.common.report.Position;
 import compiler.data.ast.code.Visitor;
 
@@ -10,13 +11,13 @@ import java.util.LinkedList;
  */
 public class FunCall extends Expr implements Declarable {
 
-	private String name;
+	private final int nameId;
 	
 	public final Expr[] args;
 
-	public FunCall(Position position, String name, LinkedList<Expr> args) {
+	public FunCall(Position position, int nameId, LinkedList<Expr> args) {
 		super(position);
-		this.name = name;
+		this.nameId = nameId;
 		this.args = new Expr[args.size()];
 		for (int a = 0; a < args.size(); a++)
 			this.args[a] = args.get(a);
@@ -32,7 +33,12 @@ public class FunCall extends Expr implements Declarable {
 
 	@Override
 	public String name() {
-		return name;
+		return Names.name(nameId);
+	}
+
+	@Override
+	public int nameId() {
+		return nameId;
 	}
 
 	@Override
@@ -12,8 +12,8 @@ public class FunDecl extends Decl {
 
 	public final ParDecl[] pars;
 	
-	public FunDecl(Position position, String name, LinkedList<ParDecl> pars, Type type) {
-		super(position, name, type);
+	public FunDecl(Position position, int nameId, LinkedList<ParDecl> pars, Type type) {
+		super(position, nameId, type);
 		this.pars = new ParDecl[pars.size()];
 		for (int p = 0; p < pars.size(); p++)
 			this.pars[p] = pars.get(p);
@@ -12,8 +12,8 @@ public class FunDef extends FunDecl {
 
 	public final Expr body;
 
-	public FunDef(Position position, String name, LinkedList<ParDecl> pars, Type type, Expr body) {
-		super(position, name, pars, type);
+	public FunDef(Position position, int nameId, LinkedList<ParDecl> pars, Type type, Expr body) {
+		super(position, nameId, pars, type);
 		this.body = body;
 	}
 
@@ -8,8 +8,8 @@ import compiler.data.ast.code.Visitor;
  */
 public class ParDecl extends VarDecl {
 
-	public ParDecl(Position position, String name, Type type) {
-		super(position, name, type);
+	public ParDecl(Position position, int nameId, Type type) {
+		super(position, nameId, type);
 	}
 
 	@Override
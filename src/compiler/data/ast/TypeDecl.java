@@ -8,8 +8,8 @@ import compiler.data.ast.code.Visitor;
  */
 public class TypeDecl extends Decl {
 
-	public TypeDecl(Position position, String name, Type type) {
-		super(position, name, type);
+	public TypeDecl(Position position, int nameId, Type type) {
+		super(position, nameId, type);
 	}
 
 	@Override
@@ -8,8 +8,8 @@ import compiler.data.ast.code.Visitor;
  */
 public class VarDecl extends Decl {
 
-	public VarDecl(Position position, String name, Type type) {
-		super(position, name, type);
+	public VarDecl(Position position, int nameId, Type type) {
+		super(position, nameId, type);
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package compiler.data.ast;
 
+import compiler.common.names.Names;
 import compiler.common.report.Position;
 import compiler.data.ast.code.Visitor;
 
@@ -8,16 +9,21 @@ import compiler.data.ast.code.Visitor;
  */
 public class VarName extends Expr implements Declarable {
 
-	private final String name;
+	private final int nameId;
 
-	public VarName(Position position, String name) {
+	public VarName(Position position, int nameId) {
 		super(position);
-		this.name = name;
+		this.nameId = nameId;
 	}
 
 	@Override
 	public String name() {
-		return name;
+		return Names.name(nameId);
+	}
+
+	@Override
+	public int nameId() {
+		return nameId;
 	}
 
 	@Override
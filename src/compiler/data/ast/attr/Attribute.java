@@ -3,7 +3,7 @@ package compiler.data.ast.attr;
 import compiler.common.report.InternalCompilerError;
 import compiler.data.ast.AST;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 /**
  * AST node's attribute.
@@ -20,12 +20,25 @@ import java.util.HashMap;
  * adding new attributes to AST without changing AST hierarchy.
  * </p>
  * 
+ * <p>
+ * As AST nodes are numbered densely by the syntax analyzer, the values are
+ * kept in an array indexed by IDs of AST nodes (see
+ * {@link compiler.data.ast.AST#id()}). Values of different AST nodes can be
+ * set concurrently only once the array has been made large enough for all of
+ * them (see {@link #ensureCapacity(int)}). Hence the function definitions
+ * are checked concurrently (see
+ * {@link compiler.phase.seman.EvalFunDefs}) only once all attributes the
+ * type checker and the memory checker set, i.e., the declarations (of
+ * record components), the types and the memory flags, have been made large
+ * enough for all AST nodes.
+ * </p>
+ * 
  * @author sliva
  */
 public class Attribute<Node extends AST, Value> {
 
-	/** A mapping from AST nodes to attribute values. */
-	private HashMap<Node, Value> mapping = new HashMap<>();
+	/** The attribute values indexed by IDs of AST nodes. */
+	private Object[] values = new Object[0];
 
 	/**
 	 * Sets a value of the AST nodes' attribute (if it has not been set
@@ -41,7 +54,10 @@ public class Attribute<Node extends AST, Value> {
 	 */
 	public void set(Node node, Value value) {
 		if (value == null) throw new InternalCompilerError();
-		mapping.put(node, value);
+		int id = node.id();
+		if (id >= values.length)
+			values = Arrays.copyOf(values, capacity(values.length, id));
+		values[id] = value;
 	}
 
 	/**
@@ -52,8 +68,36 @@ public class Attribute<Node extends AST, Value> {
 	 * @return AST node's attribute value or <code>null</code> if the value has
 	 *         not yet been set.
 	 */
+	@SuppressWarnings("unchecked")
 	public Value get(Node node) {
-		return mapping.get(node);
+		int id = node.id();
+		return id < values.length ? (Value) values[id] : null;
+	}
+
+	/**
+	 * Makes room for the values of all AST nodes with IDs below the specified
+	 * bound, so that setting them never replaces the array of values.
+	 * 
+	 * @param numIds
+	 *            The upper bound of IDs of AST nodes.
+	 */
+	public void ensureCapacity(int numIds) {
+		if (numIds > values.length)
+			values = Arrays.copyOf(values, numIds);
+	}
+
+	/**
+	 * Returns the new length of an array of values that must include the
+	 * specified ID.
+	 * 
+	 * @param length
+	 *            The current length of the array.
+	 * @param id
+	 *            The ID.
+	 * @return The new length of the array.
+	 */
+	static int capacity(int length, int id) {
+		return Math.max(Math.max(2 * length, id + 1), 64);
 	}
 
 }
@@ -6,6 +6,7 @@ import compiler.data.frg.Fragment;
 import compiler.data.frm.Frame;
 import compiler.data.imc.IMC;
 import compiler.data.typ.Typ;
+import compiler.data.typ.TypLayout;
 
 /**
  * @author sliva
@@ -40,12 +41,17 @@ public class Attributes {
 	 */
 	public Attribute<Typeable, Typ> typAttr = new Attribute<>();
 
+	/**
+	 * The memory layout of the types of the program (computed once per type).
+	 */
+	public TypLayout typLayout = new TypLayout();
+
 	/**
 	 * A flag signaling whether an expression evaluates to an address (and
 	 * provided it is of assignable type can therefore stand on the left side of
 	 * an assignment).
 	 */
-	public Attribute<Expr, Boolean> memAttr = new Attribute<>();
+	public Attribute<Expr, Boolean> memAttr = new BooleanAttribute<>();
 
 	/**
 	 * A function's stack frame.
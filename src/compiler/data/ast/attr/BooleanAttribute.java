@@ -0,0 +1,47 @@
+package compiler.data.ast.attr;
+
+import compiler.common.report.InternalCompilerError;
+import compiler.data.ast.AST;
+
+import java.util.Arrays;
+
+/**
+ * AST node's boolean attribute.
+ * 
+ * <p>
+ * The values are kept in an array of bytes indexed by IDs of AST nodes rather
+ * than as references to {@link Boolean} objects.
+ * </p>
+ */
+public class BooleanAttribute<Node extends AST> extends Attribute<Node, Boolean> {
+
+	/** The encodings of an unset attribute, <code>false</code> and <code>true</code>. */
+	private static final byte UNSET = 0, FALSE = 1, TRUE = 2;
+
+	/** The attribute values indexed by IDs of AST nodes. */
+	private byte[] values = new byte[0];
+
+	@Override
+	public void set(Node node, Boolean value) {
+		if (value == null) throw new InternalCompilerError();
+		int id = node.id();
+		if (id >= values.length)
+			values = Arrays.copyOf(values, capacity(values.length, id));
+		values[id] = value ? TRUE : FALSE;
+	}
+
+	@Override
+	public void ensureCapacity(int numIds) {
+		if (numIds > values.length)
+			values = Arrays.copyOf(values, numIds);
+	}
+
+	@Override
+	public Boolean get(Node node) {
+		int id = node.id();
+		if (id >= values.length || values[id] == UNSET)
+			return null;
+		return values[id] == TRUE;
+	}
+
+}
@@ -0,0 +1,277 @@
+package compiler.data.ast.code;
+
+import compiler.common.report.CompilerError;
+import compiler.data.ast.*;
+
+/**
+ * A visitor running several attribute evaluators in a single traversal of the
+ * abstract syntax tree.
+ *
+ * <p>
+ * At each node, the pre-visitors of the evaluators are called in the order
+ * the evaluators are listed, then the subtrees of the node are visited, and
+ * finally the evaluators themselves are called in the same order (see
+ * {@link FusibleVisitor}). Hence an evaluator may use the attributes its
+ * predecessors compute for the node and for the entire subtree of the node,
+ * but not the attributes of the nodes visited later.
+ * </p>
+ *
+ * <p>
+ * The subtrees are visited in the same order as by {@link FullVisitor} except
+ * that the declarations of a where expression are visited before its
+ * expression, and the type of a function is visited before its parameters.
+ * </p>
+ *
+ * <p>
+ * If an evaluator signals an error, it is not called any more and neither are
+ * the evaluators following it (as they might depend on it), but the
+ * evaluators preceding it finish the traversal. The error of the first
+ * evaluator that failed is thrown at the end, just as if the evaluators were
+ * run one after another.
+ * </p>
+ */
+public class FusedVisitor implements Visitor {
+
+	/** The evaluators. */
+	private final FusibleVisitor[] evaluators;
+
+	/** The pre-visitors of the evaluators. */
+	private final Visitor[] preVisitors;
+
+	/** The number of evaluators that have not failed. */
+	private int numActive;
+
+	/** The error of the last evaluator still active (or <code>null</code> if none has failed). */
+	private CompilerError error;
+
+	/**
+	 * Constructs a new fused visitor.
+	 *
+	 * @param evaluators
+	 *            The evaluators in the order they are run at each node.
+	 */
+	public FusedVisitor(FusibleVisitor... evaluators) {
+		this.evaluators = evaluators;
+		this.preVisitors = new Visitor[evaluators.length];
+		for (int v = 0; v < evaluators.length; v++) {
+			Visitor preVisitor = evaluators[v].preVisitor();
+			preVisitors[v] = preVisitor == null ? new NullVisitor() : preVisitor;
+		}
+		this.numActive = evaluators.length;
+		this.error = null;
+	}
+
+	/**
+	 * Calls the pre-visitors of the active evaluators at a node.
+	 */
+	private void pre(AST node) {
+		for (int v = 0; v < numActive; v++) {
+			try {
+				node.accept(preVisitors[v]);
+			} catch (CompilerError error) {
+				fail(v, error);
+			}
+		}
+	}
+
+	/**
+	 * Calls the active evaluators at a node.
+	 */
+	private void post(AST node) {
+		for (int v = 0; v < numActive; v++) {
+			try {
+				node.accept(evaluators[v]);
+			} catch (CompilerError error) {
+				fail(v, error);
+			}
+		}
+	}
+
+	/**
+	 * Stops calling an evaluator that failed and all its successors.
+	 */
+	private void fail(int evaluator, CompilerError error) {
+		numActive = evaluator;
+		this.error = error;
+	}
+
+	public void visit(ArrType arrType) {
+		pre(arrType);
+		arrType.size.accept(this);
+		arrType.elemType.accept(this);
+		post(arrType);
+	}
+
+	public void visit(AtomExpr atomExpr) {
+		pre(atomExpr);
+		post(atomExpr);
+	}
+
+	public void visit(AtomType atomType) {
+		pre(atomType);
+		post(atomType);
+	}
+
+	public void visit(BinExpr binExpr) {
+		pre(binExpr);
+		binExpr.fstExpr.accept(this);
+		binExpr.sndExpr.accept(this);
+		post(binExpr);
+	}
+
+	public void visit(CastExpr castExpr) {
+		pre(castExpr);
+		castExpr.type.accept(this);
+		castExpr.expr.accept(this);
+		post(castExpr);
+	}
+
+	public void visit(CompDecl compDecl) {
+		pre(compDecl);
+		compDecl.type.accept(this);
+		post(compDecl);
+	}
+
+	public void visit(CompName compName) {
+		pre(compName);
+		post(compName);
+	}
+
+	public void visit(DeclError declError) {
+		pre(declError);
+		post(declError);
+	}
+
+	public void visit(Exprs exprs) {
+		pre(exprs);
+		for (int e = 0; e < exprs.numExprs(); e++)
+			exprs.expr(e).accept(this);
+		post(exprs);
+	}
+
+	public void visit(ExprError exprError) {
+		pre(exprError);
+		post(exprError);
+	}
+
+	public void visit(ForExpr forExpr) {
+		pre(forExpr);
+		forExpr.var.accept(this);
+		forExpr.loBound.accept(this);
+		forExpr.hiBound.accept(this);
+		forExpr.body.accept(this);
+		post(forExpr);
+	}
+
+	public void visit(FunCall funCall) {
+		pre(funCall);
+		for (int a = 0; a < funCall.numArgs(); a++)
+			funCall.arg(a).accept(this);
+		post(funCall);
+	}
+
+	public void visit(FunDecl funDecl) {
+		pre(funDecl);
+		funDecl.type.accept(this);
+		for (int p = 0; p < funDecl.numPars(); p++)
+			funDecl.par(p).accept(this);
+		post(funDecl);
+	}
+
+	public void visit(FunDef funDef) {
+		pre(funDef);
+		funDef.type.accept(this);
+		for (int p = 0; p < funDef.numPars(); p++)
+			funDef.par(p).accept(this);
+		funDef.body.accept(this);
+		post(funDef);
+	}
+
+	public void visit(IfExpr ifExpr) {
+		pre(ifExpr);
+		ifExpr.cond.accept(this);
+		ifExpr.thenExpr.accept(this);
+		ifExpr.elseExpr.accept(this);
+		post(ifExpr);
+	}
+
+	public void visit(ParDecl parDecl) {
+		pre(parDecl);
+		parDecl.type.accept(this);
+		post(parDecl);
+	}
+
+	/**
+	 * Runs the evaluators on the entire program and throws the error of the
+	 * first evaluator that failed (if any).
+	 */
+	public void visit(Program program) {
+		pre(program);
+		program.expr.accept(this);
+		post(program);
+		if (error != null)
+			throw error;
+	}
+
+	public void visit(PtrType ptrType) {
+		pre(ptrType);
+		ptrType.baseType.accept(this);
+		post(ptrType);
+	}
+
+	public void visit(RecType recType) {
+		pre(recType);
+		for (int c = 0; c < recType.numComps(); c++)
+			recType.comp(c).accept(this);
+		post(recType);
+	}
+
+	public void visit(TypeDecl typDecl) {
+		pre(typDecl);
+		typDecl.type.accept(this);
+		post(typDecl);
+	}
+
+	public void visit(TypeError typeError) {
+		pre(typeError);
+		post(typeError);
+	}
+
+	public void visit(TypeName typeName) {
+		pre(typeName);
+		post(typeName);
+	}
+
+	public void visit(UnExpr unExpr) {
+		pre(unExpr);
+		unExpr.subExpr.accept(this);
+		post(unExpr);
+	}
+
+	public void visit(VarDecl varDecl) {
+		pre(varDecl);
+		varDecl.type.accept(this);
+		post(varDecl);
+	}
+
+	public void visit(VarName varName) {
+		pre(varName);
+		post(varName);
+	}
+
+	public void visit(WhereExpr whereExpr) {
+		pre(whereExpr);
+		for (int d = 0; d < whereExpr.numDecls(); d++)
+			whereExpr.decl(d).accept(this);
+		whereExpr.expr.accept(this);
+		post(whereExpr);
+	}
+
+	public void visit(WhileExpr whileExpr) {
+		pre(whileExpr);
+		whileExpr.cond.accept(this);
+		whileExpr.body.accept(this);
+		post(whileExpr);
+	}
+
+}
@@ -0,0 +1,34 @@
+package compiler.data.ast.code;
+
+/**
+ * An attribute evaluator that can be fused with other evaluators into a
+ * single traversal of the abstract syntax tree (see {@link FusedVisitor}).
+ *
+ * <p>
+ * A fusible visitor does not traverse the tree on its own: its visiting
+ * methods are called in post-order, i.e., once the subtrees of a node have
+ * been visited, and should compute the attributes of that node only. The
+ * work that must be done before the subtrees of a node are visited (entering
+ * a scope, for instance) is done by the visiting methods of its
+ * {@link #preVisitor() pre-visitor}.
+ * </p>
+ *
+ * <p>
+ * As all visiting methods of this class do nothing, a fusible visitor visiting
+ * a tree directly does nothing either; it must be run by a fused visitor, on
+ * its own or together with other fusible visitors.
+ * </p>
+ */
+public abstract class FusibleVisitor extends NullVisitor {
+
+	/**
+	 * Returns the visitor called at each node before its subtrees are visited.
+	 *
+	 * @return The pre-visitor (or <code>null</code> if nothing is done before
+	 *         the subtrees are visited).
+	 */
+	public Visitor preVisitor() {
+		return null;
+	}
+
+}
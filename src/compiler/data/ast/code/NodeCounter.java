@@ -0,0 +1,157 @@
+package compiler.data.ast.code;
+
+import compiler.data.ast.*;
+
+/**
+ * A visitor that counts the nodes of the abstract syntax tree.
+ */
+public class NodeCounter extends FullVisitor {
+
+	/** The number of nodes visited so far. */
+	private long numNodes = 0;
+
+	/**
+	 * Returns the number of nodes visited so far.
+	 * 
+	 * @return The number of nodes visited so far.
+	 */
+	public long numNodes() {
+		return numNodes;
+	}
+
+	public void visit(ArrType arrType) {
+		numNodes++;
+		super.visit(arrType);
+	}
+
+	public void visit(AtomExpr atomExpr) {
+		numNodes++;
+		super.visit(atomExpr);
+	}
+
+	public void visit(AtomType atomType) {
+		numNodes++;
+		super.visit(atomType);
+	}
+
+	public void visit(BinExpr binExpr) {
+		numNodes++;
+		super.visit(binExpr);
+	}
+
+	public void visit(CastExpr castExpr) {
+		numNodes++;
+		super.visit(castExpr);
+	}
+
+	public void visit(CompDecl compDecl) {
+		numNodes++;
+		super.visit(compDecl);
+	}
+
+	public void visit(CompName compName) {
+		numNodes++;
+		super.visit(compName);
+	}
+
+	public void visit(DeclError declError) {
+		numNodes++;
+		super.visit(declError);
+	}
+
+	public void visit(Exprs exprs) {
+		numNodes++;
+		super.visit(exprs);
+	}
+
+	public void visit(ExprError exprError) {
+		numNodes++;
+		super.visit(exprError);
+	}
+
+	public void visit(ForExpr forExpr) {
+		numNodes++;
+		super.visit(forExpr);
+	}
+
+	public void visit(FunCall funCall) {
+		numNodes++;
+		super.visit(funCall);
+	}
+
+	public void visit(FunDecl funDecl) {
+		numNodes++;
+		super.visit(funDecl);
+	}
+
+	public void visit(FunDef funDef) {
+		numNodes++;
+		super.visit(funDef);
+	}
+
+	public void visit(IfExpr ifExpr) {
+		numNodes++;
+		super.visit(ifExpr);
+	}
+
+	public void visit(ParDecl parDecl) {
+		numNodes++;
+		super.visit(parDecl);
+	}
+
+	public void visit(Program program) {
+		numNodes++;
+		super.visit(program);
+	}
+
+	public void visit(PtrType ptrType) {
+		numNodes++;
+		super.visit(ptrType);
+	}
+
+	public void visit(RecType recType) {
+		numNodes++;
+		super.visit(recType);
+	}
+
+	public void visit(TypeDecl typDecl) {
+		numNodes++;
+		super.visit(typDecl);
+	}
+
+	public void visit(TypeError typeError) {
+		numNodes++;
+		super.visit(typeError);
+	}
+
+	public void visit(TypeName typeName) {
+		numNodes++;
+		super.visit(typeName);
+	}
+
+	public void visit(UnExpr unExpr) {
+		numNodes++;
+		super.visit(unExpr);
+	}
+
+	public void visit(VarDecl varDecl) {
+		numNodes++;
+		super.visit(varDecl);
+	}
+
+	public void visit(VarName varName) {
+		numNodes++;
+		super.visit(varName);
+	}
+
+	public void visit(WhereExpr whereExpr) {
+		numNodes++;
+		super.visit(whereExpr);
+	}
+
+	public void visit(WhileExpr whileExpr) {
+		numNodes++;
+		super.visit(whileExpr);
+	}
+
+}
@@ -55,6 +55,7 @@ public class InstructionSet {
 
 	public void countRegisters() {
 		this.registers = new HashSet<>();
+		this.mnemonicCount = 0;
 
 		for (Instruction i : instrs) {
 			if (i instanceof Mnemonic) {
@@ -78,15 +79,15 @@ public class InstructionSet {
 		return sb.toString();
 	}
 
-	public void spillVirtualRegister(VirtualRegister reg, long spillLoc) {
+	public void spillVirtualRegister(VirtualRegister reg, long spillLoc, VirtualRegister.Generator registers) {
 		ListIterator<Instruction> it = instrs.listIterator();
 		while (it.hasNext()) {
 			Instruction i = it.next();
 			if (i.usesVirtualRegister(reg)) {
 				it.remove();
 				Mnemonic m = (Mnemonic) i;
-				VirtualRegister newreg = VirtualRegister.create();
-				VirtualRegister addreg = VirtualRegister.create();
+				VirtualRegister newreg = registers.create();
+				VirtualRegister addreg = registers.create();
 				Mnemonic newM = m.getCopy(reg, newreg);
 
 				boolean isSrc = newM.isSrc(newreg);
@@ -16,7 +16,8 @@ public class Label extends Instruction {
 
 	private static HashMap<String, Label> labels = new HashMap<>();
 
-	public static Label get(String label) {
+	//Labels are shared by all fragments, which may be generated concurrently
+	public static synchronized Label get(String label) {
 		Label laObj = labels.get(label);
 		if (laObj == null) {
 			laObj = new Label(label);
@@ -25,6 +26,11 @@ public class Label extends Instruction {
 		return laObj;
 	}
 
+	//Labels are renamed in place by InstructionSet.joinLabels, so they must not outlive a compilation
+	public static synchronized void reset() {
+		labels.clear();
+	}
+
 	@Override
 	public String toString() {
 		return label + "\t";
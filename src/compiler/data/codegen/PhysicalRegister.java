@@ -21,7 +21,7 @@ public class PhysicalRegister extends Register {
 		return get((int)name);
 	}
 
-	public static PhysicalRegister get(int name){
+	public static synchronized PhysicalRegister get(int name){
 		if(name >= RegisterAlloc.physicalRegisters){
 			throw new InternalCompilerError();
 		}
@@ -34,6 +34,10 @@ public class PhysicalRegister extends Register {
 		return pr;
 	}
 
+	public static synchronized void reset() {
+		registers.clear();
+	}
+
 	@Override
 	public String toString() {
 		return "$"+name;
@@ -9,31 +9,35 @@ public class VirtualRegister extends Register {
 	public long name;
 	public boolean moveRelated;
 
-	private VirtualRegister() {
-		this.name = genRegName();
+	private VirtualRegister(long name) {
+		this.name = name;
 	}
 
-	public static VirtualRegister create() {
-		return new VirtualRegister();
-	}
+	/**
+	 * Generates the virtual registers of a single code fragment. Register names
+	 * are only unique within a fragment, so fragments can be processed
+	 * independently of each other.
+	 */
+	public static class Generator {
 
-	//For preexisting temporaries, we need to make sure they end up in the same register
-	public static VirtualRegister create(int temporary) {
-		VirtualRegister reg = tempMap.get(temporary);
-		if (reg == null) {
-			reg = new VirtualRegister();
-			tempMap.put(temporary, reg);
-		}
-		return reg;
-	}
+		private long nameGenerator = 0;
 
-	private static long nameGenerator = 0;
+		private HashMap<Integer, VirtualRegister> tempMap = new HashMap<>();
 
-	public static long genRegName() {
-		return nameGenerator++;
-	}
+		public VirtualRegister create() {
+			return new VirtualRegister(nameGenerator++);
+		}
 
-	public static HashMap<Integer, VirtualRegister> tempMap = new HashMap<>();
+		//For preexisting temporaries, we need to make sure they end up in the same register
+		public VirtualRegister create(int temporary) {
+			VirtualRegister reg = tempMap.get(temporary);
+			if (reg == null) {
+				reg = create();
+				tempMap.put(temporary, reg);
+			}
+			return reg;
+		}
+	}
 
 	@Override
 	public String toString() {
@@ -1,6 +1,7 @@
 package compiler.data.frg;
 
 import compiler.common.logger.Logger;
+import compiler.data.codegen.VirtualRegister;
 import compiler.data.frm.Frame;
 import compiler.data.imc.IMCStmt;
 import compiler.data.imc.STMTS;
@@ -22,11 +23,17 @@ public class CodeFragment extends Fragment {
 	public final int RV;
 
 	/** The intermediate code. */
-	public final IMCStmt stmt;
+	public /*final*/ IMCStmt stmt;
 	
 	/** The linearized intermediate code. */
 	public /*final*/ STMTS linCode;
 
+	/** The virtual registers of the generated code. */
+	public final VirtualRegister.Generator registers = new VirtualRegister.Generator();
+
+	/** The number of anonymous label names generated for this fragment. */
+	private int labelNameCount = 0;
+
 	/**
 	 * Constucts a new code fragment.
 	 * 
@@ -48,6 +55,27 @@ public class CodeFragment extends Fragment {
 		this.linCode = (this.stmt == null) ? null : this.stmt.linCode();
 	}
 
+	/**
+	 * Returns a new anonymous label name local to this fragment. The name is
+	 * derived from the fragment's label and thus unique within the program,
+	 * so fragments can be processed independently of each other.
+	 * 
+	 * @return A new anonymous label name.
+	 */
+	public String newLabelName() {
+		labelNameCount++;
+		return "L" + label + "_" + labelNameCount;
+	}
+
+	/**
+	 * Releases the intermediate code (once the instructions have been
+	 * generated).
+	 */
+	public void releaseCode() {
+		stmt = null;
+		linCode = null;
+	}
+
 	@Override
 	public void toXML(Logger logger) {
 		logger.begElement("frg");
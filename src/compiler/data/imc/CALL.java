@@ -44,6 +44,25 @@ public class CALL extends IMCExpr {
 			this.widths[width] = widths.get(width);
 	}
 
+	/**
+	 * Constructs a new function call out of arrays of arguments and their
+	 * widths (which are not copied).
+	 * 
+	 * @param label
+	 *            The function's label.
+	 * @param args
+	 *            Arguments (including the static link).
+	 * @param widths
+	 *            The width of the arguments (in bytes).
+	 */
+	public CALL(String label, IMCExpr[] args, long[] widths) {
+		this.label = label;
+		if (args.length != widths.length)
+			throw new InternalCompilerError ();
+		this.args = args;
+		this.widths = widths;
+	}
+
 	/**
 	 * Returns the number of arguments.
 	 * 
@@ -12,4 +12,37 @@ public abstract class IMC {
 	
 	public abstract void toXML(Logger logger);
 	public abstract void visit(CodeGen phase);
+
+	/**
+	 * Returns the number of nodes of an intermediate code tree.
+	 * 
+	 * @param imc
+	 *            The root of the tree.
+	 * @return The number of nodes of the tree.
+	 */
+	public static long numNodes(IMC imc) {
+		long numNodes = 1;
+		if (imc instanceof BINOP) {
+			numNodes += numNodes(((BINOP) imc).expr1) + numNodes(((BINOP) imc).expr2);
+		} else if (imc instanceof CALL) {
+			for (IMCExpr arg : ((CALL) imc).args)
+				numNodes += numNodes(arg);
+		} else if (imc instanceof CJUMP) {
+			numNodes += numNodes(((CJUMP) imc).cond);
+		} else if (imc instanceof ESTMT) {
+			numNodes += numNodes(((ESTMT) imc).expr);
+		} else if (imc instanceof MEM) {
+			numNodes += numNodes(((MEM) imc).addr);
+		} else if (imc instanceof MOVE) {
+			numNodes += numNodes(((MOVE) imc).dst) + numNodes(((MOVE) imc).src);
+		} else if (imc instanceof SEXPR) {
+			numNodes += numNodes(((SEXPR) imc).stmt) + numNodes(((SEXPR) imc).expr);
+		} else if (imc instanceof STMTS) {
+			for (IMCStmt stmt : ((STMTS) imc).stmts)
+				numNodes += numNodes(stmt);
+		} else if (imc instanceof UNOP) {
+			numNodes += numNodes(((UNOP) imc).expr);
+		}
+		return numNodes;
+	}
 }
@@ -33,7 +33,7 @@ public class LABEL extends IMCStmt {
 	}
 
 	/** The number of all anonymous label names. */
-	private static int labelNameCount = 0;
+	public static int labelNameCount = 0;
 
 	/**
 	 * Returns a new anonymous label name.
@@ -44,6 +44,14 @@ public class LABEL extends IMCStmt {
 		labelNameCount++;
 		return "L" + labelNameCount;
 	}
+
+	/**
+	 * Resets the anonymous label name generator (used between compilations
+	 * performed by the same process).
+	 */
+	public static void resetLabelNames() {
+		labelNameCount = 0;
+	}
 	
 	@Override
 	public STMTS linCode() {
@@ -15,6 +15,14 @@ public class MOVE extends IMCStmt {
 
 	public static long idGen = 0;
 
+	/**
+	 * Resets the move id generator (used between compilations performed by
+	 * the same process).
+	 */
+	public static void resetIds() {
+		idGen = 0;
+	}
+
 	public final long id;
 
 	/** The destination. */
@@ -37,6 +45,23 @@ public class MOVE extends IMCStmt {
 		this.src = src;
 	}
 
+	/**
+	 * Constructs a data move with a given id (used when the intermediate code
+	 * is restored from a checkpoint).
+	 * 
+	 * @param id
+	 *            The id of this move.
+	 * @param dst
+	 *            The destination.
+	 * @param src
+	 *            The source.
+	 */
+	public MOVE(long id, IMCExpr dst, IMCExpr src) {
+		this.id = id;
+		this.dst = dst;
+		this.src = src;
+	}
+
 	@Override
 	public void toXML(Logger logger) {
 		logger.begElement("imc");
@@ -44,6 +44,14 @@ public class TEMP extends IMCExpr {
 		tempNameCount++;
 		return tempNameCount;
 	}
+
+	/**
+	 * Resets the temporary register name generator (used between compilations
+	 * performed by the same process).
+	 */
+	public static void resetTempNames() {
+		tempNameCount = 0;
+	}
 	
 	@Override
 	public SEXPR linCode() {
@@ -26,6 +26,9 @@ public class InterferenceGraph {
 	//For register allocation
 	private Stack<InterferenceGraph.Node> nodeStack;
 
+	//Registers that could not be colored by the last select
+	public LinkedList<VirtualRegister> spilled;
+
 	public InterferenceGraph(InstructionSet instrs, CodeFragment frag) {
 		this.frag = frag;
 		annotations = new HashMap<>();
@@ -45,6 +48,7 @@ public class InterferenceGraph {
 		checkInterferance();
 
 		nodeStack = new Stack<>();
+		spilled = new LinkedList<>();
 	}
 
 
@@ -129,6 +133,15 @@ public class InterferenceGraph {
 		return sb.toString();
 	}
 
+	public long numEdges() {
+		long numEdges = 0;
+		for (Node n : this.nodeMap.values()) {
+			numEdges += n.edges.size();
+		}
+		//Every edge is stored in both of its nodes
+		return numEdges / 2;
+	}
+
 	public void printInOuts() {
 		PrintWriter writer;
 		try {
@@ -214,7 +227,10 @@ public class InterferenceGraph {
 
 		@Override
 		public String toString() {
-			return reg + " interferes with: " + Arrays.toString(edges.stream().map(node -> node.reg.toString()).toArray(String[]::new));
+			//Edges are hashed by identity, so they are sorted to keep the output stable
+			return reg + " interferes with: " + Arrays.toString(edges.stream()
+					.sorted(Comparator.comparingLong(node -> node.reg.name))
+					.map(node -> node.reg.toString()).toArray(String[]::new));
 		}
 
 	}
@@ -274,7 +290,7 @@ public class InterferenceGraph {
 			if (n.spill) {
 				if (!n.color()) {
 					anySpilled = true;
-					System.out.println("Spilled: " + n.reg);
+					spilled.add(n.reg);
 				}
 			} else {
 				n.color();
@@ -289,7 +305,7 @@ public class InterferenceGraph {
 			if (n.phyRegName == -1) {
 				long tempL = this.frag.frame.addTemp();
 				long offset = this.frag.frame.getTempsOffset(tempL);
-				instrs.spillVirtualRegister(n.reg, offset);
+				instrs.spillVirtualRegister(n.reg, offset, this.frag.registers);
 			}
 		}
 	}
@@ -9,11 +9,12 @@ import java.util.LinkedList;
  */
 public class RecTyp extends Typ {
 
-	public final String nameSpace;
+	/** The ID of the namespace of the components (within the symbol table of the type checker). */
+	public final int nameSpace;
 
 	private final Typ[] compTyps;
 
-	public RecTyp(String nameSpace, LinkedList<Typ> compTyps) {
+	public RecTyp(int nameSpace, LinkedList<Typ> compTyps) {
 		super();
 		this.nameSpace = nameSpace;
 		this.compTyps = new Typ[compTyps.size()];
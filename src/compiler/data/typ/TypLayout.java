@@ -0,0 +1,95 @@
+package compiler.data.typ;
+
+import java.util.IdentityHashMap;
+
+/**
+ * The memory layout of types: sizes, paddings and offsets of record
+ * components.
+ *
+ * <p>
+ * The layout of an array or a record type is computed once per type instance
+ * (see {@link TypTable}) and cached, so that it is not recomputed over the
+ * entire structure of a nested type every time it is asked for. The sizes and
+ * paddings are the same as returned by {@link Typ#size()} and
+ * {@link Typ#padding()}; a component is placed after the preceding components
+ * together with their paddings.
+ * </p>
+ */
+public class TypLayout {
+
+	/**
+	 * The layouts of array types (their sizes) and record types (offsets of
+	 * their components followed by their sizes).
+	 */
+	private final IdentityHashMap<Typ, long[]> layouts = new IdentityHashMap<Typ, long[]>();
+
+	/**
+	 * Returns the size of a type in bytes.
+	 *
+	 * @param typ
+	 *            The type.
+	 * @return The size of the type in bytes.
+	 */
+	public long size(Typ typ) {
+		Typ actualTyp = typ.actualTyp();
+		if (actualTyp instanceof ArrTyp) {
+			return layout(actualTyp)[0];
+		}
+		if (actualTyp instanceof RecTyp) {
+			long[] layout = layout(actualTyp);
+			return layout[layout.length - 1];
+		}
+		return actualTyp.size();
+	}
+
+	/**
+	 * Returns the padding following a value of a type in bytes.
+	 *
+	 * @param typ
+	 *            The type.
+	 * @return The padding in bytes.
+	 */
+	public long padding(Typ typ) {
+		return 8 - size(typ);
+	}
+
+	/**
+	 * Returns the offset of a record component in bytes.
+	 *
+	 * @param recTyp
+	 *            The record type.
+	 * @param comp
+	 *            The index of the component.
+	 * @return The offset of the component from the beginning of the record.
+	 */
+	public long offset(RecTyp recTyp, int comp) {
+		return layout(recTyp)[comp];
+	}
+
+	private long[] layout(Typ typ) {
+		long[] layout = layouts.get(typ);
+		if (layout != null) {
+			return layout;
+		}
+		if (typ instanceof ArrTyp) {
+			ArrTyp arrTyp = (ArrTyp) typ;
+			layout = new long[] { arrTyp.size * size(arrTyp.elemTyp) };
+		} else {
+			RecTyp recTyp = (RecTyp) typ;
+			layout = new long[recTyp.numComps() + 1];
+			long offset = 0;
+			long size = 0;
+			for (int c = 0; c < recTyp.numComps(); c++) {
+				Typ compTyp = recTyp.compTyp(c);
+				layout[c] = offset;
+				offset += size(compTyp);
+				offset += padding(compTyp);
+				size += size(compTyp);
+			}
+			layout[recTyp.numComps()] = size;
+		}
+		layouts.put(typ, layout);
+		return layout;
+	}
+
+}
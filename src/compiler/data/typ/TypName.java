@@ -3,8 +3,6 @@ package compiler.data.typ;
 import compiler.common.logger.Logger;
 import compiler.common.report.InternalCompilerError;
 
-import java.util.HashSet;
-
 /**
  * @author sliva
  */
@@ -14,6 +12,12 @@ public class TypName extends Typ {
 
 	private Typ actualTyp;
 
+	/** Whether a circular type is reachable from this type name (or <code>null</code> if not known yet). */
+	private Boolean isCircular = null;
+
+	/** Whether this type name is on the path currently checked for circularity. */
+	private boolean onPath = false;
+
 	public TypName(String name) {
 		super();
 		this.name = name;
@@ -36,20 +40,26 @@ public class TypName extends Typ {
 	}
 
 	public boolean isCircular() {
-		return isCircular(this, new HashSet<TypName>());
+		return isCircular(this);
 	}
 
-	private boolean isCircular(Typ typ, HashSet<TypName> typNames) {
+	/**
+	 * Checks whether a type name on the path leading to the specified type is
+	 * reachable from it. The result for every type name checked is
+	 * remembered: if a type name on the path is reachable from a type name, a
+	 * type name is reachable from itself as well.
+	 */
+	private static boolean isCircular(Typ typ) {
 		if (typ instanceof ArrTyp) {
-			return isCircular(((ArrTyp) typ).elemTyp, typNames);
+			return isCircular(((ArrTyp) typ).elemTyp);
 		}
 		if (typ instanceof AtomTyp) {
 			return false;
 		}
 		if (typ instanceof FunTyp) {
-			boolean isCircular = isCircular(((FunTyp) typ).resultTyp, typNames);
+			boolean isCircular = isCircular(((FunTyp) typ).resultTyp);
 			for (int p = 0; p < ((FunTyp) typ).numPars(); p++)
-				isCircular = isCircular || isCircular(((FunTyp) typ).parTyp(p), typNames);
+				isCircular = isCircular || isCircular(((FunTyp) typ).parTyp(p));
 			return isCircular;
 		}
 		if (typ instanceof PtrTyp) {
@@ -58,17 +68,22 @@ public class TypName extends Typ {
 		if (typ instanceof RecTyp) {
 			boolean isCircular = false;
 			for (int c = 0; c < ((RecTyp) typ).numComps(); c++)
-				isCircular = isCircular || isCircular(((RecTyp) typ).compTyp(c), typNames);
+				isCircular = isCircular || isCircular(((RecTyp) typ).compTyp(c));
 			return isCircular;
 		}
 		if (typ instanceof TypName) {
 			TypName typName = (TypName) typ;
-			if (typNames.contains(typName))
+			if (typName.onPath)
 				return true;
-			typNames.add(typName);
-			boolean isCircular = isCircular(typName.actualTyp, typNames);
-			typNames.remove(typName);
-			return isCircular;
+			if (typName.isCircular == null) {
+				typName.onPath = true;
+				try {
+					typName.isCircular = isCircular(typName.actualTyp);
+				} finally {
+					typName.onPath = false;
+				}
+			}
+			return typName.isCircular;
 		}
 		throw new InternalCompilerError();
 	}
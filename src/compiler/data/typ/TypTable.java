@@ -0,0 +1,259 @@
+package compiler.data.typ;
+
+import compiler.common.report.InternalCompilerError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * A table of canonical types.
+ *
+ * <p>
+ * The table returns one instance for each atomic type and, by hash consing,
+ * one instance for each array, pointer and function type built of the same
+ * (canonical) component types. Record types are not shared as each of them
+ * has its own namespace of component names, and neither are type names.
+ * Hence types built by the table are equivalent if they are the same
+ * instance unless they contain records or type names.
+ * </p>
+ *
+ * <p>
+ * Structural equivalence of other types is decided once per pair of types and
+ * memoised. Recursive types (type names reachable from themselves through
+ * pointers) are compared coinductively, i.e., a pair of types already being
+ * compared is assumed to be equivalent.
+ * </p>
+ *
+ * <p>
+ * The table can be used by several type checkers running concurrently.
+ * </p>
+ */
+public class TypTable {
+
+	public final BooleanTyp booleanTyp = new BooleanTyp();
+
+	public final CharTyp charTyp = new CharTyp();
+
+	public final IntegerTyp integerTyp = new IntegerTyp();
+
+	public final StringTyp stringTyp = new StringTyp();
+
+	public final VoidTyp voidTyp = new VoidTyp();
+
+	/** The canonical array, pointer and function types. */
+	private final HashMap<Key, Typ> typs = new HashMap<Key, Typ>();
+
+	/** The results of equivalence checks of pairs of types. */
+	private final HashMap<Key, Boolean> equivs = new HashMap<Key, Boolean>();
+
+	/**
+	 * The pairs of types being compared and those already assumed to be
+	 * equivalent during the current equivalence check.
+	 */
+	private final ArrayList<Typ> assumed = new ArrayList<Typ>();
+
+	/**
+	 * Returns the canonical array type.
+	 *
+	 * @param size
+	 *            The number of elements.
+	 * @param elemTyp
+	 *            The canonical type of elements.
+	 * @return The array type.
+	 */
+	public synchronized ArrTyp arrTyp(long size, Typ elemTyp) {
+		Key key = new Key(Key.ARR, size, elemTyp);
+		ArrTyp arrTyp = (ArrTyp) typs.get(key);
+		if (arrTyp == null) {
+			arrTyp = new ArrTyp(size, elemTyp);
+			typs.put(key, arrTyp);
+		}
+		return arrTyp;
+	}
+
+	/**
+	 * Returns the canonical pointer type.
+	 *
+	 * @param baseTyp
+	 *            The canonical type pointed to.
+	 * @return The pointer type.
+	 */
+	public synchronized PtrTyp ptrTyp(Typ baseTyp) {
+		Key key = new Key(Key.PTR, 0, baseTyp);
+		PtrTyp ptrTyp = (PtrTyp) typs.get(key);
+		if (ptrTyp == null) {
+			ptrTyp = new PtrTyp(baseTyp);
+			typs.put(key, ptrTyp);
+		}
+		return ptrTyp;
+	}
+
+	/**
+	 * Returns the canonical function type.
+	 *
+	 * @param parTyps
+	 *            The canonical types of parameters.
+	 * @param resultTyp
+	 *            The canonical type of the result.
+	 * @return The function type.
+	 */
+	public synchronized FunTyp funTyp(LinkedList<Typ> parTyps, Typ resultTyp) {
+		Typ[] typs = new Typ[parTyps.size() + 1];
+		typs[0] = resultTyp;
+		int p = 1;
+		for (Typ parTyp : parTyps)
+			typs[p++] = parTyp;
+		Key key = new Key(Key.FUN, 0, typs);
+		FunTyp funTyp = (FunTyp) this.typs.get(key);
+		if (funTyp == null) {
+			funTyp = new FunTyp(parTyps, resultTyp);
+			this.typs.put(key, funTyp);
+		}
+		return funTyp;
+	}
+
+	/**
+	 * Checks whether two types are structurally equivalent (as
+	 * {@link Typ#equiv(Typ, Typ)} does for types that are not recursive).
+	 *
+	 * @param fstTyp
+	 *            The first type.
+	 * @param sndTyp
+	 *            The second type.
+	 * @return <code>true</code> if the specified types are structurally
+	 *         equivalent or <code>false</code> otherwise.
+	 */
+	public synchronized boolean equiv(Typ fstTyp, Typ sndTyp) {
+		if ((fstTyp == null) || (sndTyp == null))
+			return false;
+		Typ fst = fstTyp.actualTyp();
+		Typ snd = sndTyp.actualTyp();
+		if (fst == snd)
+			return true;
+
+		Key key = new Key(Key.EQUIV, 0, fst, snd);
+		Boolean equiv = equivs.get(key);
+		if (equiv != null)
+			return equiv;
+
+		assumed.clear();
+		equiv = structEquiv(fst, snd);
+		if (equiv) {
+			// All assumptions made on the way hold as well.
+			for (int a = 0; a < assumed.size(); a += 2)
+				equivs.put(new Key(Key.EQUIV, 0, assumed.get(a), assumed.get(a + 1)), true);
+		} else
+			equivs.put(key, false);
+		assumed.clear();
+		return equiv;
+	}
+
+	private boolean structEquiv(Typ fstTyp, Typ sndTyp) {
+		Typ fst = fstTyp.actualTyp();
+		Typ snd = sndTyp.actualTyp();
+		if (fst == snd)
+			return true;
+		if (fst.getClass() != snd.getClass())
+			return false;
+		if (fst instanceof AtomTyp)
+			return true;
+
+		Boolean equiv = equivs.get(new Key(Key.EQUIV, 0, fst, snd));
+		if (equiv != null)
+			return equiv;
+		for (int a = 0; a < assumed.size(); a += 2) {
+			if ((assumed.get(a) == fst) && (assumed.get(a + 1) == snd))
+				return true;
+		}
+		assumed.add(fst);
+		assumed.add(snd);
+
+		if (fst instanceof ArrTyp) {
+			return (((ArrTyp) fst).size == ((ArrTyp) snd).size)
+					&& structEquiv(((ArrTyp) fst).elemTyp, ((ArrTyp) snd).elemTyp);
+		}
+		if (fst instanceof PtrTyp) {
+			Typ fstBaseTyp = ((PtrTyp) fst).baseTyp;
+			Typ sndBaseTyp = ((PtrTyp) snd).baseTyp;
+			return (fstBaseTyp.actualTyp() instanceof VoidTyp) || (sndBaseTyp.actualTyp() instanceof VoidTyp)
+					|| structEquiv(fstBaseTyp, sndBaseTyp);
+		}
+		if (fst instanceof RecTyp) {
+			RecTyp fstRecTyp = (RecTyp) fst;
+			RecTyp sndRecTyp = (RecTyp) snd;
+			if (fstRecTyp.numComps() != sndRecTyp.numComps())
+				return false;
+			for (int c = 0; c < fstRecTyp.numComps(); c++) {
+				if (!structEquiv(fstRecTyp.compTyp(c), sndRecTyp.compTyp(c)))
+					return false;
+			}
+			return true;
+		}
+		if (fst instanceof FunTyp) {
+			FunTyp fstFunTyp = (FunTyp) fst;
+			FunTyp sndFunTyp = (FunTyp) snd;
+			if (!structEquiv(fstFunTyp.resultTyp, sndFunTyp.resultTyp))
+				return false;
+			if (fstFunTyp.numPars() != sndFunTyp.numPars())
+				return false;
+			for (int p = 0; p < fstFunTyp.numPars(); p++) {
+				if (!structEquiv(fstFunTyp.parTyp(p), sndFunTyp.parTyp(p)))
+					return false;
+			}
+			return true;
+		}
+		throw new InternalCompilerError();
+	}
+
+	/**
+	 * A key of a type or of a pair of types, comparing component types by
+	 * their identity.
+	 */
+	private static class Key {
+
+		static final int ARR = 0;
+		static final int PTR = 1;
+		static final int FUN = 2;
+		static final int EQUIV = 3;
+
+		private final int kind;
+
+		private final long size;
+
+		private final Typ[] typs;
+
+		private final int hash;
+
+		Key(int kind, long size, Typ... typs) {
+			this.kind = kind;
+			this.size = size;
+			this.typs = typs;
+			int hash = 31 * kind + Long.hashCode(size);
+			for (Typ typ : typs)
+				hash = 31 * hash + System.identityHashCode(typ);
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key key = (Key) obj;
+			if ((kind != key.kind) || (size != key.size) || (typs.length != key.typs.length))
+				return false;
+			for (int t = 0; t < typs.length; t++) {
+				if (typs[t] != key.typs[t])
+					return false;
+			}
+			return true;
+		}
+
+	}
+
+}
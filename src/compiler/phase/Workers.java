@@ -0,0 +1,104 @@
+package compiler.phase;
+
+import compiler.Task;
+import compiler.common.report.InternalCompilerError;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Processes independent items of a compilation (usually code fragments)
+ * either sequentially or, if more than one job has been requested, by a pool
+ * of workers.
+ */
+public class Workers {
+
+	/**
+	 * Performs the specified work on every item. The work done on different
+	 * items must not depend on each other as the items might be processed
+	 * concurrently and in any order.
+	 *
+	 * @param task
+	 *            The compilation task.
+	 * @param items
+	 *            The items.
+	 * @param work
+	 *            The work to be performed on every item.
+	 */
+	public static <T> void forEach(Task task, Collection<T> items, Consumer<T> work) {
+		map(task, items, item -> {
+			work.accept(item);
+			return null;
+		});
+	}
+
+	/**
+	 * Computes a result for every item. The computations for different items
+	 * must not depend on each other as the items might be processed
+	 * concurrently and in any order.
+	 *
+	 * <p>
+	 * If the computation fails for several items, the error of the first of
+	 * them (in the order of the collection) is thrown, just as if the items
+	 * had been processed sequentially.
+	 * </p>
+	 *
+	 * @param task
+	 *            The compilation task.
+	 * @param items
+	 *            The items.
+	 * @param work
+	 *            The computation to be performed for every item.
+	 * @return The results in the order of the items.
+	 */
+	public static <T, R> ArrayList<R> map(Task task, Collection<T> items, Function<T, R> work) {
+		ArrayList<R> results = new ArrayList<>(items.size());
+
+		if (task.jobs == 1 || items.size() < 2) {
+			for (T item : items) {
+				results.add(work.apply(item));
+			}
+			return results;
+		}
+
+		ArrayList<Callable<R>> calls = new ArrayList<>(items.size());
+		for (T item : items) {
+			calls.add(() -> {
+				long allocatedBytes = task.stats.threadAllocatedBytes();
+				R result = work.apply(item);
+				task.stats.addWorkerAllocatedBytes(task.stats.threadAllocatedBytes() - allocatedBytes);
+				return result;
+			});
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(task.jobs);
+		try {
+			for (Future<R> result : pool.invokeAll(calls)) {
+				try {
+					results.add(result.get());
+				} catch (ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new InternalCompilerError();
+				}
+			}
+		} catch (InterruptedException ex) {
+			throw new InternalCompilerError();
+		} finally {
+			pool.shutdown();
+		}
+		return results;
+	}
+
+}
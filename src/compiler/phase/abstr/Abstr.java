@@ -23,8 +23,10 @@ public class Abstr extends Phase {
 	 */
 	@Override
 	public void close() {
-		if (logger != null)
-			(new AbstrToXML(logger, true)).visit(task.prgAST);
+		if (logger != null) {
+			task.logFilter.select(task.prgAST, task.prgAttrs);
+			(new AbstrToXML(logger, true, task.logFilter)).visit(task.prgAST);
+		}
 		super.close();
 	}
 
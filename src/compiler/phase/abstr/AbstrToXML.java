@@ -1,5 +1,6 @@
 package compiler.phase.abstr;
 
+import compiler.common.logger.LogFilter;
 import compiler.common.logger.Logger;
 import compiler.common.report.Position;
 import compiler.data.ast.*;
@@ -26,6 +27,9 @@ public class AbstrToXML implements Visitor {
 	/** Whether begin and end elements are produced or not. */
 	private boolean boxed;
 
+	/** The filter selecting the subtrees that are printed out. */
+	private final LogFilter filter;
+
 	/**
 	 * Constructs a new visitor for printing out the XML description of the
 	 * abstract syntax tree.
@@ -35,10 +39,13 @@ public class AbstrToXML implements Visitor {
 	 *            syntax tree to (must not be <code>null</code>).
 	 * @param boxed
 	 *            Whether begin and end elements are produced or not.
+	 * @param filter
+	 *            The filter selecting the subtrees that are printed out.
 	 */
-	public AbstrToXML(Logger logger, boolean boxed) {
+	public AbstrToXML(Logger logger, boolean boxed, LogFilter filter) {
 		this.logger = logger;
 		this.boxed = boxed;
+		this.filter = filter;
 	}
 
 	/**
@@ -57,65 +64,74 @@ public class AbstrToXML implements Visitor {
 			logger.endElement();
 	}
 
+	/**
+	 * Prints out a subtree unless it lies outside the lines selected by the
+	 * log filter.
+	 */
+	private final void visitIncluded(ASTNode node) {
+		if (filter.includes(node))
+			node.accept(this);
+	}
+
 	// Visitor methods.
 
 	public void visit(ArrType arrType) {
 		begElement();
-		((Position) arrType).log(logger);
 		logger.addAttribute("kind", "ArrType");
-		arrType.size.accept(this);
-		arrType.elemType.accept(this);
+		((Position) arrType).log(logger);
+		visitIncluded(arrType.size);
+		visitIncluded(arrType.elemType);
 		endElement();
 	}
 
 	public void visit(AtomExpr atomExpr) {
 		begElement();
-		((Position) atomExpr).log(logger);
 		logger.addAttribute("kind", "AtomExpr");
 		logger.addAttribute("name", atomExpr.type.toString() + "(" + atomExpr.value + ")");
+		((Position) atomExpr).log(logger);
 		endElement();
 	}
 
 	public void visit(AtomType atomType) {
 		begElement();
-		((Position) atomType).log(logger);
 		logger.addAttribute("kind", "AtomType");
 		logger.addAttribute("name", atomType.type.toString());
+		((Position) atomType).log(logger);
 		endElement();
 	}
 
 	public void visit(BinExpr binExpr) {
 		begElement();
-		((Position) binExpr).log(logger);
 		logger.addAttribute("kind", "BinExpr:" + binExpr.oper.toString());
-		binExpr.fstExpr.accept(this);
-		binExpr.sndExpr.accept(this);
+		((Position) binExpr).log(logger);
+		visitIncluded(binExpr.fstExpr);
+		visitIncluded(binExpr.sndExpr);
 		endElement();
 	}
 
 	public void visit(CastExpr castExpr) {
 		begElement();
-		((Position) castExpr).log(logger);
 		logger.addAttribute("kind", "CastExpr");
-		castExpr.type.accept(this);
-		castExpr.expr.accept(this);
+		((Position) castExpr).log(logger);
+		visitIncluded(castExpr.type);
+		visitIncluded(castExpr.expr);
 		endElement();
 	}
 
 	public void visit(CompDecl compDecl) {
 		begElement();
-		((Position) compDecl).log(logger);
 		logger.addAttribute("kind", "CompDecl");
 		logger.addAttribute("name", compDecl.name);
-		compDecl.type.accept(this);
+		((Position) compDecl).log(logger);
+		visitIncluded(compDecl.type);
 		endElement();
 	}
 
 	public void visit(CompName compName) {
 		begElement();
-		((Position) compName).log(logger);
 		logger.addAttribute("kind", "CompName");
 		logger.addAttribute("name", compName.name());
+		((Position) compName).log(logger);
 		endElement();
 	}
 
@@ -127,10 +143,10 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(Exprs exprs) {
 		begElement();
-		((Position) exprs).log(logger);
 		logger.addAttribute("kind", "Exprs");
+		((Position) exprs).log(logger);
 		for (int e = 0; e < exprs.numExprs(); e++)
-			exprs.expr(e).accept(this);
+			visitIncluded(exprs.expr(e));
 		endElement();
 	}
 
@@ -142,98 +158,98 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(ForExpr forExpr) {
 		begElement();
-		((Position) forExpr).log(logger);
 		logger.addAttribute("kind", "ForExpr");
-		forExpr.var.accept(this);
-		forExpr.loBound.accept(this);
-		forExpr.hiBound.accept(this);
-		forExpr.body.accept(this);
+		((Position) forExpr).log(logger);
+		visitIncluded(forExpr.var);
+		visitIncluded(forExpr.loBound);
+		visitIncluded(forExpr.hiBound);
+		visitIncluded(forExpr.body);
 		endElement();
 	}
 
 	public void visit(FunCall funCall) {
 		begElement();
-		((Position) funCall).log(logger);
 		logger.addAttribute("kind", "FunCall");
 		logger.addAttribute("name", funCall.name());
+		((Position) funCall).log(logger);
 		for (int a = 0; a < funCall.numArgs(); a++)
-			funCall.arg(a).accept(this);
+			visitIncluded(funCall.arg(a));
 		endElement();
 	}
 
 	public void visit(FunDecl funDecl) {
 		begElement();
-		((Position) funDecl).log(logger);
 		logger.addAttribute("kind", "FunDecl");
 		logger.addAttribute("name", funDecl.name);
+		((Position) funDecl).log(logger);
 		for (int p = 0; p < funDecl.numPars(); p++)
-			funDecl.par(p).accept(this);
-		funDecl.type.accept(this);
+			visitIncluded(funDecl.par(p));
+		visitIncluded(funDecl.type);
 		endElement();
 	}
 
 	public void visit(FunDef funDef) {
 		begElement();
-		((Position) funDef).log(logger);
 		logger.addAttribute("kind", "FunDef");
 		logger.addAttribute("name", funDef.name);
+		((Position) funDef).log(logger);
 		for (int p = 0; p < funDef.numPars(); p++)
-			funDef.par(p).accept(this);
-		funDef.type.accept(this);
-		funDef.body.accept(this);
+			visitIncluded(funDef.par(p));
+		visitIncluded(funDef.type);
+		visitIncluded(funDef.body);
 		endElement();
 	}
 
 	public void visit(IfExpr ifExpr) {
 		begElement();
-		((Position) ifExpr).log(logger);
 		logger.addAttribute("kind", "IfExpr");
-		ifExpr.cond.accept(this);
-		ifExpr.thenExpr.accept(this);
-		ifExpr.elseExpr.accept(this);
+		((Position) ifExpr).log(logger);
+		visitIncluded(ifExpr.cond);
+		visitIncluded(ifExpr.thenExpr);
+		visitIncluded(ifExpr.elseExpr);
 		endElement();
 	}
 
 	public void visit(ParDecl parDecl) {
 		begElement();
-		((Position) parDecl).log(logger);
 		logger.addAttribute("kind", "ParDecl");
 		logger.addAttribute("name", parDecl.name);
-		parDecl.type.accept(this);
+		((Position) parDecl).log(logger);
+		visitIncluded(parDecl.type);
 		endElement();
 	}
 
 	public void visit(Program program) {
 		begElement();
-		((Position) program).log(logger);
 		logger.addAttribute("kind", "Program");
-		program.expr.accept(this);
+		((Position) program).log(logger);
+		visitIncluded(program.expr);
 		endElement();
 	}
 
 	public void visit(PtrType ptrType) {
 		begElement();
-		((Position) ptrType).log(logger);
 		logger.addAttribute("kind", "PtrType");
-		ptrType.baseType.accept(this);
+		((Position) ptrType).log(logger);
+		visitIncluded(ptrType.baseType);
 		endElement();
 	}
 
 	public void visit(RecType recType) {
 		begElement();
-		((Position) recType).log(logger);
 		logger.addAttribute("kind", "RecType");
+		((Position) recType).log(logger);
 		for (int c = 0; c < recType.numComps(); c++)
-			recType.comp(c).accept(this);
+			visitIncluded(recType.comp(c));
 		endElement();
 	}
 
 	public void visit(TypeDecl typeDecl) {
 		begElement();
-		((Position) typeDecl).log(logger);
 		logger.addAttribute("kind", "TypeDecl");
 		logger.addAttribute("name", typeDecl.name);
-		typeDecl.type.accept(this);
+		((Position) typeDecl).log(logger);
+		visitIncluded(typeDecl.type);
 		endElement();
 	}
 
@@ -245,53 +261,53 @@ public class AbstrToXML implements Visitor {
 
 	public void visit(TypeName typeName) {
 		begElement();
-		((Position) typeName).log(logger);
 		logger.addAttribute("kind", "TypeName");
 		logger.addAttribute("name", typeName.name());
+		((Position) typeName).log(logger);
 		endElement();
 	}
 
 	public void visit(UnExpr unExpr) {
 		begElement();
-		((Position) unExpr).log(logger);
 		logger.addAttribute("kind", "UnExpr:" + unExpr.oper.toString());
-		unExpr.subExpr.accept(this);
+		((Position) unExpr).log(logger);
+		visitIncluded(unExpr.subExpr);
 		endElement();
 	}
 
 	public void visit(VarDecl varDecl) {
 		begElement();
-		((Position) varDecl).log(logger);
 		logger.addAttribute("kind", "VarDecl");
 		logger.addAttribute("name", varDecl.name);
-		varDecl.type.accept(this);
+		((Position) varDecl).log(logger);
+		visitIncluded(varDecl.type);
 		endElement();
 	}
 
 	public void visit(VarName varName) {
 		begElement();
-		((Position) varName).log(logger);
 		logger.addAttribute("kind", "VarName");
 		logger.addAttribute("name", varName.name());
+		((Position) varName).log(logger);
 		endElement();
 	}
 
 	public void visit(WhereExpr whereExpr) {
 		begElement();
-		((Position) whereExpr).log(logger);
 		logger.addAttribute("kind", "WhereExpr");
-		whereExpr.expr.accept(this);
+		((Position) whereExpr).log(logger);
+		visitIncluded(whereExpr.expr);
 		for (int d = 0; d < whereExpr.numDecls(); d++)
-			whereExpr.decl(d).accept(this);
+			visitIncluded(whereExpr.decl(d));
 		endElement();
 	}
 
 	public void visit(WhileExpr whileExpr) {
 		begElement();
-		((Position) whileExpr).log(logger);
 		logger.addAttribute("kind", "WhileExpr");
-		whileExpr.cond.accept(this);
-		whileExpr.body.accept(this);
+		((Position) whileExpr).log(logger);
+		visitIncluded(whileExpr.cond);
+		visitIncluded(whileExpr.body);
 		endElement();
 	}
 
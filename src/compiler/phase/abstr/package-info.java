@@ -29,7 +29,7 @@ private ParDecl parseParameter() {
 		nextSymbolIsError();
 	}
 	Type astType = parseType();
-	result = new ParDecl(new Position(symIDENTIFIER, astType), symIDENTIFIER.lexeme, astType);
+	result = new ParDecl(new Position(symIDENTIFIER, astType), symIDENTIFIER.nameId, astType);
 	endLog();
 	return result;
 }
@@ -7,10 +7,12 @@ import compiler.data.frg.CodeFragment;
 import compiler.data.frg.Fragment;
 import compiler.data.imc.*;
 import compiler.phase.Phase;
+import compiler.phase.Workers;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.HashMap;
 
 /**
@@ -22,6 +24,7 @@ public class CodeGen extends Phase {
 
 	private int fpTemp;
 	private int rvTemp;
+	private VirtualRegister.Generator registers;
 
 	public static FixedRegister sp = new FixedRegister("SP");
 	public static FixedRegister fp = new FixedRegister("FP");
@@ -52,7 +55,10 @@ public class CodeGen extends Phase {
 
 				String indent = "\t";
 
+				task.logFilter.select(task.prgAST, task.prgAttrs);
 				for (CodeFragment codeFragment : fragInstrs.keySet()) {
+					if (!task.logFilter.includes(codeFragment))
+						continue;
 					writer.println("");
 					writer.println(codeFragment.frame.label + ":");
 					writer.println("... (prolog)");
@@ -78,17 +84,28 @@ public class CodeGen extends Phase {
 	}
 
 	public void generateCode() {
+		ArrayList<CodeFragment> codeFragments = new ArrayList<>();
 		for (Fragment frag : task.fragments.values()) {
 			if (frag instanceof CodeFragment) {
-				fpTemp = ((CodeFragment) frag).FP;
-				rvTemp = ((CodeFragment) frag).RV;
-				InstructionSet fragis = generateFragmentCode((CodeFragment) frag);
-				fragInstrs.put((CodeFragment) frag, fragis);
+				codeFragments.add((CodeFragment) frag);
 			}
 		}
+
+		//Tiling keeps per-fragment state, so every fragment is tiled by its own code generator
+		//Fragments found in the cache are already allocated and are passed on as they are
+		ArrayList<InstructionSet> fragis = Workers.map(task, codeFragments, frag -> {
+			InstructionSet cached = task.cache.lookup(frag);
+			return cached != null ? cached : new CodeGen(task).generateFragmentCode(frag);
+		});
+		for (int i = 0; i < codeFragments.size(); i++) {
+			fragInstrs.put(codeFragments.get(i), fragis.get(i));
+		}
 	}
 
 	public InstructionSet generateFragmentCode(CodeFragment frag) {
+		fpTemp = frag.FP;
+		rvTemp = frag.RV;
+		registers = frag.registers;
 		frag.linCode.visit(this);
 		return getInstrs(frag.linCode);
 	}
@@ -152,7 +169,7 @@ public class CodeGen extends Phase {
 		}
 
 		//For consistency create register AFTER visiting nested statements
-		ownis.set(VirtualRegister.create());
+		ownis.set(registers.create());
 		Operand ret = ownis.ret;
 
 
@@ -214,7 +231,7 @@ public class CodeGen extends Phase {
 		}
 
 		InstructionSet ownis = new InstructionSet("CALL");
-		ownis.set(VirtualRegister.create());
+		ownis.set(registers.create());
 
 		long argOffsetCnt = 0;
 
@@ -254,7 +271,7 @@ public class CodeGen extends Phase {
 		long val = constant.value;
 
 		InstructionSet ownis = new InstructionSet("CONST");
-		ownis.set(VirtualRegister.create());
+		ownis.set(registers.create());
 		Register ret = ownis.ret;
 
 		ownis.add(new Mnemonic("SETL", ret, new ConstantOperand(val & 0xFFFFL)));
@@ -330,7 +347,7 @@ public class CodeGen extends Phase {
 				throw new InternalCompilerError();
 		}
 
-		ownis.set(VirtualRegister.create());
+		ownis.set(registers.create());
 		ownis.add(addris);
 		ownis.add(new Mnemonic(mnemonic, ownis.ret, locReg, const0));
 
@@ -398,7 +415,7 @@ public class CodeGen extends Phase {
 
 	public void tile(NAME name) {
 		InstructionSet ownis = new InstructionSet("NAME | " + name.name);
-		ownis.set(VirtualRegister.create());
+		ownis.set(registers.create());
 		ownis.add(new Mnemonic("LDA", ownis.ret, new OperandLabel(name.name)));
 
 		setInstrs(name, ownis);
@@ -461,7 +478,7 @@ public class CodeGen extends Phase {
 		} else if(temp.name == rvTemp){
 			ownis.set(rv);
 		} else {
-			ownis.set(VirtualRegister.create(temp.name));
+			ownis.set(registers.create(temp.name));
 		}
 		setInstrs(temp, ownis);
 	}
@@ -8,7 +8,10 @@ import compiler.data.frg.CodeFragment;
 import compiler.data.frg.ConstFragment;
 import compiler.data.frg.DataFragment;
 import compiler.data.frg.Fragment;
+import compiler.data.imc.IMC;
 import compiler.phase.Phase;
+import compiler.phase.codegen.CodeGen;
+import compiler.phase.lincode.BasicBlocks;
 import compiler.phase.regalloc.RegisterAlloc;
 
 import java.io.File;
@@ -28,6 +31,9 @@ public class Finalisation extends Phase {
 	private HashMap<CodeFragment, InstructionSet> fragInstrs;
 	private HashMap<String, Fragment> fragments;
 
+	private PrintWriter writer;
+	private String bufferdLabel = null;
+
 	public Finalisation(Task task) {
 		super(task, "fin", false);
 
@@ -44,136 +50,192 @@ public class Finalisation extends Phase {
 			is.joinLabels();
 		}
 
-		PrintWriter writer;
-		try {
-			writer = new PrintWriter(task.srcFName + fileEnding, "US-ASCII");
+		if (writeHeader()) {
+			for (CodeFragment codeFragment : fragInstrs.keySet()) {
+				writeCode(fragInstrs.get(codeFragment));
+			}
+			writeTrailer();
+		}
 
-			//Header
-			writer.println();
-			writer.println();
-			writer.println("\t\tLOC	Data_Segment");
-
-			//define the common registers
-			writer.println("FP IS $252"); //No indentation, FP mus be a label
-			writer.println("SP IS $253");
-			writer.println("RV IS $0");
-			writer.println("COLORS IS $" + RegisterAlloc.physicalRegisters);
-			writer.println();
-			writer.println("%allocate a global register for loading constants and global variables");
-			writer.println("\t\tGREG @");
-			writer.println();
-			writer.println();
-
-			for (String s : fragments.keySet()) {
-				Fragment f = fragments.get(s);
-
-				if (f instanceof CodeFragment) {
-					//For now do nothing, we should first handle other fragments
-				} else if (f instanceof ConstFragment) {
-					ConstFragment cf = (ConstFragment) f;
-					writer.println(s + "\t\tBYTE\t" + cf.getStringAsValues());
-					int required_padding = (cf.string.length() + 1) % 8;
-
-					//Add padding to align to 8
-					if (required_padding != 0) {
-						writer.print("\t\tBYTE\t");
-						while (required_padding != 0) {
-							writer.print("0");
-							if (required_padding != 1) writer.print(",");
-							required_padding--;
-						}
-						writer.println("\t%padding");
-					}
-				} else if (f instanceof DataFragment) {
-					DataFragment df = (DataFragment) f;
-					long required_padding = df.width % 8;
-
-					if(required_padding == 0){
-						writer.print(s + "\t\tOCTA\t0");
-						for (int i = 8; i < df.width; i+=8) {
-							if(i%(8*16) == 0){
-								writer.println();
-								writer.print("\t\tOCTA\t0");
-							}else{
-								writer.print(",0");
-							}
-						}
-					}else{
-						writer.print(s + "\t\tBYTE\t0");
-						for (int i = 1; i < df.width+required_padding; i++) {
-							if(i%16 == 0){
-								writer.println();
-								writer.print("\t\tBYTE\t0");
-							}else{
-								writer.print(",0");
-							}
-						}
-					}
+		printCode();
+	}
 
-					writer.println();
-				} else {
-					throw new InternalCompilerError();
+	//Takes code fragments through the back end one at a time and writes out the code of each
+	//before the next one is started, so only the instructions of a single fragment are kept.
+	//The data fragments are written first, and the result is the same as in batch mode.
+	public void streamCode() {
+		BasicBlocks bblocs = new BasicBlocks(task);
+		RegisterAlloc regalloc = new RegisterAlloc(task);
+
+		boolean writing = writeHeader();
+		try {
+			for (Fragment f : fragments.values()) {
+				if (!(f instanceof CodeFragment)) continue;
+				CodeFragment cf = (CodeFragment) f;
+
+				bblocs.transform(cf);
+				if (task.stats.isEnabled()) {
+					task.stats.count(cf.label, "imc_nodes", IMC.numNodes(cf.linCode));
 				}
+
+				InstructionSet is = task.cache.lookup(cf);
+				if (is == null) is = new CodeGen(task).generateFragmentCode(cf);
+				cf.releaseCode();
+
+				regalloc.allocateFragment(cf, is);
+				is.injectEntryAndExit(cf);
+				is.joinLabels();
+
+				if (writing) writeCode(is);
+			}
+		} catch (RuntimeException | Error e) {
+			//Do not leave the code written so far behind, as in batch mode nothing is written
+			if (writing) {
+				writer.close();
+				new File(task.srcFName + fileEnding).delete();
 			}
+			throw e;
+		}
+		if (writing) writeTrailer();
+
+		printCode();
+	}
+
+	//Opens the output file and writes the header, the data fragments and the main program
+	private boolean writeHeader() {
+		try {
+			writer = new PrintWriter(task.srcFName + fileEnding, "US-ASCII");
+		} catch (FileNotFoundException | UnsupportedEncodingException e) {
+			e.printStackTrace();
+			return false;
+		}
 
-			writer.println();
-			writer.println();
+		//Header
+		writer.println();
+		writer.println();
+		writer.println("\t\tLOC	Data_Segment");
 
-			//set location for instructions
-			writer.println("\t\tLOC	#100");
-			writer.println();
-			writer.println();
+		//define the common registers
+		writer.println("FP IS $252"); //No indentation, FP mus be a label
+		writer.println("SP IS $253");
+		writer.println("RV IS $0");
+		writer.println("COLORS IS $" + RegisterAlloc.physicalRegisters);
+		writer.println();
+		writer.println("%allocate a global register for loading constants and global variables");
+		writer.println("\t\tGREG @");
+		writer.println();
+		writer.println();
 
-			writer.println("%Set stack pointer to 0x4000'0000'0000'0000 - 8");
-			writer.println("Main\tPUT rG,252");
-			writer.println("\t\tSETH SP,#4000");
-			writer.println("\t\tSUB SP,SP,8");
-			writer.println("\t\tSETL FP,0");
-			writer.println("\t\tPUSHJ $0,_");
-			writer.println("\t\tTRAP 0,Halt,0");
+		for (String s : fragments.keySet()) {
+			Fragment f = fragments.get(s);
 
+			if (f instanceof CodeFragment) {
+				//For now do nothing, we should first handle other fragments
+			} else if (f instanceof ConstFragment) {
+				ConstFragment cf = (ConstFragment) f;
+				writer.println(s + "\t\tBYTE\t" + cf.getStringAsValues());
+				int required_padding = (cf.string.length() + 1) % 8;
 
-			String indent = "\t\t";
-			String bufferdLabel = null;
-			for (CodeFragment codeFragment : fragInstrs.keySet()) {
-				writer.println("");
-				InstructionSet instrs = fragInstrs.get(codeFragment);
-				for (Instruction instr : instrs.instrs) {
-					if (instr instanceof Label) {
-						if (bufferdLabel != null) {
-							System.err.println("Buffered label is non-null!");
-							//throw new InternalCompilerError();
+				//Add padding to align to 8
+				if (required_padding != 0) {
+					writer.print("\t\tBYTE\t");
+					while (required_padding != 0) {
+						writer.print("0");
+						if (required_padding != 1) writer.print(",");
+						required_padding--;
+					}
+					writer.println("\t%padding");
+				}
+			} else if (f instanceof DataFragment) {
+				DataFragment df = (DataFragment) f;
+				long required_padding = df.width % 8;
+
+				if(required_padding == 0){
+					writer.print(s + "\t\tOCTA\t0");
+					for (int i = 8; i < df.width; i+=8) {
+						if(i%(8*16) == 0){
+							writer.println();
+							writer.print("\t\tOCTA\t0");
+						}else{
+							writer.print(",0");
 						}
-						bufferdLabel = instr.toString();
-					} else if (instr instanceof Comment) {
-						writer.println(instr);
-					} else if (instr instanceof Mnemonic) {
-						if (bufferdLabel != null) {
-							writer.print(bufferdLabel);
-							writer.print('\t');
-							writer.println(instr);
-							bufferdLabel = null;
-						} else {
-							writer.print(indent);
-							writer.println(instr);
+					}
+				}else{
+					writer.print(s + "\t\tBYTE\t0");
+					for (int i = 1; i < df.width+required_padding; i++) {
+						if(i%16 == 0){
+							writer.println();
+							writer.print("\t\tBYTE\t0");
+						}else{
+							writer.print(",0");
 						}
-					} else {
-						throw new InternalCompilerError();
 					}
 				}
-				writer.println("");
-				writer.println("");
+
+				writer.println();
+			} else {
+				throw new InternalCompilerError();
 			}
+		}
 
-			writer.println("");
-			writer.println("");
-			writer.println(auxiliary_functions);
-			writer.close();
+		writer.println();
+		writer.println();
 
-		} catch (FileNotFoundException | UnsupportedEncodingException e) {
-			e.printStackTrace();
+		//set location for instructions
+		writer.println("\t\tLOC	#100");
+		writer.println();
+		writer.println();
+
+		writer.println("%Set stack pointer to 0x4000'0000'0000'0000 - 8");
+		writer.println("Main\tPUT rG,252");
+		writer.println("\t\tSETH SP,#4000");
+		writer.println("\t\tSUB SP,SP,8");
+		writer.println("\t\tSETL FP,0");
+		writer.println("\t\tPUSHJ $0,_");
+		writer.println("\t\tTRAP 0,Halt,0");
+		return true;
+	}
+
+	//Writes the code of a fragment (with its prologue and epilogue already injected)
+	private void writeCode(InstructionSet instrs) {
+		String indent = "\t\t";
+		writer.println("");
+		for (Instruction instr : instrs.instrs) {
+			if (instr instanceof Label) {
+				if (bufferdLabel != null) {
+					System.err.println("Buffered label is non-null!");
+					//throw new InternalCompilerError();
+				}
+				bufferdLabel = instr.toString();
+			} else if (instr instanceof Comment) {
+				writer.println(instr);
+			} else if (instr instanceof Mnemonic) {
+				if (bufferdLabel != null) {
+					writer.print(bufferdLabel);
+					writer.print('\t');
+					writer.println(instr);
+					bufferdLabel = null;
+				} else {
+					writer.print(indent);
+					writer.println(instr);
+				}
+			} else {
+				throw new InternalCompilerError();
+			}
 		}
+		writer.println("");
+		writer.println("");
+	}
+
+	//Writes the auxiliary functions and closes the output file
+	private void writeTrailer() {
+		writer.println("");
+		writer.println("");
+		writer.println(auxiliary_functions);
+		writer.close();
+	}
 
+	private void printCode() {
 		if (Main.oddaja) {
 			Scanner sc;
 			try {
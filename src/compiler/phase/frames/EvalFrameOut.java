@@ -5,15 +5,19 @@ import compiler.data.ast.FunDecl;
 import compiler.data.ast.FunDef;
 import compiler.data.ast.Program;
 import compiler.data.ast.attr.Attributes;
-import compiler.data.ast.code.FullVisitor;
+import compiler.data.ast.code.FusibleVisitor;
+import compiler.data.ast.code.NullVisitor;
+import compiler.data.ast.code.Visitor;
 import compiler.data.frm.Frame;
 
+import java.util.Arrays;
+
 /**
  * Frame and access evaluator.
  *
  * @author sliva
  */
-public class EvalFrameOut extends FullVisitor {
+public class EvalFrameOut extends FusibleVisitor {
 
 	private final Attributes attrs;
 	public static long globalProgramOutSize;
@@ -21,41 +25,53 @@ public class EvalFrameOut extends FullVisitor {
 	//NOTE: static link is already included in the inpCallSize of the Frames, so no need to recompute (add 8 bytes)
 	private long outSize; //for calculating the size of the output part of the stack frame (SL + output parameters)
 
+	private long[] outSizeBaks = new long[16]; //Values of the enclosing functions
+	private int numOutSizeBaks = 0;
+
 
 	public EvalFrameOut(Attributes attrs) {
 		this.attrs = attrs;
 		outSize = 0;
 	}
 
+	private final Visitor preVisitor = new NullVisitor() {
+		@Override
+		public void visit(FunDef funDef) {
+			//Backup old value
+			if (numOutSizeBaks == outSizeBaks.length) {
+				outSizeBaks = Arrays.copyOf(outSizeBaks, 2 * outSizeBaks.length);
+			}
+			outSizeBaks[numOutSizeBaks++] = outSize;
+			outSize = 0;
+		}
+	};
+
 	@Override
-	public void visit(FunCall funCall) {
-		super.visit(funCall);
+	public Visitor preVisitor() {
+		return preVisitor;
+	}
 
+	@Override
+	public void visit(FunCall funCall) {
+		//The frame of the called function might not have been evaluated yet (if run together with EvalFrames)
 		FunDecl decl = (FunDecl) attrs.declAttr.get(funCall);
-		Frame f = attrs.frmAttr.get(decl);
 
-		outSize = Math.max(f.inpCallSize, outSize);
+		outSize = Math.max(EvalFrames.inpCallSize(decl, attrs), outSize);
 	}
 
 	@Override
 	public void visit(FunDef funDef) {
-		//Backup old value
-		long outSizeBak = outSize;
-		outSize = 0;
-		super.visit(funDef);
-
 
 		Frame f = attrs.frmAttr.get(funDef);
 		Frame newFrame = new Frame(f.level, f.label,  f.inpCallSize, f.locVarsSize, f.tmpVarsSize, f.hidRegsSize, outSize);
 		attrs.frmAttr.set(funDef, newFrame);
 
 		//Restore
-		outSize = outSizeBak;
+		outSize = outSizeBaks[--numOutSizeBaks];
 	}
 
 	@Override
 	public void visit(Program program) {
-		super.visit(program);
 		globalProgramOutSize = outSize;
 	}
 }
@@ -7,20 +7,24 @@ import compiler.data.acc.OffsetAccess;
 import compiler.data.acc.StaticAccess;
 import compiler.data.ast.*;
 import compiler.data.ast.attr.Attributes;
-import compiler.data.ast.code.FullVisitor;
+import compiler.data.ast.code.FusibleVisitor;
+import compiler.data.ast.code.NullVisitor;
+import compiler.data.ast.code.Visitor;
 import compiler.data.frm.Frame;
 import compiler.data.typ.PtrTyp;
+import compiler.data.typ.RecTyp;
 import compiler.data.typ.Typ;
 import compiler.data.typ.VoidTyp;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Frame and access evaluator.
  *
  * @author sliva
  */
-public class EvalFrames extends FullVisitor {
+public class EvalFrames extends FusibleVisitor {
 
 	private final Attributes attrs;
 
@@ -35,6 +39,9 @@ public class EvalFrames extends FullVisitor {
 
 	private ArrayList<String> topLevelLabels;
 
+	private long[] saved = new long[16]; //Values of the enclosing function, restored when it is left
+	private int numSaved = 0;
+
 	public EvalFrames(Attributes attrs) {
 		this.attrs = attrs;
 		level = 0;
@@ -42,32 +49,71 @@ public class EvalFrames extends FullVisitor {
 	}
 
 
-	@Override
-	public void visit(WhereExpr whereExpr) {
-		//As always reverse the ordering
+	//NOTE: run by a FusedVisitor, which (as always) visits declarations of a where expression before its expression
+	private final Visitor preVisitor = new NullVisitor() {
+		@Override
+		public void visit(FunDef funDef) {
+			//Backup prevous values
+			save(localVariablesSize);
+			save(parametersSize);
+
+			//reset for this function values
+			localVariablesSize = 0;
+			parametersSize = 0;
 
-		for (int d = 0; d < whereExpr.numDecls(); d++) {
-			whereExpr.decl(d).accept(this);
+			parametersSize += new PtrTyp(new VoidTyp()).size(); //Add the size of a pointer for the static pointer
+
+			level++;
 		}
 
-		whereExpr.expr.accept(this);
-	}
+		@Override
+		public void visit(FunDecl funDecl) {
+			//Backup prevous values
+			save(parametersSize);
 
+			//reset for this function values
+			parametersSize = 0;
+
+			parametersSize += new PtrTyp(new VoidTyp()).size(); //Add the size of a pointer for the static pointer
+
+			level++;
+		}
+	};
 
 	@Override
-	public void visit(FunDef funDef) {
-		//Backup prevous values
-		long variableBak = localVariablesSize;
-		long parametersSizeBak = parametersSize;
+	public Visitor preVisitor() {
+		return preVisitor;
+	}
+
+	private void save(long value) {
+		if (numSaved == saved.length) {
+			saved = Arrays.copyOf(saved, 2 * saved.length);
+		}
+		saved[numSaved++] = value;
+	}
 
-		//reset for this function values
-		localVariablesSize = 0;
-		parametersSize = 0;
+	private long restore() {
+		return saved[--numSaved];
+	}
+
+	/**
+	 * Computes the input call size of a function (the same as in its frame)
+	 * from the types of its parameters and result, so that it is known before
+	 * the function itself is visited.
+	 */
+	static long inpCallSize(FunDecl funDecl, Attributes attrs) {
+		long parametersSize = new PtrTyp(new VoidTyp()).size();
+		for (int p = 0; p < funDecl.numPars(); p++) {
+			Typ t = attrs.typAttr.get(funDecl.par(p));
+			parametersSize += attrs.typLayout.size(t);
+			parametersSize += attrs.typLayout.padding(t);
+		}
+		return Math.max(parametersSize, attrs.typLayout.size(attrs.typAttr.get(funDecl.type)));
+	}
 
-		parametersSize += new PtrTyp(new VoidTyp()).size(); //Add the size of a pointer for the static pointer
 
-		level++;
-		super.visit(funDef);
+	@Override
+	public void visit(FunDef funDef) {
 		level--;
 
 		String label;
@@ -82,7 +128,7 @@ public class EvalFrames extends FullVisitor {
 			nestedFunctionCounter++;
 		}
 
-		long inpCallSize = Math.max(parametersSize, attrs.typAttr.get(funDef.type).actualTyp().size());
+		long inpCallSize = Math.max(parametersSize, attrs.typLayout.size(attrs.typAttr.get(funDef.type)));
 
 		//NOTE: level + 1 is so that the function level is the same as the level of variables inside the function
 		//			this should not effect any other check, since difference between function levels remains the same
@@ -91,22 +137,12 @@ public class EvalFrames extends FullVisitor {
 
 
 		//Restore previous values
-		localVariablesSize = variableBak;
-		parametersSize = parametersSizeBak;
+		parametersSize = restore();
+		localVariablesSize = restore();
 	}
 
 	@Override
 	public void visit(FunDecl funDecl) {
-		//Backup prevous values
-		long parametersSizeBak = parametersSize;
-
-		//reset for this function values
-		parametersSize = 0;
-
-		parametersSize += new PtrTyp(new VoidTyp()).size(); //Add the size of a pointer for the static pointer
-
-		level++;
-		super.visit(funDecl);
 		level--;
 
 		String label;
@@ -123,24 +159,24 @@ public class EvalFrames extends FullVisitor {
 						   "Non top-level function declaration found. This function is not visible outside of the local scope (" + funDecl.name + ").");
 		}
 
-		long inpCallSize = Math.max(parametersSize, attrs.typAttr.get(funDecl.type).actualTyp().size());
+		long inpCallSize = Math.max(parametersSize, attrs.typLayout.size(attrs.typAttr.get(funDecl.type)));
 
 		Frame frame = new Frame(level, label, inpCallSize, 0, 0, 0, 0);
 		attrs.frmAttr.set(funDecl, frame);
 
 
 		//Restore previous values
-		parametersSize = parametersSizeBak;
+		parametersSize = restore();
 
 	}
 
 
 	@Override
 	public void visit(VarDecl varDecl) {
-		super.visit(varDecl);
-		Typ t = attrs.typAttr.get(varDecl).actualTyp();
-		localVariablesSize += t.size();
-		localVariablesSize += t.padding();
+		Typ t = attrs.typAttr.get(varDecl);
+		long size = attrs.typLayout.size(t);
+		localVariablesSize += size;
+		localVariablesSize += attrs.typLayout.padding(t);
 
 
 		Access acc;
@@ -152,11 +188,11 @@ public class EvalFrames extends FullVisitor {
 			}
 			topLevelLabels.add(label);
 
-			acc = new StaticAccess(label, t.size());
+			acc = new StaticAccess(label, size);
 		} else {
 			//stack variable
 			long offset = -localVariablesSize;
-			acc = new OffsetAccess(level, offset, t.size());
+			acc = new OffsetAccess(level, offset, size);
 		}
 
 		attrs.accAttr.set(varDecl, acc);
@@ -165,45 +201,26 @@ public class EvalFrames extends FullVisitor {
 
 	@Override
 	public void visit(ParDecl parDecl) {
-		super.visit(parDecl);
-
 		Typ t = attrs.typAttr.get(parDecl);
-		t = t.actualTyp();
+		long size = attrs.typLayout.size(t);
 
 		//For parameters offset goes before increment (since they go the other way)
-		Access acc = new OffsetAccess(level, parametersSize, t.size());
+		Access acc = new OffsetAccess(level, parametersSize, size);
 		attrs.accAttr.set(parDecl, acc);
 
-		parametersSize += t.size();
-		parametersSize += t.padding();
-
+		parametersSize += size;
+		parametersSize += attrs.typLayout.padding(t);
 	}
 
-	private long recordSize;
-
 	@Override
 	public void visit(RecType recType) {
-		//Not necessary, just good practice
-		long recordSizeBak = recordSize;
-
-		recordSize = 0;
-		super.visit(recType);
-
-		recordSize = recordSizeBak;
-	}
-
-	@Override
-	public void visit(CompDecl compDecl) {
-		super.visit(compDecl);
-		Typ t = attrs.typAttr.get(compDecl);
-		t = t.actualTyp();
-
-		Access a = new OffsetAccess(-1, recordSize, t.size());
-		recordSize += t.size();
-		recordSize  += t.padding();
-
-
-		attrs.accAttr.set(compDecl, a);
+		//Components are placed one after another (with their paddings)
+		RecTyp recTyp = (RecTyp) attrs.typAttr.get(recType);
+		for (int c = 0; c < recType.numComps(); c++) {
+			Typ t = recTyp.compTyp(c);
+			Access a = new OffsetAccess(-1, attrs.typLayout.offset(recTyp, c), attrs.typLayout.size(t));
+			attrs.accAttr.set(recType.comp(c), a);
+		}
 	}
 
 }
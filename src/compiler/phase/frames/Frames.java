@@ -29,8 +29,10 @@ public class Frames extends Phase {
 	 */
 	@Override
 	public void close() {
-		if (logger != null)
-			(new FramesToXML(logger, true, task.prgAttrs)).visit(task.prgAST);
+		if (logger != null) {
+			task.logFilter.select(task.prgAST, task.prgAttrs);
+			(new FramesToXML(logger, true, task.prgAttrs, task.logFilter)).visit(task.prgAST);
+		}
 		super.close();
 	}
 
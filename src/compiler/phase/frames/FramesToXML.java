@@ -1,5 +1,6 @@
 package compiler.phase.frames;
 
+import compiler.common.logger.LogFilter;
 import compiler.common.logger.Logger;
 import compiler.data.ast.*;
 import compiler.data.ast.attr.Attributes;
@@ -36,9 +37,11 @@ public class FramesToXML extends SemAnToXML {
 	 *            Whether begin and end elements are produced or not.
 	 * @param attrs
 	 *            Semantic attributes associated with AST nodes.
+	 * @param filter
+	 *            The filter selecting the subtrees that are printed out.
 	 */
-	public FramesToXML(Logger logger, boolean boxed, Attributes attrs) {
-		super(logger, false, attrs);
+	public FramesToXML(Logger logger, boolean boxed, Attributes attrs, LogFilter filter) {
+		super(logger, false, attrs, filter);
 		this.boxed = boxed;
 		this.attrs = attrs;
 	}
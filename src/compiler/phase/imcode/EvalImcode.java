@@ -168,14 +168,15 @@ public class EvalImcode extends FullVisitor {
 				if(!(left instanceof MEM)) throw new InternalCompilerError();
 				left = ((MEM) left).addr;
 
-				BINOP indexedAccess = new BINOP(BINOP.Oper.MUL, right, new CONST(t.size()));
-				code = new MEM(new BINOP(BINOP.Oper.ADD, left, indexedAccess), t.size());
+				long elemSize = attrs.typLayout.size(t);
+				BINOP indexedAccess = new BINOP(BINOP.Oper.MUL, right, new CONST(elemSize));
+				code = new MEM(new BINOP(BINOP.Oper.ADD, left, indexedAccess), elemSize);
 				break;
 			case REC:
 				//We need to remove the variable dereferencement on the left
 				if(!(left instanceof MEM)) throw new InternalCompilerError();
 				left = ((MEM) left).addr;
-				code = new MEM(new BINOP(BINOP.Oper.ADD, left, right), t.size());
+				code = new MEM(new BINOP(BINOP.Oper.ADD, left, right), attrs.typLayout.size(t));
 				break;
 			default:
 				throw new InternalCompilerError();
@@ -203,7 +204,7 @@ public class EvalImcode extends FullVisitor {
 				break;
 			case VAL:
 				Typ t = attrs.typAttr.get(unExpr);
-				code = new MEM(expr, t.size());
+				code = new MEM(expr, attrs.typLayout.size(t));
 				break;
 			case MEM:
 				if(!(expr instanceof MEM)) throw new InternalCompilerError();
@@ -311,7 +312,7 @@ public class EvalImcode extends FullVisitor {
 			StaticAccess acc = (StaticAccess) a;
 			code = new NAME(acc.label);
 		}
-		code = new MEM((IMCExpr) code, t.size());
+		code = new MEM((IMCExpr) code, attrs.typLayout.size(t));
 
 		attrs.imcAttr.set(varName, code);
 	}
@@ -349,7 +350,7 @@ public class EvalImcode extends FullVisitor {
 			Typ t = attrs.typAttr.get(arg);
 
 			exprs.add(code);
-			widths.add(t.size());
+			widths.add(attrs.typLayout.size(t));
 		}
 
 		IMC code = new CALL(frame.label, exprs, widths);
@@ -513,7 +514,7 @@ public class EvalImcode extends FullVisitor {
 		if (a instanceof StaticAccess) {
 			StaticAccess acc = (StaticAccess) a;
 			Typ t = attrs.typAttr.get(varDecl);
-			DataFragment fragment = new DataFragment(acc.label, t.size());
+			DataFragment fragment = new DataFragment(acc.label, attrs.typLayout.size(t));
 
 			fragments.put(acc.label, fragment);
 		}
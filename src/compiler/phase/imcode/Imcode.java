@@ -26,8 +26,10 @@ public class Imcode extends Phase {
 	 */
 	@Override
 	public void close() {
-		if (logger != null)
-			(new ImcodeToXML(logger, true, task.prgAttrs)).visit(task.prgAST);
+		if (logger != null) {
+			task.logFilter.select(task.prgAST, task.prgAttrs);
+			(new ImcodeToXML(logger, true, task.prgAttrs, task.logFilter)).visit(task.prgAST);
+		}
 		super.close();
 	}
 
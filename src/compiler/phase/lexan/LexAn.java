@@ -1,12 +1,18 @@
 package compiler.phase.lexan;
 
 import compiler.Task;
+import compiler.common.names.Names;
 import compiler.common.report.PhaseErrors.LexAnError;
 import compiler.common.report.Position;
-import compiler.common.report.Report;
+import compiler.common.report.InternalCompilerError;
 import compiler.phase.Phase;
+import compiler.phase.Workers;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
@@ -34,9 +40,20 @@ public class LexAn extends Phase {
 
 
 	/**
-	 * The source file.
+	 * The contents of the source file.
 	 */
-	private PushbackInputStream src;
+	private byte[] src;
+
+	/**
+	 * The index of the next character of the source file.
+	 */
+	private int srcPos;
+
+	/**
+	 * The index past the last character scanned (the end of file is reported
+	 * here).
+	 */
+	private int srcEnd;
 
 	/**
 	 * Constructs a new lexical analyzer.
@@ -50,13 +67,14 @@ public class LexAn extends Phase {
 	public LexAn(Task task) {
 		super(task, "lexan");
 
-		// Open the source file.
+		// Read the entire source file at once, it is scanned by index.
 		try {
-			//srcFile = new FileReader(this.task.srcFName);
-			src = new PushbackInputStream(new FileInputStream(this.task.srcFName));
-		} catch (FileNotFoundException ex) {
+			src = Files.readAllBytes(Paths.get(this.task.srcFName));
+		} catch (IOException ex) {
 			throw new LexAnError("Source file '" + this.task.srcFName + "' not found.");
 		}
+		srcPos = 0;
+		srcEnd = src.length;
 
 		currLine = 1;
 		currColumn = 0;
@@ -67,45 +85,269 @@ public class LexAn extends Phase {
 	}
 
 	/**
-	 * Terminates lexical analysis. Closes the source file and, if logging has
-	 * been requested, this method produces the report by closing the logger.
+	 * Constructs a new lexical analyzer of a chunk of the source file. The
+	 * chunk must start at the beginning of a line; its lines are numbered
+	 * from 1 and its end is reported as the end of file.
+	 */
+	private LexAn(LexAn lexAn, int begin, int end) {
+		super(lexAn.task, "lexan", false);
+
+		src = lexAn.src;
+		srcPos = begin;
+		srcEnd = end;
+
+		currLine = 1;
+		currColumn = 0;
+		prevLine = 1;
+		prevColumn = 1;
+
+		errorReport = "";
+	}
+
+	/**
+	 * Terminates lexical analysis. Releases the source file and, if logging
+	 * has been requested, this method produces the report by closing the
+	 * logger.
 	 */
 	@Override
 	public void close() {
-		// Close the source file.
-		if (src != null) {
-			try {
-				src.close();
-			} catch (IOException ex) {
-				Report.warning("Source file '" + task.srcFName + "' cannot be closed.");
-			}
-		}
+		src = null;
 		super.close();
 	}
 
 	//Lang definitions
 
-	private static final String[] symbols =
-			{"+", "&", "=", ":", ",", "}", "]", ")", ".", "/", "==", ">=", ">",
-					"<=", "<", "@", "%", "*", "!=", "!", "{", "[", "(", "|", "-", "^"};
-
-	private static final Character[] symbols_starters =  //also includes symbol enders '='
-			{'+', '&', '=', ':', ',', '}', ']', ')', '.', '/', '=', '>', '>',
-					'<', '<', '@', '%', '*', '!', '!', '{', '[', '(', '|', '-', '^'};
+	//Symbols consisting of a single character that is never followed by another one
+	private static final String symbolChars = "+&:,}]).%/@*{[(|-^";
+
+	//Symbols that may also be followed by '=' (which is a symbol itself)
+	private static final String symbolPrefixChars = "<>!";
+
+	//Lexemes denoting fixed tokens (keywords and symbols) together with their tokens
+	private static final String[] fixedLexemes = {
+			"false", "true", "null", "none",
+			"integer", "boolean", "char", "string", "void",
+			"arr", "else", "end", "for", "fun", "if", "then", "ptr", "rec", "typ", "var", "where", "while",
+			"+", "&", "=", ":", ",", "}", "]", ")", ".", "/", "==", ">=", ">",
+			"<=", "<", "@", "%", "*", "!=", "!", "{", "[", "(", "|", "-", "^"};
+
+	private static final Symbol.Token[] fixedTokens = {
+			Symbol.Token.CONST_BOOLEAN, Symbol.Token.CONST_BOOLEAN, Symbol.Token.CONST_NULL, Symbol.Token.CONST_NONE,
+			Symbol.Token.INTEGER, Symbol.Token.BOOLEAN, Symbol.Token.CHAR, Symbol.Token.STRING, Symbol.Token.VOID,
+			Symbol.Token.ARR, Symbol.Token.ELSE, Symbol.Token.END, Symbol.Token.FOR, Symbol.Token.FUN,
+			Symbol.Token.IF, Symbol.Token.THEN, Symbol.Token.PTR, Symbol.Token.REC, Symbol.Token.TYP,
+			Symbol.Token.VAR, Symbol.Token.WHERE, Symbol.Token.WHILE,
+			Symbol.Token.ADD, Symbol.Token.AND, Symbol.Token.ASSIGN, Symbol.Token.COLON, Symbol.Token.COMMA,
+			Symbol.Token.CLOSING_BRACE, Symbol.Token.CLOSING_BRACKET, Symbol.Token.CLOSING_PARENTHESIS,
+			Symbol.Token.DOT, Symbol.Token.DIV, Symbol.Token.EQU, Symbol.Token.GEQ, Symbol.Token.GTH,
+			Symbol.Token.LEQ, Symbol.Token.LTH, Symbol.Token.MEM, Symbol.Token.MOD, Symbol.Token.MUL,
+			Symbol.Token.NEQ, Symbol.Token.NOT, Symbol.Token.OPENING_BRACE, Symbol.Token.OPENING_BRACKET,
+			Symbol.Token.OPENING_PARENTHESIS, Symbol.Token.OR, Symbol.Token.SUB, Symbol.Token.VAL};
 
 
 	private enum State {
-		NONE, WS, COMM, WORD, STRCON, CHARCON, INTCON, SYMBOL, EOF
+		NONE, WS, COMM, WORD, STRCON, CHARCON, INTCON, SYMBOL, SYMBOL_PREFIX, EOF
 	}
 
 	private enum CharId {
-		HASH, ALPHA, DIGIT, USCORE, DQUOTE, SQUOTE, SYMB, BSLASH,
+		HASH, ALPHA, DIGIT, USCORE, DQUOTE, SQUOTE, SYMB, SYMB_PREFIX, EQUALS, BSLASH,
 		NL, OTHER_WS,
 		EOF, ERROR
 	}
 
 	private enum EndFlag {
-		NONE, END, END_PB, THROW_AWAY
+		NONE, END, END_PB, THROW_AWAY,
+		END_QUOTE, //END unless the quote is escaped
+		UNKNOWN_CHAR, UNREACHABLE
+	}
+
+	/**
+	 * FSM tables (generated from the transitions below when the class is loaded)
+	 */
+
+	//The character class of every ASCII character
+	private static final CharId[] charIds = new CharId[128];
+
+	//The next state and the action for every state and character class
+	private static final State[][] nextStates = new State[State.values().length][CharId.values().length];
+	private static final EndFlag[][] endFlags = new EndFlag[State.values().length][CharId.values().length];
+
+	//The perfect hash table of fixed lexemes
+	private static final int fixedSlotCount = 256;
+	private static final byte[][] fixedSlotLexemes = new byte[fixedSlotCount][];
+	private static final Symbol.Token[] fixedSlotTokens = new Symbol.Token[fixedSlotCount];
+	private static int fixedHashSeed;
+
+	static {
+		for (char c = 0; c < charIds.length; c++) {
+			charIds[c] = identify(c);
+		}
+
+		for (State s : State.values()) {
+			for (CharId id : CharId.values()) {
+				transition(s, id);
+			}
+		}
+
+		//Find a seed for which no two fixed lexemes share a slot
+		for (fixedHashSeed = 1; ; fixedHashSeed++) {
+			Arrays.fill(fixedSlotLexemes, null);
+			boolean perfect = true;
+			for (int l = 0; l < fixedLexemes.length && perfect; l++) {
+				byte[] lexeme = fixedLexemes[l].getBytes(StandardCharsets.US_ASCII);
+				int slot = fixedHash(lexeme, 0, lexeme.length);
+				if (fixedSlotLexemes[slot] != null) {
+					perfect = false;
+				} else {
+					fixedSlotLexemes[slot] = lexeme;
+					fixedSlotTokens[slot] = fixedTokens[l];
+				}
+			}
+			if (perfect) break;
+		}
+	}
+
+	private static CharId identify(char c) {
+		if (c == '\'') return CharId.SQUOTE;
+		else if (c == '\\') return CharId.BSLASH;
+		else if (c == '"') return CharId.DQUOTE;
+		else if (c == '#') return CharId.HASH;
+		else if (c == '_') return CharId.USCORE;
+		else if (c == '\n') return CharId.NL;
+		else if (Character.isWhitespace(c)) return CharId.OTHER_WS;
+		else if (c == '=') return CharId.EQUALS;
+		else if (symbolPrefixChars.indexOf(c) >= 0) return CharId.SYMB_PREFIX;
+		else if (symbolChars.indexOf(c) >= 0) return CharId.SYMB;
+		else if (Character.isLetter(c)) return CharId.ALPHA;
+		else if (Character.isDigit(c)) return CharId.DIGIT;
+		else return CharId.ERROR;
+	}
+
+	private static void transition(State s, CharId id) {
+		State next = s;
+		EndFlag flag = EndFlag.NONE;
+
+		switch (s) {
+			case NONE:
+				switch (id) {
+					case NL:
+					case OTHER_WS:
+						//handle whitespace
+						next = State.WS;
+						flag = EndFlag.THROW_AWAY;
+						break;
+					case HASH:
+						next = State.COMM;
+						break;
+					case SYMB:
+						next = State.SYMBOL;
+						break;
+					case SYMB_PREFIX:
+					case EQUALS:
+						next = State.SYMBOL_PREFIX;
+						break;
+					case SQUOTE:
+						next = State.CHARCON;
+						break;
+					case DQUOTE:
+						next = State.STRCON;
+						break;
+					case USCORE:
+					case ALPHA:
+						next = State.WORD;
+						break;
+					case DIGIT:
+						next = State.INTCON;
+						break;
+					case EOF:
+						next = State.EOF;
+						flag = EndFlag.END;
+						break;
+					case ERROR:
+					default:
+						flag = EndFlag.UNKNOWN_CHAR;
+				}
+				break;
+			case COMM:
+				switch (id) {
+					case NL:
+					case EOF:
+						flag = EndFlag.THROW_AWAY;
+						break;
+				}
+				break;
+			case CHARCON:
+				switch (id) {
+					case SQUOTE:
+						flag = EndFlag.END_QUOTE;
+						break;
+					case EOF:
+						flag = EndFlag.END_PB;
+						break;
+				}
+				break;
+			case INTCON:
+				switch (id) {
+					case DIGIT:
+						break;
+					default:
+						flag = EndFlag.END_PB;
+				}
+				break;
+			case STRCON:
+				switch (id) {
+					case DQUOTE:
+						flag = EndFlag.END_QUOTE;
+						break;
+					case EOF:
+						flag = EndFlag.END_PB;
+						break;
+				}
+				break;
+			case SYMBOL:
+				flag = EndFlag.END_PB;
+				break;
+			case SYMBOL_PREFIX:
+				flag = (id == CharId.EQUALS) ? EndFlag.END : EndFlag.END_PB;
+				break;
+			case WORD:
+				switch (id) {
+					case USCORE:
+					case DIGIT:
+					case ALPHA:
+						break;
+					default:
+						flag = EndFlag.END_PB;
+				}
+				break;
+			default:
+				flag = EndFlag.UNREACHABLE;
+		}
+
+		nextStates[s.ordinal()][id.ordinal()] = next;
+		endFlags[s.ordinal()][id.ordinal()] = flag;
+	}
+
+	private static int fixedHash(byte[] buf, int begin, int end) {
+		int h = fixedHashSeed;
+		for (int i = begin; i < end; i++) {
+			h = h * 31 + buf[i];
+		}
+		h ^= h >>> 16;
+		h *= 0x45d9f3b;
+		h ^= h >>> 16;
+		return h & (fixedSlotCount - 1);
+	}
+
+	//Returns the token of a keyword or a symbol or null if the lexeme is neither
+	private Symbol.Token fixedToken(int begin, int end) {
+		int slot = fixedHash(src, begin, end);
+		byte[] lexeme = fixedSlotLexemes[slot];
+		if (lexeme == null || lexeme.length != end - begin) return null;
+		for (int i = 0; i < lexeme.length; i++) {
+			if (lexeme[i] != src[begin + i]) return null;
+		}
+		return fixedSlotTokens[slot];
 	}
 
 	/**
@@ -118,7 +360,7 @@ public class LexAn extends Phase {
 	private int prevLine;
 	private State state;
 	private EndFlag endFlag;
-	private StringBuilder lexeme;
+	private int lexemeBegin;
 	private String errorReport;
 
 	/**
@@ -127,196 +369,338 @@ public class LexAn extends Phase {
 	 * @return The next lexical symbol.
 	 */
 	public Symbol lexAn() {
-		Symbol sym;
-
-		//First of all clear the lexer
+		Symbol.Token token = scan();
+		Symbol sym = createSymbol(token);
 		clearLexer();
 
-		try {
+		log(sym);
+		validate(token, sym.lexeme);
+
+		return sym;
+	}
+
+	/**
+	 * Lexes the entire source file at once.
+	 * <p>
+	 * Instead of symbols, the tokens are stored in a token buffer. A lexical
+	 * error does not stop the method but is recorded in the buffer, and
+	 * symbols are not logged; they are logged by
+	 * {@link #log(TokenBuffer, int) log} when the parser reaches them.
+	 *
+	 * @return The tokens of the source file.
+	 */
+	public TokenBuffer lexAll() {
+		TokenBuffer tokens = new TokenBuffer(this.task.srcFName, src, src.length);
+
+		int numChunks = (task.jobs == 1) ? 1 : Math.min(4 * task.jobs, src.length / minChunkSize);
+		if (numChunks < 2) {
+			lexTokens(tokens);
+			return tokens;
+		}
+
+		// Split the source file right after newlines and lex the chunks in parallel.
+		ArrayList<Integer> chunkBounds = new ArrayList<>();
+		chunkBounds.add(0);
+		for (int c = 1; c < numChunks; c++) {
+			int bound = (int) ((long) src.length * c / numChunks);
+			while (bound < src.length && src[bound - 1] != '\n') {
+				bound++;
+			}
+			if (bound < src.length && bound > chunkBounds.get(chunkBounds.size() - 1)) {
+				chunkBounds.add(bound);
+			}
+		}
+		chunkBounds.add(src.length);
+		ArrayList<Integer> chunkIdxs = new ArrayList<>();
+		for (int c = 0; c < chunkBounds.size() - 1; c++) {
+			chunkIdxs.add(c);
+		}
+		ArrayList<Chunk> chunks = Workers.map(task, chunkIdxs,
+				c -> new LexAn(this, chunkBounds.get(c), chunkBounds.get(c + 1)).lexChunk());
+
+		// Glue the chunks together. A chunk can only be used if the previous
+		// one ended at its beginning (i.e., no string or char constant contains
+		// the newline the chunks have been split at) and if it has been lexed
+		// without errors (the positions in error messages would be wrong).
+		// Otherwise the source file is lexed sequentially until the beginning
+		// of the next chunk that can be used.
+		int c = 0;
+		while (c < chunks.size()) {
+			Chunk chunk = chunks.get(c);
+			if (chunk.clean && srcPos == chunkBounds.get(c)) {
+				boolean last = c == chunks.size() - 1;
+				tokens.append(chunk.tokens, chunk.tokens.size() - (last ? 0 : 1), currLine - 1);
+				currLine += chunk.lines;
+				srcPos = chunkBounds.get(c + 1);
+				if (last) {
+					return tokens;
+				}
+				c++;
+				continue;
+			}
 
-			// Read character loop
 			while (true) {
+				int t = tokens.size();
+				int prevEnd = srcPos;
+				Symbol.Token token;
+				try {
+					token = scan();
+				} catch (LexAnError error) {
+					tokens.fail(error, t);
+					return tokens;
+				}
 
-				int curr = src.read();
-				this.currColumn++;
+				// Start using chunks again if a chunk starts in front of this
+				// symbol but after the previous one.
+				int next = c;
+				while (next + 1 < chunks.size() && chunkBounds.get(next + 1) <= lexemeBegin) {
+					next++;
+				}
+				if (next > c && chunkBounds.get(next) >= prevEnd) {
+					currLine = prevLine - numNewlines(chunkBounds.get(next), lexemeBegin);
+					currColumn = 0;
+					srcPos = chunkBounds.get(next);
+					c = next;
+					break;
+				}
 
-				Character c;
-				CharId id;
+				tokens.add(token, lexemeBegin, srcPos, prevLine, prevColumn);
+				clearLexer();
+				try {
+					validate(token, tokens, t);
+				} catch (LexAnError error) {
+					tokens.fail(error, t);
+					return tokens;
+				}
+				if (token == Symbol.Token.EOF) {
+					return tokens;
+				}
+			}
+		}
+		throw new InternalCompilerError();
+	}
 
-				// HACK
-				if (curr == -1) {
-					c = '\0';
-					id = CharId.EOF;
-				} else {
-					c = (char) (0xFF & curr);
-					//Check if character is ascii char
-					if((curr & 0x80) != 0) {
-						throw new LexAnError( getPosition() + " Non-ascii character with code: <"  + curr + "> !");
+	/**
+	 * Lexes the source file on a separate thread while the parser is already
+	 * using the tokens.
+	 * <p>
+	 * The tokens are passed to the returned token buffer in batches through
+	 * a bounded queue; the parser must call {@link TokenBuffer#await(int)
+	 * await} before it moves to a token and {@link TokenBuffer#stopReceiving()
+	 * stopReceiving} when it is done. Lexical errors are recorded and symbols
+	 * are logged just as by {@link #lexAll() lexAll}.
+	 *
+	 * @return The tokens of the source file.
+	 */
+	public TokenBuffer lexPipelined() {
+		TokenQueue queue = new TokenQueue(queueCapacity);
+		Thread producer = new Thread(() -> {
+			try {
+				TokenBuffer batch = new TokenBuffer(this.task.srcFName, src, 4 * batchSize);
+				Symbol.Token token = null;
+				while (token != Symbol.Token.EOF && !queue.isClosed()) {
+					int t = batch.size();
+					try {
+						token = scan();
+						batch.add(token, lexemeBegin, srcPos, prevLine, prevColumn);
+						clearLexer();
+						validate(token, batch, t);
+					} catch (LexAnError error) {
+						batch.fail(error, t);
+						break;
+					} catch (RuntimeException ex) {
+						batch.fail(new LexAnError(getPosition() + " Lexer: " + ex), t);
+						break;
+					}
+					if (batch.size() == batchSize) {
+						queue.put(batch);
+						batch = new TokenBuffer(this.task.srcFName, src, 4 * batchSize);
 					}
+				}
+				queue.put(batch);
+			} catch (Throwable error) {
+				// The parser would otherwise wait for the last batch forever.
+				queue.fail(error);
+			}
+		}, "lexan");
+		producer.setDaemon(true);
+		producer.start();
+		return new TokenBuffer(this.task.srcFName, src, src.length, queue);
+	}
+
+	/**
+	 * The number of tokens passed from the lexical analyzer to the parser at
+	 * once and the maximal number of such batches waiting for the parser.
+	 */
+	private static final int batchSize = 1024;
+	private static final int queueCapacity = 64;
+
+	/**
+	 * The minimal size of a chunk of the source file lexed in parallel.
+	 */
+	private static final int minChunkSize = 1 << 18;
+
+	/**
+	 * The tokens of a chunk of the source file.
+	 */
+	private static class Chunk {
+
+		/** The tokens (the last one denotes the end of the chunk). */
+		TokenBuffer tokens;
+
+		/** Whether the chunk has been lexed without errors and its last symbol ends in front of its end. */
+		boolean clean;
+
+		/** The number of lines of the chunk. */
+		int lines;
+
+	}
+
+	//Lexes a chunk of the source file
+	private Chunk lexChunk() {
+		Chunk chunk = new Chunk();
+		chunk.tokens = new TokenBuffer(this.task.srcFName, src, srcEnd - srcPos);
+		chunk.clean = lexTokens(chunk.tokens);
+		int last = chunk.tokens.size() - 2;
+		if (last >= 0 && srcEnd < src.length && chunk.tokens.end(last) >= srcEnd) {
+			chunk.clean = false;
+		}
+		chunk.lines = currLine - 1;
+		return chunk;
+	}
+
+	//Lexes the tokens up to the end of file or up to the first error and returns false in the latter case
+	private boolean lexTokens(TokenBuffer tokens) {
+		Symbol.Token token = null;
+		while (token != Symbol.Token.EOF) {
+			int t = tokens.size();
+			try {
+				token = scan();
+				tokens.add(token, lexemeBegin, srcPos, prevLine, prevColumn);
+				clearLexer();
+				validate(token, tokens, t);
+			} catch (LexAnError error) {
+				tokens.fail(error, t);
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Returns the number of newlines between the specified indices of the source file
+	private int numNewlines(int begin, int end) {
+		int newlines = 0;
+		for (int i = begin; i < end; i++) {
+			if (src[i] == '\n') {
+				newlines++;
+			}
+		}
+		return newlines;
+	}
+
+	/**
+	 * Logs the symbol at the specified index of the token buffer (if it
+	 * exists and if logging has been requested).
+	 *
+	 * @param tokens The token buffer.
+	 * @param t      The index of the symbol.
+	 */
+	public void log(TokenBuffer tokens, int t) {
+		if (logger == null || t >= tokens.size()) return;
+		log(tokens.symbol(t));
+	}
+
+	//Reads the next token; its lexeme and position are left in the FSM variables
+	private Symbol.Token scan() {
+		//First of all clear the lexer
+		clearLexer();
 
-					id = identify(c);
+		// Read character loop
+		while (true) {
+
+			int curr = (srcPos < srcEnd) ? (0xFF & src[srcPos]) : -1;
+			srcPos++;
+			this.currColumn++;
+
+			CharId id;
+
+			// HACK
+			if (curr == -1) {
+				id = CharId.EOF;
+			} else {
+				//Check if character is ascii char
+				if((curr & 0x80) != 0) {
+					throw new LexAnError( getPosition() + " Non-ascii character with code: <"  + curr + "> !");
 				}
 
-				lexeme.append(c);
+				id = charIds[curr];
+			}
 
+			if (DEBUG) {
 				debugOut.print(" ");
 				debugOut.print(state.name());
 				debugOut.print(" ");
-				debugOut.print(c.toString().replace("\n", "\\n").replace("\t", "\\t").replace(" ", "<space>"));
-
-				switch (state) {
-					case NONE:
-						switch (id) {
-							case NL:
-							case OTHER_WS:
-								//handle whitespace
-								state = State.WS;
-								endFlag = EndFlag.THROW_AWAY;
-								break;
-							case HASH:
-								state = State.COMM;
-								break;
-							case SYMB:
-								state = State.SYMBOL;
-								break;
-							case SQUOTE:
-								state = State.CHARCON;
-								break;
-							case DQUOTE:
-								state = State.STRCON;
-								break;
-							case USCORE:
-							case ALPHA:
-								state = State.WORD;
-								break;
-							case DIGIT:
-								state = State.INTCON;
-								break;
-							case EOF:
-								state = State.EOF;
-								endFlag = EndFlag.END;
-								break;
-							case ERROR:
-							default:
-								throw new LexAnError(getPosition() + " Unknown character: " + c);
-						}
-						break;
-					case COMM:
-						switch (id) {
-							case NL:
-							case EOF:
-								endFlag = EndFlag.THROW_AWAY;
-								break;
-							default:
-								state = State.COMM;
-						}
-						break;
-					case CHARCON:
-						switch (id) {
-							case SQUOTE:
-								if (lexeme.charAt(lexeme.length() - 2) != '\\') {
-									endFlag = EndFlag.END;
-								}
-								break;
-							case EOF:
-								endFlag = EndFlag.END_PB;
-								break;
-							default:
-								state = State.CHARCON;
-						}
-						break;
-					case INTCON:
-						switch (id) {
-							case DIGIT:
-								state = State.INTCON;
-								break;
-							default:
-								endFlag = EndFlag.END_PB;
-						}
-						break;
-					case STRCON:
-						switch (id) {
-							case DQUOTE:
-								if (lexeme.charAt(lexeme.length() - 2) != '\\') {
-									endFlag = EndFlag.END;
-								}
-								break;
-							case EOF:
-								endFlag = EndFlag.END_PB;
-								break;
-							default:
-								state = State.STRCON;
-						}
-						break;
-					case SYMBOL:
-						if(Arrays.asList(symbols).contains(lexeme.toString())){
-							endFlag = EndFlag.END;
-						} else {
-							endFlag = EndFlag.END_PB;
-						}
-						break;
-					case WORD:
-						switch (id) {
-							case USCORE:
-							case DIGIT:
-							case ALPHA:
-								state = State.WORD;
-								break;
-							default:
-								endFlag = EndFlag.END_PB;
-						}
-						break;
-					default:
-						throw new LexAnError(getPosition() + " Lexer: Unreachable statement reached");
-				}
+				debugOut.print(Character.toString((char) Math.max(curr, 0)).replace("\n", "\\n").replace("\t", "\\t").replace(" ", "<space>"));
+			}
 
-				debugOut.println(" --> " + state.name() + "(" + endFlag.name() + ")");
+			endFlag = endFlags[state.ordinal()][id.ordinal()];
+			state = nextStates[state.ordinal()][id.ordinal()];
 
-				if (endFlag == EndFlag.END) {
-					sym = createSymbol();
-					clearLexer();
+			switch (endFlag) {
+				case END_QUOTE:
+					endFlag = (src[srcPos - 2] != '\\') ? EndFlag.END : EndFlag.NONE;
 					break;
-				} else if (endFlag == EndFlag.END_PB) {
-					lexeme.setLength(lexeme.length() - 1);
+				case UNKNOWN_CHAR:
+					throw new LexAnError(getPosition() + " Unknown character: " + (char) curr);
+				case UNREACHABLE:
+					throw new LexAnError(getPosition() + " Lexer: Unreachable statement reached");
+			}
 
-					if (curr != -1) {
-						src.unread(curr);
-					}
-					this.currColumn--;
+			if (DEBUG) {
+				debugOut.println(" --> " + state.name() + "(" + endFlag.name() + ")");
+			}
 
-					sym = createSymbol();
-					clearLexer();
-					break;
-				} else if (endFlag == EndFlag.THROW_AWAY) {
-					if (id == CharId.NL) {
-						this.currColumn = 0;
-						this.currLine++;
-					}
-					clearLexer();
+			if (endFlag == EndFlag.END) {
+				return idToken(this.state);
+			} else if (endFlag == EndFlag.END_PB) {
+				//Push the last character back
+				srcPos--;
+				this.currColumn--;
+
+				return idToken(this.state);
+			} else if (endFlag == EndFlag.THROW_AWAY) {
+				if (id == CharId.NL) {
+					this.currColumn = 0;
+					this.currLine++;
 				}
-			} // the read char loop
+				clearLexer();
+			}
+		} // the read char loop
+	}
 
-			log(sym);
-		} catch (IOException e) {
-			throw new LexAnError(getPosition() + " Error reading character!");
+	//Checks the lexeme of a char or a string constant stored in a token buffer
+	private void validate(Symbol.Token token, TokenBuffer tokens, int t) {
+		if (token == Symbol.Token.CONST_CHAR || token == Symbol.Token.CONST_STRING) {
+			validate(token, tokens.lexeme(t));
 		}
+	}
 
-		if (sym.token == Symbol.Token.CONST_CHAR) {
-			if (!isValidCharConst(sym.lexeme)) {
-				throw new LexAnError(getPosition() + " Invalid char constant <" + sym.lexeme + ">");
+	//Checks the lexeme of a char or a string constant
+	private void validate(Symbol.Token token, String lexeme) {
+		if (token == Symbol.Token.CONST_CHAR) {
+			if (!isValidCharConst(lexeme)) {
+				throw new LexAnError(getPosition() + " Invalid char constant <" + lexeme + ">");
 			}
 		}
 
-		if (sym.token == Symbol.Token.CONST_STRING) {
-			if (!isValidStringConst(sym.lexeme)) {
+		if (token == Symbol.Token.CONST_STRING) {
+			if (!isValidStringConst(lexeme)) {
 				throw new LexAnError(getPosition()
 						+ " Invalid string constant <"
-						+ (sym.lexeme.length() <= 80 ? sym.lexeme : sym.lexeme.substring(0, 80) + "...")
+						+ (lexeme.length() <= 80 ? lexeme : lexeme.substring(0, 80) + "...")
 						+ "> " + errorReport);
 			}
 		}
-
-		return sym;
 	}
 
 	private boolean isValidStringConst(String lexeme) {
@@ -408,8 +792,16 @@ public class LexAn extends Phase {
 	}
 
 
+	/**
+	 * Returns the lexeme read so far (without the end of file).
+	 */
+	private String lexeme() {
+		int begin = Math.min(lexemeBegin, src.length);
+		return new String(src, begin, Math.min(srcPos, src.length) - begin, StandardCharsets.US_ASCII);
+	}
+
 	private void clearLexer() {
-		lexeme = new StringBuilder("");
+		lexemeBegin = srcPos;
 		state = State.NONE;
 		endFlag = EndFlag.NONE;
 
@@ -424,9 +816,7 @@ public class LexAn extends Phase {
 		);
 	}
 
-	private Symbol createSymbol() {
-		String lexemeString = this.lexeme.toString();
-		Symbol.Token token = idToken(this.state, lexemeString);
+	private Symbol createSymbol(Symbol.Token token) {
 		Position pos = getPosition();
 
 		boolean needLexeme;
@@ -437,36 +827,24 @@ public class LexAn extends Phase {
 			case CONST_BOOLEAN:
 			case CONST_CHAR:
 			case CONST_STRING:
-			case IDENTIFIER:
 				needLexeme = true;
 				break;
 			default:
 				needLexeme = false;
 		}
 
-		if (needLexeme) {
-			return new Symbol(token, lexemeString, pos);
+		if (token == Symbol.Token.IDENTIFIER) {
+			//Identifiers are interned, so every distinct name is created only once
+			return new Symbol(Names.id(src, lexemeBegin, srcPos), pos);
+		} else if (needLexeme) {
+			return new Symbol(token, lexeme(), pos);
 		} else {
 			return new Symbol(token, pos);
 		}
 
 	}
 
-	private CharId identify(char c) {
-		if (c == '\'') return CharId.SQUOTE;
-		else if (c == '\\') return CharId.BSLASH;
-		else if (c == '"') return CharId.DQUOTE;
-		else if (c == '#') return CharId.HASH;
-		else if (c == '_') return CharId.USCORE;
-		else if (c == '\n') return CharId.NL;
-		else if (Character.isWhitespace(c)) return CharId.OTHER_WS;
-		else if (Arrays.asList(symbols_starters).contains(c)) return CharId.SYMB;
-		else if (Character.isLetter(c)) return CharId.ALPHA;
-		else if (Character.isDigit(c)) return CharId.DIGIT;
-		else return CharId.ERROR;
-	}
-
-	private Symbol.Token idToken(State s, String lexeme) {
+	private Symbol.Token idToken(State s) {
 
 		switch (s) {
 			case CHARCON:
@@ -475,121 +853,18 @@ public class LexAn extends Phase {
 				return Symbol.Token.CONST_INTEGER;
 			case STRCON:
 				return Symbol.Token.CONST_STRING;
-			case WORD:
-				switch (lexeme) {
-					// Bool constants
-					case "false":
-					case "true":
-						return Symbol.Token.CONST_BOOLEAN;
-					// Ptr constant
-					case "null":
-						return Symbol.Token.CONST_NULL;
-					// Void constant
-					case "none":
-						return Symbol.Token.CONST_NONE;
-
-					// Types
-					case "integer":
-						return Symbol.Token.INTEGER;
-					case "boolean":
-						return Symbol.Token.BOOLEAN;
-					case "char":
-						return Symbol.Token.CHAR;
-					case "string":
-						return Symbol.Token.STRING;
-					case "void":
-						return Symbol.Token.VOID;
-
-					// Keywords
-					case "arr":
-						return Symbol.Token.ARR;
-					case "else":
-						return Symbol.Token.ELSE;
-					case "end":
-						return Symbol.Token.END;
-					case "for":
-						return Symbol.Token.FOR;
-					case "fun":
-						return Symbol.Token.FUN;
-					case "if":
-						return Symbol.Token.IF;
-					case "then":
-						return Symbol.Token.THEN;
-					case "ptr":
-						return Symbol.Token.PTR;
-					case "rec":
-						return Symbol.Token.REC;
-					case "typ":
-						return Symbol.Token.TYP;
-					case "var":
-						return Symbol.Token.VAR;
-					case "where":
-						return Symbol.Token.WHERE;
-					case "while":
-						return Symbol.Token.WHILE;
-
-					default:
-						return Symbol.Token.IDENTIFIER;
-				}
-
+			case WORD: {
+				Symbol.Token token = fixedToken(lexemeBegin, srcPos);
+				return (token == null) ? Symbol.Token.IDENTIFIER : token;
+			}
 			case SYMBOL:
-				switch (lexeme) {
-					case "+":
-						return Symbol.Token.ADD;
-					case "&":
-						return Symbol.Token.AND;
-					case "=":
-						return Symbol.Token.ASSIGN;
-					case ":":
-						return Symbol.Token.COLON;
-					case ",":
-						return Symbol.Token.COMMA;
-					case "}":
-						return Symbol.Token.CLOSING_BRACE;
-					case "]":
-						return Symbol.Token.CLOSING_BRACKET;
-					case ")":
-						return Symbol.Token.CLOSING_PARENTHESIS;
-					case ".":
-						return Symbol.Token.DOT;
-					case "/":
-						return Symbol.Token.DIV;
-					case "==":
-						return Symbol.Token.EQU;
-					case ">=":
-						return Symbol.Token.GEQ;
-					case ">":
-						return Symbol.Token.GTH;
-					case "<=":
-						return Symbol.Token.LEQ;
-					case "<":
-						return Symbol.Token.LTH;
-					case "@":
-						return Symbol.Token.MEM;
-					case "%":
-						return Symbol.Token.MOD;
-					case "*":
-						return Symbol.Token.MUL;
-					case "!=":
-						return Symbol.Token.NEQ;
-					case "!":
-						return Symbol.Token.NOT;
-					case "{":
-						return Symbol.Token.OPENING_BRACE;
-					case "[":
-						return Symbol.Token.OPENING_BRACKET;
-					case "(":
-						return Symbol.Token.OPENING_PARENTHESIS;
-					case "|":
-						return Symbol.Token.OR;
-					case "-":
-						return Symbol.Token.SUB;
-					case "^":
-						return Symbol.Token.VAL;
-
-					default:
-						throw new LexAnError(getPosition() + " Unknown symbol || " + lexeme + " ||");
+			case SYMBOL_PREFIX: {
+				Symbol.Token token = fixedToken(lexemeBegin, srcPos);
+				if (token == null) {
+					throw new LexAnError(getPosition() + " Unknown symbol || " + lexeme() + " ||");
 				}
+				return token;
+			}
 			case EOF:
 				return Symbol.Token.EOF;
 
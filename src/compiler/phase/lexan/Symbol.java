@@ -1,6 +1,7 @@
 package compiler.phase.lexan;
 
 import compiler.common.logger.Loggable;
+import compiler.common.names.Names;
 import compiler.common.logger.Logger;
 import compiler.common.report.Position;
 
@@ -260,6 +261,11 @@ public class Symbol extends Position implements Loggable {
 	 */
 	public final String lexeme;
 
+	/**
+	 * The ID of the identifier (or -1 if this symbol is not an identifier).
+	 */
+	public final int nameId;
+
 	/**
 	 * Constructs a new symbol.
 	 *
@@ -271,6 +277,20 @@ public class Symbol extends Position implements Loggable {
 		super(position);
 		this.token = token;
 		this.lexeme = lexeme;
+		this.nameId = -1;
+	}
+
+	/**
+	 * Constructs a new identifier.
+	 *
+	 * @param nameId   The ID of the identifier.
+	 * @param position The symbol's position.
+	 */
+	public Symbol(int nameId, Position position) {
+		super(position);
+		this.token = Token.IDENTIFIER;
+		this.lexeme = Names.name(nameId);
+		this.nameId = nameId;
 	}
 
 	/**
@@ -283,6 +303,7 @@ public class Symbol extends Position implements Loggable {
 		super(position);
 		this.token = token;
 		this.lexeme = null;
+		this.nameId = -1;
 	}
 
 	@Override
@@ -0,0 +1,272 @@
+package compiler.phase.lexan;
+
+import compiler.common.names.Names;
+import compiler.common.report.PhaseErrors.LexAnError;
+import compiler.common.report.Position;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The tokens of the entire source file, produced by
+ * {@link compiler.phase.lexan.LexAn#lexAll() lexAll}.
+ *
+ * <p>
+ * Instead of a {@link Symbol} per token, the buffer keeps parallel primitive
+ * arrays of token kinds, offsets of the first and past the last character of
+ * lexemes, and packed lines and columns of the first characters (about 17
+ * bytes per token). Tokens are accessed by index, so any token may be looked
+ * at any number of times; lexemes, positions and symbols are created only
+ * when asked for.
+ * </p>
+ *
+ * <p>
+ * A lexical error does not stop the lexical analyzer immediately: it is
+ * recorded with the index of the token it occurred at and is thrown by
+ * {@link #check(int) check} once that token is reached, so errors are
+ * reported in the same order as if the source file were lexed on demand.
+ * </p>
+ *
+ * <p>
+ * If the tokens are produced by {@link LexAn#lexPipelined() lexPipelined},
+ * the buffer is filled while the parser is already using it: before the
+ * parser moves to a token, it calls {@link #await(int) await}, which appends
+ * batches received from the lexical analyzer until the token is there.
+ * </p>
+ */
+public class TokenBuffer {
+
+	private static final Symbol.Token[] tokenValues = Symbol.Token.values();
+
+	/** The name of the source file. */
+	private final String fileName;
+
+	/** The contents of the source file. */
+	private final byte[] src;
+
+	/** The ordinals of the tokens. */
+	private byte[] kinds;
+
+	/** The offsets of the first characters of lexemes. */
+	private int[] begins;
+
+	/** The offsets past the last characters of lexemes. */
+	private int[] ends;
+
+	/** The lines (upper half) and the columns (lower half) of the first characters of lexemes. */
+	private long[] lineColumns;
+
+	/** The number of tokens. */
+	private int size;
+
+	/** The lexical error (or <code>null</code> if the entire file has been lexed). */
+	private LexAnError error;
+
+	/** The index of the token the lexical error occurred at. */
+	private int errorIndex;
+
+	/** The queue further tokens are received from (or <code>null</code> if all tokens are here). */
+	private TokenQueue queue;
+
+	TokenBuffer(String fileName, byte[] src, int length) {
+		this.fileName = fileName;
+		this.src = src;
+		// Roughly one token per four characters.
+		int capacity = Math.max(16, length / 4);
+		kinds = new byte[capacity];
+		begins = new int[capacity];
+		ends = new int[capacity];
+		lineColumns = new long[capacity];
+		size = 0;
+		error = null;
+		errorIndex = -1;
+		queue = null;
+	}
+
+	TokenBuffer(String fileName, byte[] src, int length, TokenQueue queue) {
+		this(fileName, src, length);
+		this.queue = queue;
+	}
+
+	void add(Symbol.Token token, int begin, int end, int line, int column) {
+		if (size == kinds.length) {
+			int capacity = 2 * size;
+			kinds = Arrays.copyOf(kinds, capacity);
+			begins = Arrays.copyOf(begins, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			lineColumns = Arrays.copyOf(lineColumns, capacity);
+		}
+		kinds[size] = (byte) token.ordinal();
+		begins[size] = begin;
+		ends[size] = end;
+		lineColumns[size] = ((long) line << 32) | (column & 0xFFFFFFFFL);
+		size++;
+	}
+
+	/**
+	 * Appends the first tokens of another buffer.
+	 *
+	 * @param tokens     The other buffer.
+	 * @param count      The number of tokens to append.
+	 * @param lineOffset The number added to the lines of the appended tokens.
+	 */
+	void append(TokenBuffer tokens, int count, int lineOffset) {
+		if (size + count > kinds.length) {
+			int capacity = Math.max(2 * kinds.length, size + count);
+			kinds = Arrays.copyOf(kinds, capacity);
+			begins = Arrays.copyOf(begins, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			lineColumns = Arrays.copyOf(lineColumns, capacity);
+		}
+		System.arraycopy(tokens.kinds, 0, kinds, size, count);
+		System.arraycopy(tokens.begins, 0, begins, size, count);
+		System.arraycopy(tokens.ends, 0, ends, size, count);
+		for (int t = 0; t < count; t++) {
+			lineColumns[size + t] = tokens.lineColumns[t] + ((long) lineOffset << 32);
+		}
+		size += count;
+	}
+
+	int end(int t) {
+		return ends[t];
+	}
+
+	void fail(LexAnError error, int index) {
+		this.error = error;
+		this.errorIndex = index;
+	}
+
+	/**
+	 * Returns the number of tokens in the buffer.
+	 *
+	 * @return The number of tokens.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Waits until the token at the specified index is in the buffer (or the
+	 * lexical error that occurred at it is known).
+	 *
+	 * @param t The index of the token.
+	 */
+	public void await(int t) {
+		while (t >= size && queue != null) {
+			TokenBuffer batch = queue.take();
+			if (batch.error != null) {
+				fail(batch.error, size + batch.errorIndex);
+			}
+			append(batch, batch.size, 0);
+			if (batch.error != null || (batch.size > 0 && batch.token(batch.size - 1) == Symbol.Token.EOF)) {
+				queue = null;
+			}
+		}
+	}
+
+	/**
+	 * Tells the lexical analyzer that no more tokens are needed.
+	 */
+	public void stopReceiving() {
+		if (queue != null) {
+			queue.close();
+			queue = null;
+		}
+	}
+
+	/**
+	 * Throws the lexical error if it occurred at the specified token.
+	 *
+	 * @param t The index of the token.
+	 */
+	public void check(int t) {
+		if (t == errorIndex) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Returns the token at the specified index.
+	 *
+	 * @param t The index of the token.
+	 * @return The token.
+	 */
+	public Symbol.Token token(int t) {
+		return tokenValues[kinds[t]];
+	}
+
+	/**
+	 * Returns the lexeme of the token at the specified index.
+	 *
+	 * @param t The index of the token.
+	 * @return The lexeme (without the end of file).
+	 */
+	public String lexeme(int t) {
+		int begin = Math.min(begins[t], src.length);
+		return new String(src, begin, Math.min(ends[t], src.length) - begin, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Returns the ID of the identifier at the specified index.
+	 *
+	 * @param t The index of the token.
+	 * @return The ID of the identifier.
+	 */
+	public int nameId(int t) {
+		return Names.id(src, begins[t], ends[t]);
+	}
+
+	/**
+	 * Returns the position of the token at the specified index.
+	 *
+	 * @param t The index of the token.
+	 * @return The position of the token.
+	 */
+	public Position position(int t) {
+		int line = (int) (lineColumns[t] >>> 32);
+		int column = (int) lineColumns[t];
+		// A lexeme never spans lines, and the end of file is a single column wide.
+		int endColumn = column + ends[t] - begins[t] - 1;
+		return new Position(fileName, line, column, fileName, line, endColumn);
+	}
+
+	/**
+	 * Returns the position spanning from the first to the last of the tokens
+	 * at the specified indices.
+	 *
+	 * @param begToken The index of the first token.
+	 * @param endToken The index of the last token.
+	 * @return The position of the tokens.
+	 */
+	public Position position(int begToken, int endToken) {
+		int begLine = (int) (lineColumns[begToken] >>> 32);
+		int begColumn = (int) lineColumns[begToken];
+		int endLine = (int) (lineColumns[endToken] >>> 32);
+		int endColumn = (int) lineColumns[endToken] + ends[endToken] - begins[endToken] - 1;
+		return new Position(fileName, begLine, begColumn, fileName, endLine, endColumn);
+	}
+
+	/**
+	 * Returns the token at the specified index as a symbol, exactly as
+	 * {@link LexAn#lexAn() lexAn} would have returned it.
+	 *
+	 * @param t The index of the token.
+	 * @return The symbol.
+	 */
+	public Symbol symbol(int t) {
+		Symbol.Token token = token(t);
+		switch (token) {
+			case IDENTIFIER:
+				return new Symbol(nameId(t), position(t));
+			case ERROR:
+			case CONST_INTEGER:
+			case CONST_BOOLEAN:
+			case CONST_CHAR:
+			case CONST_STRING:
+				return new Symbol(token, lexeme(t), position(t));
+			default:
+				return new Symbol(token, position(t));
+		}
+	}
+
+}
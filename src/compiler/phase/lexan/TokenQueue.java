@@ -0,0 +1,130 @@
+package compiler.phase.lexan;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue passing batches of tokens from the lexical analyzer running
+ * on its own thread to the parser.
+ *
+ * <p>
+ * The queue is a ring buffer with a single producer and a single consumer:
+ * the producer only writes {@link #tail}, the consumer only writes
+ * {@link #head}, and a batch is published to the consumer by the volatile
+ * write of {@link #tail}, so no locks are needed. A thread that has to wait
+ * for the other one spins briefly and then parks for short periods of time.
+ * </p>
+ *
+ * <p>
+ * If the producer dies of an unexpected error, the error is passed to the
+ * consumer, which rethrows it once it has taken all batches put before, so
+ * that it never waits for a batch that will not come.
+ * </p>
+ */
+class TokenQueue {
+
+	/** The batches. */
+	private final TokenBuffer[] batches;
+
+	/** The number of batches taken so far (written by the consumer only). */
+	private volatile long head;
+
+	/** The number of batches put so far (written by the producer only). */
+	private volatile long tail;
+
+	/** Whether the consumer has stopped taking batches. */
+	private volatile boolean closed;
+
+	/** The error the producer has died of (or <code>null</code> if none). */
+	private volatile Throwable failure;
+
+	/**
+	 * Constructs a new empty queue.
+	 *
+	 * @param capacity The maximal number of batches in the queue.
+	 */
+	TokenQueue(int capacity) {
+		batches = new TokenBuffer[capacity];
+		head = 0;
+		tail = 0;
+		closed = false;
+	}
+
+	/**
+	 * Puts a batch into the queue, waiting while the queue is full (called by
+	 * the producer).
+	 *
+	 * @param batch The batch.
+	 * @return <code>false</code> if the consumer has stopped taking batches.
+	 */
+	boolean put(TokenBuffer batch) {
+		long t = tail;
+		for (int waits = 0; t - head == batches.length; waits++) {
+			if (closed) {
+				return false;
+			}
+			backOff(waits);
+		}
+		batches[(int) (t % batches.length)] = batch;
+		tail = t + 1;
+		return !closed;
+	}
+
+	/**
+	 * Takes a batch from the queue, waiting while the queue is empty (called
+	 * by the consumer).
+	 *
+	 * @return The batch.
+	 */
+	TokenBuffer take() {
+		long h = head;
+		for (int waits = 0; h == tail; waits++) {
+			Throwable failure = this.failure;
+			// All batches put before the failure are visible once it is.
+			if (failure != null && h == tail) {
+				if (failure instanceof Error) {
+					throw (Error) failure;
+				}
+				throw (RuntimeException) failure;
+			}
+			backOff(waits);
+		}
+		int slot = (int) (h % batches.length);
+		TokenBuffer batch = batches[slot];
+		batches[slot] = null;
+		head = h + 1;
+		return batch;
+	}
+
+	/**
+	 * Passes the error the producer has died of to the consumer (called by
+	 * the producer instead of putting the last batch).
+	 *
+	 * @param failure The error (an unchecked exception or an error).
+	 */
+	void fail(Throwable failure) {
+		this.failure = failure;
+	}
+
+	/**
+	 * Tells the producer that no more batches will be taken (called by the
+	 * consumer).
+	 */
+	void close() {
+		closed = true;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	private static void backOff(int waits) {
+		if (waits < 64) {
+			Thread.onSpinWait();
+		} else if (waits < 128) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(50000);
+		}
+	}
+
+}
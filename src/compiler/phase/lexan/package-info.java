@@ -18,6 +18,15 @@
  * the symbol is returned.
  * </p>
  * 
+ * <p>
+ * Alternatively, method {@link compiler.phase.lexan.LexAn#lexAll() lexAll}
+ * lexes the entire source file into a
+ * {@link compiler.phase.lexan.TokenBuffer token buffer} at once. The symbols
+ * stored in the buffer are logged by
+ * {@link compiler.phase.lexan.LexAn#log(TokenBuffer, int) log} when the
+ * parser reaches them.
+ * </p>
+ * 
  * @author sliva
  */
 package compiler.phase.lexan;
\ No newline at end of file
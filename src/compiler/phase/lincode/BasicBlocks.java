@@ -5,6 +5,7 @@ import compiler.common.report.InternalCompilerError;
 import compiler.data.frg.CodeFragment;
 import compiler.data.frg.Fragment;
 import compiler.data.imc.*;
+import compiler.phase.Workers;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -21,14 +22,18 @@ public class BasicBlocks {
 	}
 
 	public void transform() {
+		ArrayList<CodeFragment> codeFragments = new ArrayList<>();
 		for (Fragment fragment : task.fragments.values()) {
 			if ((fragment instanceof CodeFragment)) {
-				transform((CodeFragment) fragment);
+				codeFragments.add((CodeFragment) fragment);
 			}
 		}
+
+		//Fragments are independent, so they can be transformed by separate workers
+		Workers.forEach(task, codeFragments, this::transform);
 	}
 
-	private void transform(CodeFragment fragment) {
+	public void transform(CodeFragment fragment) {
 
 		if (fragment.linCode == null) {
 			System.err.println("Fragment has a null linearised code.");
@@ -36,7 +41,7 @@ public class BasicBlocks {
 		}
 
 
-		LinkedList<Block> blocks = extractBlocks(fragment.linCode);
+		LinkedList<Block> blocks = extractBlocks(fragment);
 
 		blocks = removeTrivialBlocks(blocks);
 
@@ -84,7 +89,7 @@ public class BasicBlocks {
 
 		ordBlk.add(exitBlock);
 
-		fragment.linCode = reserialiseBlocks(ordBlk);
+		fragment.linCode = reserialiseBlocks(fragment, ordBlk);
 	}
 
 	private LinkedList<Block> removeTrivialBlocks(LinkedList<Block> blocks) {
@@ -113,7 +118,7 @@ public class BasicBlocks {
 	}
 
 	
-	private STMTS reserialiseBlocks(ArrayList<Block> blocks) {
+	private STMTS reserialiseBlocks(CodeFragment fragment, ArrayList<Block> blocks) {
 		Vector<IMCStmt> retStmst = new Vector<>();
 
 		for (Block b : blocks) {
@@ -127,7 +132,7 @@ public class BasicBlocks {
 						//This is good
 					} else {
 						//Otherwise we need to insert a new LABEL and JUMP
-						LABEL newNegLabel = new LABEL(LABEL.newLabelName());
+						LABEL newNegLabel = new LABEL(fragment.newLabelName());
 						String oldNegJump = ((CJUMP) lastStmt).negLabel;
 						((CJUMP) lastStmt).negLabel = newNegLabel.label;
 						retStmst.add(newNegLabel);
@@ -157,11 +162,12 @@ public class BasicBlocks {
 
 	//Extract basic blocks
 	//First one will be the entry block, and the last one will probably just be an exit label
-	private LinkedList<Block> extractBlocks(STMTS code) {
+	private LinkedList<Block> extractBlocks(CodeFragment fragment) {
+		STMTS code = fragment.linCode;
 		LinkedList<Block> blocks = new LinkedList<>();
 
-		LABEL start = new LABEL(LABEL.newLabelName());
-		LABEL end = new LABEL(LABEL.newLabelName());
+		LABEL start = new LABEL(fragment.newLabelName());
+		LABEL end = new LABEL(fragment.newLabelName());
 
 		//Add starting and ending labels + end jump -> just in case
 		code.stmts.add(0, start);
@@ -52,7 +52,11 @@ public class Liveness extends Phase {
 			try {
 				writer = new PrintWriter(task.srcFName + ".graph", "US-ASCII");
 
-				for (InterferenceGraph g : intfGraph.values()) {
+				task.logFilter.select(task.prgAST, task.prgAttrs);
+				for (CodeFragment codeFragment : intfGraph.keySet()) {
+					if (!task.logFilter.includes(codeFragment))
+						continue;
+					InterferenceGraph g = intfGraph.get(codeFragment);
 					writer.println(g);
 					g.printInOuts();
 				}
@@ -3,14 +3,18 @@ package compiler.phase.regalloc;
 import compiler.Task;
 import compiler.data.codegen.Instruction;
 import compiler.data.codegen.InstructionSet;
+import compiler.data.codegen.VirtualRegister;
 import compiler.data.frg.CodeFragment;
 import compiler.data.liveness.InterferenceGraph;
 import compiler.phase.Phase;
+import compiler.phase.Workers;
 
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 
 /**
  * Created by gregor on 27.5.2016.
@@ -20,58 +24,124 @@ public class RegisterAlloc extends Phase {
 
 	private HashMap<CodeFragment, InstructionSet> fragInstrs;
 	private HashMap<CodeFragment, InterferenceGraph> coloredGraphs;
+	private HashMap<CodeFragment, LinkedList<VirtualRegister>> spilledRegs;
 
 	public RegisterAlloc(Task task) {
 		super(task, "regalloc", false);
 		fragInstrs = task.fragInstrs;
-		coloredGraphs = new HashMap<>();
+		coloredGraphs = task.intfGraph;
+		spilledRegs = new HashMap<>();
 	}
 
 	public void allocate(){
-		for (CodeFragment frag : fragInstrs.keySet()) {
-			InterferenceGraph graph;
-			while(true){
-				//System.out.println(frag.label);
-				InstructionSet instrs = fragInstrs.get(frag);
+		ArrayList<CodeFragment> codeFragments = new ArrayList<>(fragInstrs.keySet());
 
-				//Build:
-				graph = new InterferenceGraph(instrs, frag);
+		//Fragments are colored independently, so they can be handled by separate workers
+		ArrayList<Allocation> allocations = Workers.map(task, codeFragments,
+				frag -> allocate(frag, fragInstrs.get(frag)));
 
-				while(true){
-					//Simplify
-					boolean anyToSpill = graph.simplify();
+		for (int i = 0; i < codeFragments.size(); i++) {
+			CodeFragment frag = codeFragments.get(i);
+			Allocation allocation = allocations.get(i);
+			report(frag, fragInstrs.get(frag), allocation);
+			if (allocation == null) continue;
 
-					if(anyToSpill){
-						//spill
-						graph.spill();
-					}else{
-						break;
-					}
-				}
+			//We have finished -> save the graph
+			coloredGraphs.put(frag, allocation.graph);
+			spilledRegs.put(frag, allocation.spilled);
+		}
+	}
 
-				//Select
-				boolean anySpilled = graph.select();
+	//Allocates the registers of a single fragment and maps them right away (used when
+	//fragments are streamed through the back end one at a time, so no graph is kept)
+	public void allocateFragment(CodeFragment frag, InstructionSet instrs) {
+		Allocation allocation = allocate(frag, instrs);
+		report(frag, instrs, allocation);
+		if (allocation == null) return;
 
-				if(!anySpilled){
-					break;
+		instrs.mapRegisters(allocation.graph.nodeMap);
+		task.cache.store(frag, instrs, allocation.spilled);
+	}
+
+	//Prints the spilled registers of a fragment and counts its statistics
+	private void report(CodeFragment frag, InstructionSet instrs, Allocation allocation) {
+		String label = frag.label;
+		if (allocation == null) {
+			for (String reg : task.cache.spilled(frag)) {
+				System.out.println("Spilled: " + reg);
+			}
+			task.stats.count(label, "cache_hits", 1);
+			return;
+		}
+
+		for (VirtualRegister reg : allocation.spilled) {
+			System.out.println("Spilled: " + reg);
+		}
+		task.stats.count(label, "mnemonics", instrs.mnemonicCount);
+		task.stats.count(label, "virtual_registers", instrs.registers.size());
+		task.stats.count(label, "interference_edges", allocation.graph.numEdges());
+		task.stats.count(label, "spill_rounds", allocation.spillRounds);
+		task.stats.count(label, "spilled_registers", allocation.spilled.size());
+	}
+
+	private Allocation allocate(CodeFragment frag, InstructionSet instrs) {
+		//The code of fragments found in the cache is already allocated
+		if (task.cache.isHit(frag)) return null;
+
+		Allocation allocation = new Allocation();
+		InterferenceGraph graph;
+		while(true){
+			//System.out.println(frag.label);
+
+			//Build:
+			graph = new InterferenceGraph(instrs, frag);
+
+			while(true){
+				//Simplify
+				boolean anyToSpill = graph.simplify();
+
+				if(anyToSpill){
+					//spill
+					graph.spill();
 				}else{
-					//start over -> we need to fix the code
-					//do the actual spill of uncolored nodes
-					//and modify the code
-					graph.startOver();
+					break;
 				}
 			}
-			//We have finished -> save the graph
-			coloredGraphs.put(frag, graph);
+
+			//Select
+			boolean anySpilled = graph.select();
+			allocation.spilled.addAll(graph.spilled);
+
+			if(!anySpilled){
+				break;
+			}else{
+				//start over -> we need to fix the code
+				//do the actual spill of uncolored nodes
+				//and modify the code
+				graph.startOver();
+				allocation.spillRounds++;
+			}
 		}
+		allocation.graph = graph;
+		return allocation;
+	}
+
+	//The colored graph of a fragment and the registers spilled while coloring it (in how many rounds)
+	private static class Allocation {
+		InterferenceGraph graph;
+		LinkedList<VirtualRegister> spilled = new LinkedList<>();
+		int spillRounds = 0;
 	}
 
 	public void mapRegisters() {
 		for (CodeFragment frag : fragInstrs.keySet()) {
+			if (task.cache.isHit(frag)) continue;
+
 			InterferenceGraph g = coloredGraphs.get(frag);
 			InstructionSet instrs = fragInstrs.get(frag);
 
 			instrs.mapRegisters(g.nodeMap);
+			task.cache.store(frag, instrs, spilledRegs.get(frag));
 		}
 	}
 
@@ -84,7 +154,10 @@ public class RegisterAlloc extends Phase {
 
 				String indent = "\t";
 
+				task.logFilter.select(task.prgAST, task.prgAttrs);
 				for (CodeFragment codeFragment : fragInstrs.keySet()) {
+					if (!task.logFilter.includes(codeFragment))
+						continue;
 					writer.println("");
 					writer.println(codeFragment.frame.label + ":");
 					writer.println("... (prolog)");
@@ -105,8 +178,9 @@ public class RegisterAlloc extends Phase {
 
 				//print the interferance graph as well
 				writer = new PrintWriter(task.srcFName + ".graph", "US-ASCII");
-				for (InterferenceGraph g : this.coloredGraphs.values()) {
-					writer.println(g);
+				for (CodeFragment codeFragment : this.coloredGraphs.keySet()) {
+					if (task.logFilter.includes(codeFragment))
+						writer.println(this.coloredGraphs.get(codeFragment));
 				}
 				writer.close();
 
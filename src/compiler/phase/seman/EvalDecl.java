@@ -3,7 +3,9 @@ package compiler.phase.seman;
 
 import compiler.data.ast.*;
 import compiler.data.ast.attr.Attributes;
-import compiler.data.ast.code.FullVisitor;
+import compiler.data.ast.code.FusibleVisitor;
+import compiler.data.ast.code.NullVisitor;
+import compiler.data.ast.code.Visitor;
 
 /**
  * Declaration resolver.
@@ -17,7 +19,7 @@ import compiler.data.ast.code.FullVisitor;
  *
  * @author sliva
  */
-public class EvalDecl extends FullVisitor {
+public class EvalDecl extends FusibleVisitor {
 
 	private final Attributes attrs;
 
@@ -30,112 +32,79 @@ public class EvalDecl extends FullVisitor {
 	 */
 	private SymbolTable symbolTable = new SymbolTable();
 
-	private static boolean resolveOnlyBody = true;
-
-	@Override
-	public void visit(WhereExpr whereExpr) {
-		symbolTable.enterScope();
-
-		boolean resolveBak = resolveOnlyBody;
-		resolveOnlyBody = false;
-		for (Decl d : whereExpr.decls) {
-			d.accept(this);
-		}
+	private final Visitor preVisitor = new NullVisitor() {
+		@Override
+		public void visit(WhereExpr whereExpr) {
+			symbolTable.enterScope();
 
-		resolveOnlyBody = true;
-		for (Decl d : whereExpr.decls) {
-			d.accept(this);
+			//Declare all names first, so that they can be used before they are declared
+			for (Decl d : whereExpr.decls) {
+				if (!(d instanceof DeclError)) {
+					symbolTable.insDecl(d.nameId, d);
+				}
+			}
 		}
-		resolveOnlyBody = resolveBak;
 
-		//Finnaly resolve the nested expression
-		whereExpr.expr.accept(this);
-
-		symbolTable.leaveScope();
-	}
-
-
-	@Override
-	public void visit(FunDef funDef) {
-		if (!resolveOnlyBody) {
-			symbolTable.insDecl(funDef.name, funDef);
+		@Override
+		public void visit(FunDef funDef) {
+			//The function type is resolved in this scope as well, but nothing is declared in it before the parameters
+			symbolTable.enterScope();
 		}
 
-		if (resolveOnlyBody) {
-			funDef.type.accept(this);
-
+		@Override
+		public void visit(FunDecl funDecl) {
 			symbolTable.enterScope();
-
-			for (ParDecl pd : funDef.pars) {
-				pd.accept(this);
-			}
-			funDef.body.accept(this);
-
-			symbolTable.leaveScope();
 		}
-	}
-
 
-	@Override
-	public void visit(FunDecl funDecl) {
-		if (!resolveOnlyBody) {
-			symbolTable.insDecl(funDecl.name, funDecl);
-		}else{
-			funDecl.type.accept(this);
-
-			symbolTable.enterScope();
-			for (ParDecl pd : funDecl.pars) {
-				pd.accept(this);
+		@Override
+		public void visit(FunCall funCall) {
+			Decl decl = null;
+			try {
+				decl = symbolTable.fndDecl(funCall.nameId());
+			} catch (CannotFndNameDecl cannotFndNameDecl) {
+				SemAn.signalError(cannotFndNameDecl.getMessage(), funCall);
 			}
-			symbolTable.leaveScope();
+			attrs.declAttr.set(funCall, decl);
 		}
-	}
+	};
 
 	@Override
-	public void visit(CompDecl compDecl) {
-		super.visit(compDecl);
-		// Do nothing here, read below: ... visit(RecType recType) { ...
+	public Visitor preVisitor() {
+		return preVisitor;
 	}
 
 	@Override
-	public void visit(ParDecl parDecl) {
-		super.visit(parDecl);
-		symbolTable.insDecl(parDecl.name, parDecl);
+	public void visit(WhereExpr whereExpr) {
+		symbolTable.leaveScope();
 	}
 
+
 	@Override
-	public void visit(TypeDecl typeDecl) {
-		if (resolveOnlyBody) {
-			super.visit(typeDecl);
-		} else {
-			symbolTable.insDecl(typeDecl.name, typeDecl);
-		}
+	public void visit(FunDef funDef) {
+		symbolTable.leaveScope();
 	}
 
+
 	@Override
-	public void visit(VarDecl varDecl) {
-		if (resolveOnlyBody) {
-			super.visit(varDecl);
-		} else {
-			symbolTable.insDecl(varDecl.name, varDecl);
-		}
+	public void visit(FunDecl funDecl) {
+		symbolTable.leaveScope();
 	}
 
 	@Override
-	public void visit(RecType recType) {
-		super.visit(recType);
-		// since symbolsTable is thrown away later, you should do this in EvalTyp.java
-		// components should not be checked here
+	public void visit(ParDecl parDecl) {
+		symbolTable.insDecl(parDecl.nameId, parDecl);
 	}
 
+	// Do nothing for component declarations and names here:
+	// since symbolsTable is thrown away later, you should do this in EvalTyp.java
+	// components should not be checked here, since you don't actually know what namespace you belong to
+
 
 	@Override
 	public void visit(TypeName typeName) {
-		super.visit(typeName);
-
 		Decl decl = null;
 		try {
-			decl = symbolTable.fndDecl(typeName.name());
+			decl = symbolTable.fndDecl(typeName.nameId());
 		} catch (CannotFndNameDecl cannotFndNameDecl) {
 			SemAn.signalError(cannotFndNameDecl.getMessage(), typeName);
 		}
@@ -144,11 +113,9 @@ public class EvalDecl extends FullVisitor {
 
 	@Override
 	public void visit(VarName varName) {
-		super.visit(varName);
-
 		Decl decl = null;
 		try {
-			decl = symbolTable.fndDecl(varName.name());
+			decl = symbolTable.fndDecl(varName.nameId());
 			if (!(decl instanceof VarDecl)) {
 				SemAn.signalError(decl.getClass().getSimpleName() + " " + varName.name() +
 								  " used as a variable.", varName);
@@ -159,24 +126,4 @@ public class EvalDecl extends FullVisitor {
 		attrs.declAttr.set(varName, decl);
 	}
 
-	@Override
-	public void visit(CompName compName) {
-		super.visit(compName);
-		// Do nothing here, since you don't actually know what namespace you belong to
-	}
-
-	@Override
-	public void visit(FunCall funCall) {
-		Decl decl = null;
-		try {
-			decl = symbolTable.fndDecl(funCall.name());
-		} catch (CannotFndNameDecl cannotFndNameDecl) {
-			SemAn.signalError(cannotFndNameDecl.getMessage(), funCall);
-		}
-		attrs.declAttr.set(funCall, decl);
-
-		super.visit(funCall);
-	}
-
-}
-
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package compiler.phase.seman;
+
+import compiler.Task;
+import compiler.data.ast.ASTNode;
+import compiler.data.ast.FunDef;
+import compiler.data.ast.Program;
+import compiler.data.ast.attr.Attributes;
+import compiler.data.ast.code.Visitor;
+import compiler.phase.Workers;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Type checker and memory checker of function definitions running
+ * concurrently.
+ *
+ * <p>
+ * Once names have been resolved (see {@link EvalDecl}), all declarations are
+ * type checked first, leaving out the function definitions outside function
+ * bodies. As neither types nor memory flags of one function body depend on
+ * another function body, each of these function definitions is then type
+ * checked and memory checked on its own (see {@link Workers}). Finally, the
+ * rest of the program is memory checked.
+ * </p>
+ *
+ * <p>
+ * The error reported is the same as if {@link EvalTyp} and {@link EvalMem}
+ * were run on the entire program one after another: if checking the rest of
+ * the program fails, only the errors found in function definitions that
+ * would have been checked earlier precede it, and of the errors found in
+ * function definitions the one in the first of them is reported.
+ * </p>
+ */
+public class EvalFunDefs {
+
+	private final Task task;
+
+	public EvalFunDefs(Task task) {
+		this.task = task;
+	}
+
+	public void visit(Program program) {
+		Attributes attrs = task.prgAttrs;
+
+		// Attributes are set concurrently: the type checker sets types and the
+		// declarations of record components, the memory checker sets memory
+		// flags.
+		attrs.declAttr.ensureCapacity(ASTNode.numIds());
+		attrs.typAttr.ensureCapacity(ASTNode.numIds());
+		attrs.memAttr.ensureCapacity(ASTNode.numIds());
+
+		// Type check the declarations.
+		ArrayList<FunDef> funDefs = new ArrayList<>();
+		EvalTyp evalTyp = new EvalTyp(attrs, funDefs);
+		Throwable error = check(program, evalTyp);
+		if (error != null) {
+			for (FunDef funDef : funDefs) {
+				rethrow(check(funDef, new EvalTyp(evalTyp, funDef)));
+			}
+			rethrow(error);
+		}
+
+		// Check the function definitions.
+		ArrayList<Errors> errors = Workers.map(task, funDefs, funDef -> {
+			Errors funDefErrors = new Errors();
+			funDefErrors.typError = check(funDef, new EvalTyp(evalTyp, funDef));
+			if (funDefErrors.typError == null) {
+				funDefErrors.memError = check(funDef, new EvalMem(attrs));
+			}
+			return funDefErrors;
+		});
+		IdentityHashMap<FunDef, Throwable> memErrors = new IdentityHashMap<>();
+		for (int f = 0; f < funDefs.size(); f++) {
+			rethrow(errors.get(f).typError);
+			memErrors.put(funDefs.get(f), errors.get(f).memError);
+		}
+
+		// Memory check the rest of the program.
+		ArrayList<FunDef> memFunDefs = new ArrayList<>();
+		error = check(program, new EvalMem(attrs, memFunDefs));
+		for (FunDef funDef : memFunDefs) {
+			rethrow(memErrors.get(funDef));
+		}
+		rethrow(error);
+	}
+
+	/**
+	 * The errors found in a function definition.
+	 */
+	private static class Errors {
+
+		/** The type checking error (or <code>null</code> if none). */
+		Throwable typError;
+
+		/** The memory checking error (or <code>null</code> if none). */
+		Throwable memError;
+
+	}
+
+	/**
+	 * Visits a subtree and catches the error thrown, if any.
+	 *
+	 * @param node
+	 *            The root of the subtree.
+	 * @param visitor
+	 *            The visitor.
+	 * @return The error thrown (or <code>null</code> if none).
+	 */
+	private static Throwable check(ASTNode node, Visitor visitor) {
+		try {
+			node.accept(visitor);
+			return null;
+		} catch (RuntimeException | Error error) {
+			return error;
+		}
+	}
+
+	/**
+	 * Throws an error caught by {@link #check(ASTNode, Visitor)}.
+	 *
+	 * @param error
+	 *            The error (or <code>null</code> if none).
+	 */
+	private static void rethrow(Throwable error) {
+		if (error instanceof Error) {
+			throw (Error) error;
+		}
+		if (error instanceof RuntimeException) {
+			throw (RuntimeException) error;
+		}
+	}
+
+}
@@ -8,6 +8,8 @@ import compiler.data.typ.IntegerTyp;
 import compiler.data.typ.PtrTyp;
 import compiler.data.typ.Typ;
 
+import java.util.List;
+
 /**
  * @author sliva
  */
@@ -15,8 +17,36 @@ public class EvalMem extends FullVisitor {
 	
 	private final Attributes attrs;
 	
+	/**
+	 * The function definitions left to be checked later (or <code>null</code>
+	 * if function definitions are checked right away).
+	 */
+	private final List<FunDef> funDefs;
+
 	public EvalMem(Attributes attrs) {
+		this(attrs, null);
+	}
+
+	/**
+	 * Constructs a checker that leaves the function definitions outside
+	 * function bodies to be checked later, each by its own checker.
+	 *
+	 * @param attrs   The attributes of the abstract syntax tree.
+	 * @param funDefs The list the function definitions that are left are
+	 *                appended to, in the order they would have been checked in.
+	 */
+	public EvalMem(Attributes attrs, List<FunDef> funDefs) {
 		this.attrs = attrs;
+		this.funDefs = funDefs;
+	}
+
+	@Override
+	public void visit(FunDef funDef) {
+		if (funDefs != null) {
+			funDefs.add(funDef);
+		} else {
+			super.visit(funDef);
+		}
 	}
 
 	@Override
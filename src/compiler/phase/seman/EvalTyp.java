@@ -7,6 +7,7 @@ import compiler.data.ast.code.FullVisitor;
 import compiler.data.typ.*;
 
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * Type checker.
@@ -24,16 +25,72 @@ public class EvalTyp extends FullVisitor {
 	private final Attributes attrs;
 
 	public EvalTyp(Attributes attrs) {
+		this(attrs, null);
+	}
+
+	/**
+	 * Constructs a type checker that checks all declarations but leaves the
+	 * function definitions outside function bodies to be checked later, each
+	 * by its own type checker (see {@link #EvalTyp(EvalTyp, FunDef)}).
+	 *
+	 * @param attrs   The attributes of the abstract syntax tree.
+	 * @param funDefs The list the function definitions that are left are
+	 *                appended to, in the order they would have been checked in.
+	 */
+	public EvalTyp(Attributes attrs, List<FunDef> funDefs) {
 		this.attrs = attrs;
+		this.symbolTable = new SymbolTable();
+		this.typTable = new TypTable();
+		this.funDefs = funDefs;
+		this.leftFunDef = null;
+	}
+
+	/**
+	 * Constructs a type checker for a function definition left by another type
+	 * checker. It starts with a copy of the other type checker's symbol table
+	 * and can therefore run concurrently with the type checkers of other
+	 * function definitions.
+	 * <p>
+	 * The result type of the function definition is not checked again: the
+	 * component names of a record type there are declared within the scope of
+	 * the other type checker and other function definitions might refer to
+	 * them.
+	 *
+	 * @param evalTyp The type checker that has checked all declarations.
+	 * @param funDef  The function definition left by it.
+	 */
+	public EvalTyp(EvalTyp evalTyp, FunDef funDef) {
+		this.attrs = evalTyp.attrs;
+		this.symbolTable = new SymbolTable(evalTyp.symbolTable);
+		this.typTable = evalTyp.typTable;
+		this.funDefs = null;
+		this.leftFunDef = funDef;
 	}
 
 	/**
 	 * The symbol table.
 	 */
-	private SymbolTable symbolTable = new SymbolTable();
+	private final SymbolTable symbolTable;
+
+	/**
+	 * The canonical types.
+	 */
+	private final TypTable typTable;
 
+	/**
+	 * The function definitions left to be checked later (or <code>null</code>
+	 * if function definitions are checked right away).
+	 */
+	private final List<FunDef> funDefs;
+
+	/**
+	 * The function definition left by another type checker (or
+	 * <code>null</code> if none).
+	 */
+	private final FunDef leftFunDef;
 
-	private static boolean evalOnlyBody = true;
+
+	private boolean evalOnlyBody = true;
 
 	@Override
 	public void visit(ArrType arrType) {
@@ -44,7 +101,7 @@ public class EvalTyp extends FullVisitor {
 		if (size < 1) SemAn.signalError("Arrays must be at least size of 1", arrType);
 
 		Typ baseType = attrs.typAttr.get(arrType.elemType);
-		ArrTyp at = new ArrTyp(size, baseType);
+		ArrTyp at = typTable.arrTyp(size, baseType);
 		attrs.typAttr.set(arrType, at);
 	}
 
@@ -56,22 +113,22 @@ public class EvalTyp extends FullVisitor {
 
 		switch (atomExpr.type) {
 			case INTEGER:
-				atTyp = new IntegerTyp();
+				atTyp = typTable.integerTyp;
 				break;
 			case BOOLEAN:
-				atTyp = new BooleanTyp();
+				atTyp = typTable.booleanTyp;
 				break;
 			case CHAR:
-				atTyp = new CharTyp();
+				atTyp = typTable.charTyp;
 				break;
 			case STRING:
-				atTyp = new StringTyp();
+				atTyp = typTable.stringTyp;
 				break;
 			case PTR:
-				atTyp = new PtrTyp(new VoidTyp());
+				atTyp = typTable.ptrTyp(typTable.voidTyp);
 				break;
 			case VOID:
-				atTyp = new VoidTyp();
+				atTyp = typTable.voidTyp;
 				break;
 			default:
 				//Should never happen, except if I add a new type and forget about it
@@ -88,19 +145,19 @@ public class EvalTyp extends FullVisitor {
 		Typ aTyp;
 		switch (atomType.type) {
 			case INTEGER:
-				aTyp = new IntegerTyp();
+				aTyp = typTable.integerTyp;
 				break;
 			case BOOLEAN:
-				aTyp = new BooleanTyp();
+				aTyp = typTable.booleanTyp;
 				break;
 			case CHAR:
-				aTyp = new CharTyp();
+				aTyp = typTable.charTyp;
 				break;
 			case STRING:
-				aTyp = new StringTyp();
+				aTyp = typTable.stringTyp;
 				break;
 			case VOID:
-				aTyp = new VoidTyp();
+				aTyp = typTable.voidTyp;
 				break;
 			default:
 				//Should never happen, except if I add a new type and forget about it
@@ -131,13 +188,13 @@ public class EvalTyp extends FullVisitor {
 				if (!isAssignable(op1T)) {
 					SemAn.signalError("Type is not assignable " + op1T.getClass().getSimpleName() + ".", binExpr);
 				}
-				if (!op1T.isStructEquivTo(op2T)) SemAn.signalError("Assignement operator type mismatch.", binExpr);
-				binExprT = new VoidTyp();
+				if (!typTable.equiv(op1T, op2T)) SemAn.signalError("Assignement operator type mismatch.", binExpr);
+				binExprT = typTable.voidTyp;
 				break;
 			case OR:
 			case AND:
 				if (op1T instanceof BooleanTyp && op2T instanceof BooleanTyp) {
-					binExprT = new BooleanTyp();
+					binExprT = typTable.booleanTyp;
 				} else {
 					SemAn.signalError("Boolean expresions are only allowed on boolean types", binExpr);
 				}
@@ -152,9 +209,9 @@ public class EvalTyp extends FullVisitor {
 					SemAn.signalError("Comparisons are only allowed on pointers, integers, booleans and characters",
 									  binExpr);
 				}
-				if (!op1T.isStructEquivTo(op2T)) SemAn.signalError("Can only compare values of the same type", binExpr);
+				if (!typTable.equiv(op1T, op2T)) SemAn.signalError("Can only compare values of the same type", binExpr);
 
-				binExprT = new BooleanTyp();
+				binExprT = typTable.booleanTyp;
 				break;
 
 			case ADD:
@@ -163,7 +220,7 @@ public class EvalTyp extends FullVisitor {
 			case DIV:
 			case MOD:
 				if (op1T instanceof IntegerTyp && op2T instanceof IntegerTyp) {
-					binExprT = new IntegerTyp();
+					binExprT = typTable.integerTyp;
 				} else {
 					SemAn.signalError("Arithmetic operation attempted with non-integers (got: " +
 									  op1T.getClass().getSimpleName() + " and " +
@@ -189,7 +246,7 @@ public class EvalTyp extends FullVisitor {
 				//Resolve the component name
 				Decl decl = null;
 				try {
-					decl = symbolTable.fndDecl(recT.nameSpace, ((CompName) op2).name());
+					decl = symbolTable.fndDecl(recT.nameSpace, ((CompName) op2).nameId());
 				} catch (CannotFndNameDecl cannotFndNameDecl) {
 					SemAn.signalError(cannotFndNameDecl.getMessage(), binExpr);
 				}
@@ -237,7 +294,7 @@ public class EvalTyp extends FullVisitor {
 				finalT = ((PtrTyp) subT.actualTyp()).baseTyp;
 				break;
 			case MEM:
-				finalT = new PtrTyp(subT);
+				finalT = typTable.ptrTyp(subT);
 				break;
 			default:
 				throw new InternalCompilerError();
@@ -280,7 +337,7 @@ public class EvalTyp extends FullVisitor {
 	public void visit(CompName compName) {
 		super.visit(compName);
 		//Give a supurflous type
-		attrs.typAttr.set(compName, new VoidTyp());
+		attrs.typAttr.set(compName, typTable.voidTyp);
 		//I don't thing anything can be done here once again. -> you need to do this in BinExpr
 	}
 
@@ -353,7 +410,7 @@ public class EvalTyp extends FullVisitor {
 
 		if (!(condT.actualTyp() instanceof BooleanTyp)) SemAn.signalError("Condition must be of a boolean type", ifExpr);
 
-		attrs.typAttr.set(ifExpr, new VoidTyp());
+		attrs.typAttr.set(ifExpr, typTable.voidTyp);
 	}
 
 	@Override
@@ -384,7 +441,7 @@ public class EvalTyp extends FullVisitor {
 		Typ t = attrs.typAttr.get(ptrType.baseType);
 		if (t == null) SemAn.signalError("Cannot determine nested pointer's type.", ptrType);
 
-		attrs.typAttr.set(ptrType, new PtrTyp(t));
+		attrs.typAttr.set(ptrType, typTable.ptrTyp(t));
 	}
 
 	@Override
@@ -393,13 +450,12 @@ public class EvalTyp extends FullVisitor {
 
 		LinkedList<Typ> compTypes = new LinkedList<>();
 
-		// HACK - not guaranteed by standard to be unique
-		// Use the hashCode of the object itself.
-		// Hashcodes by default are normally unique, since they represent the internal Java ID
-		String nsname = namespaceFromHash(recType);
-		symbolTable.enterNamespace(nsname);
+		// The namespace ID is unique, its name (the hashCode of the object itself)
+		// only appears in error messages
+		int ns = symbolTable.newNamespace(namespaceFromHash(recType));
+		symbolTable.enterNamespace(ns);
 		for (CompDecl cd : recType.comps) {
-			symbolTable.insDecl(nsname, cd.name, cd);
+			symbolTable.insDecl(ns, cd.nameId, cd);
 
 			Typ cT = attrs.typAttr.get(cd);
 			if (cT == null) SemAn.signalError("Cannot determine component's type.", recType);
@@ -407,7 +463,7 @@ public class EvalTyp extends FullVisitor {
 		}
 		symbolTable.leaveNamespace();
 
-		attrs.typAttr.set(recType, new RecTyp(nsname, compTypes));
+		attrs.typAttr.set(recType, new RecTyp(ns, compTypes));
 	}
 
 	@Override
@@ -463,7 +519,10 @@ public class EvalTyp extends FullVisitor {
 
 		evalOnlyBody = true; //go again, this time read bodies as well
 		for (Decl d : whereExpr.decls) {
-			if (d instanceof FunDef) d.accept(this); //recheck entire functions -> not that expensive
+			if (d instanceof FunDef) {
+				if (funDefs != null) funDefs.add((FunDef) d); //leave it for later
+				else d.accept(this); //recheck entire functions -> not that expensive
+			}
 		}
 
 		//type check all declaration, and check for circularity
@@ -548,13 +607,13 @@ public class EvalTyp extends FullVisitor {
 			SemAn.signalError("Function type must be assignable or void.", funDecl);
 		}
 
-		attrs.typAttr.set(funDecl, new FunTyp(parTyps, funT));
+		attrs.typAttr.set(funDecl, typTable.funTyp(parTyps, funT));
 	}
 
 	@Override
 	public void visit(FunDef funDef) {
 		//eval function type
-		funDef.type.accept(this);
+		if (funDef != leftFunDef) funDef.type.accept(this);
 
 		//check function type
 		Typ funT = attrs.typAttr.get(funDef.type);
@@ -583,14 +642,14 @@ public class EvalTyp extends FullVisitor {
 			funDef.body.accept(this);
 			Typ bodyT = attrs.typAttr.get(funDef.body);
 			if (bodyT == null) SemAn.signalError("Cannot determine function body type.", funDef);
-			if (!funT.actualTyp().isStructEquivTo(bodyT.actualTyp())) {
+			if (!typTable.equiv(funT, bodyT)) {
 				SemAn.signalError("Return type mismatch, expected " +
 								  funT.actualTyp().getClass().getSimpleName() +
 								  " got " + bodyT.actualTyp().getClass().getSimpleName() + ".", funDef);
 			}
 		}
 
-		attrs.typAttr.set(funDef, new FunTyp(parTyps, funT));
+		attrs.typAttr.set(funDef, typTable.funTyp(parTyps, funT));
 		symbolTable.leaveScope();
 	}
 
@@ -612,7 +671,7 @@ public class EvalTyp extends FullVisitor {
 		if (!(condT.actualTyp() instanceof BooleanTyp)) SemAn.signalError("While codtidion must be a bool.", whileExpr);
 
 		//While statement is of typ void
-		attrs.typAttr.set(whileExpr, new VoidTyp());
+		attrs.typAttr.set(whileExpr, typTable.voidTyp);
 	}
 
 
@@ -637,7 +696,7 @@ public class EvalTyp extends FullVisitor {
 
 
 		//For statement is of typ void
-		attrs.typAttr.set(forExpr, new VoidTyp());
+		attrs.typAttr.set(forExpr, typTable.voidTyp);
 	}
 
 
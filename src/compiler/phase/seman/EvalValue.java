@@ -1,11 +1,13 @@
 package compiler.phase.seman;
 
-import compiler.common.report.PhaseErrors.SemAnError;
 import compiler.data.ast.AtomExpr;
 import compiler.data.ast.BinExpr;
+import compiler.data.ast.Program;
 import compiler.data.ast.UnExpr;
 import compiler.data.ast.attr.Attributes;
-import compiler.data.ast.code.FullVisitor;
+import compiler.data.ast.code.FusibleVisitor;
+import compiler.data.ast.code.NullVisitor;
+import compiler.data.ast.code.Visitor;
 
 /**
  * Computes the value of simple integer constant expressions.
@@ -23,7 +25,7 @@ import compiler.data.ast.code.FullVisitor;
  *
  * @author sliva
  */
-public class EvalValue extends FullVisitor {
+public class EvalValue extends FusibleVisitor {
 
 	private final Attributes attrs;
 
@@ -35,22 +37,56 @@ public class EvalValue extends FullVisitor {
 	//Ints are read as unsigned, but Java doesn't recognise unsigned integers
 	private static String minAbsValue = ((Long) Long.MIN_VALUE).toString().substring(1);
 
+	/** The integer constant negated by the innermost unary minus visited so far (or <code>null</code>). */
+	private AtomExpr negatedAtom = null;
+
+	/** The invalid integer constant first in the source file (or <code>null</code>). */
+	private AtomExpr invalidAtom = null;
+
+	private final Visitor preVisitor = new NullVisitor() {
+		@Override
+		public void visit(UnExpr unExpr) {
+			if (unExpr.oper == UnExpr.Oper.SUB && unExpr.subExpr instanceof AtomExpr) {
+				negatedAtom = (AtomExpr) unExpr.subExpr;
+			}
+		}
+	};
+
+	@Override
+	public Visitor preVisitor() {
+		return preVisitor;
+	}
+
 	@Override
 	public void visit(AtomExpr atomExpr) {
-		super.visit(atomExpr);
 		if (atomExpr.type == AtomExpr.AtomTypes.INTEGER) {
 			try {
 				attrs.valueAttr.set(atomExpr, Long.parseLong(atomExpr.value));
 			} catch (NumberFormatException nfe) {
-				SemAn.signalError("Invalid integer constant " + atomExpr.value, atomExpr);
+				if (atomExpr == negatedAtom && atomExpr.value.equals(minAbsValue)) {
+					//The constant MIN_INT, evaluated by the unary minus (see below)
+					return;
+				}
+				//Nodes are numbered as they are parsed, so constants are numbered in the source order
+				if (invalidAtom == null || atomExpr.id() < invalidAtom.id()) {
+					invalidAtom = atomExpr;
+				}
 			}
 		}
 	}
 
+	@Override
+	public void visit(Program program) {
+		//Report the same constant as a traversal in the source order (where expressions are not visited that way
+		//when fused with EvalDecl)
+		if (invalidAtom != null) {
+			SemAn.signalError("Invalid integer constant " + invalidAtom.value, invalidAtom);
+		}
+	}
+
 
 	@Override
 	public void visit(BinExpr binExpr) {
-		super.visit(binExpr);
 		Long left = attrs.valueAttr.get(binExpr.fstExpr);
 		Long right = attrs.valueAttr.get(binExpr.sndExpr);
 
@@ -85,24 +121,16 @@ public class EvalValue extends FullVisitor {
 
 	@Override
 	public void visit(UnExpr unExpr) {
-		try {
-			super.visit(unExpr);
-		} catch (SemAnError err) {
-			if (unExpr.oper == UnExpr.Oper.SUB &&
-				unExpr.subExpr instanceof AtomExpr &&
-				((AtomExpr) unExpr.subExpr).value.equals(minAbsValue)) {
-				//if the value below unary expression is an integer constant
-				//and that integer constant has value of MAX_INT+1, and the operation
-				//is sub, that it's the constant MIN_INT
-				//If there is anything in between the constant and the operator SUB,
-				//than THE CONSTANT IS NOT NEGATIVE, BUT A POSITIVE ONE,
-				//COMBINED WITH A UNARY MINUS. In that case the it can error out.
-				attrs.valueAttr.set(unExpr, Long.MIN_VALUE);
-			} else {
-				//If nothing matches, rethrow
-				throw err;
-			}
-
+		if (unExpr.subExpr == negatedAtom &&
+			negatedAtom.type == AtomExpr.AtomTypes.INTEGER &&
+			negatedAtom.value.equals(minAbsValue)) {
+			//if the value below unary expression is an integer constant
+			//and that integer constant has value of MAX_INT+1, and the operation
+			//is sub, that it's the constant MIN_INT
+			//If there is anything in between the constant and the operator SUB,
+			//than THE CONSTANT IS NOT NEGATIVE, BUT A POSITIVE ONE,
+			//COMBINED WITH A UNARY MINUS. In that case the it can error out.
+			attrs.valueAttr.set(unExpr, Long.MIN_VALUE);
 			return;
 		}
 
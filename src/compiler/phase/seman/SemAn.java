@@ -31,8 +31,10 @@ public class SemAn extends Phase {
 	 */
 	@Override
 	public void close() {
-		if (logger != null)
-			(new SemAnToXML(logger, true, task.prgAttrs)).visit(task.prgAST);
+		if (logger != null) {
+			task.logFilter.select(task.prgAST, task.prgAttrs);
+			(new SemAnToXML(logger, true, task.prgAttrs, task.logFilter)).visit(task.prgAST);
+		}
 		super.close();
 	}
 
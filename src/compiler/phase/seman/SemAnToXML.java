@@ -1,5 +1,6 @@
 package compiler.phase.seman;
 
+import compiler.common.logger.LogFilter;
 import compiler.common.logger.Logger;
 import compiler.common.report.InternalCompilerError;
 import compiler.common.report.Position;
@@ -36,9 +37,11 @@ public class SemAnToXML extends AbstrToXML {
 	 *            syntax tree to (must not be <code>null</code>).
 	 * @param boxed
 	 *            Whether begin and end elements are produced or not.
+	 * @param filter
+	 *            The filter selecting the subtrees that are printed out.
 	 */
-	public SemAnToXML(Logger logger, boolean boxed, Attributes attrs) {
-		super(logger, false);
+	public SemAnToXML(Logger logger, boolean boxed, Attributes attrs, LogFilter filter) {
+		super(logger, false, filter);
 		this.boxed = boxed;
 		this.attrs = attrs;
 	}
@@ -77,12 +80,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(atomExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(atomExpr) != null)
-			attrs.typAttr.get(atomExpr).log(logger);
 		if (attrs.valueAttr.get(atomExpr) != null)
 			logger.addAttribute("value", attrs.valueAttr.get(atomExpr).toString());
 		if (attrs.memAttr.get(atomExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(atomExpr) != null)
+			attrs.typAttr.get(atomExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -103,12 +106,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(binExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(binExpr) != null)
-			attrs.typAttr.get(binExpr).log(logger);
 		if (attrs.valueAttr.get(binExpr) != null)
 			logger.addAttribute("value", attrs.valueAttr.get(binExpr).toString());
 		if (attrs.memAttr.get(binExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(binExpr) != null)
+			attrs.typAttr.get(binExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -116,13 +119,13 @@ public class SemAnToXML extends AbstrToXML {
 	@Override
 	public void visit(CastExpr castExpr) {
 		begElement();
+		if (attrs.memAttr.get(castExpr))
+			logger.addAttribute("mem", "true");
 		super.visit(castExpr);
 		logger.begElement("seman");
 		if (attrs.typAttr.get(castExpr) != null)
 			attrs.typAttr.get(castExpr).log(logger);
 		logger.endElement();
-		if (attrs.memAttr.get(castExpr))
-			logger.addAttribute("mem", "true");
 		endElement();
 	}
 
@@ -142,8 +145,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(compName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(compName) != null)
-			attrs.typAttr.get(compName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(compName);
 			if (decl != null) {
@@ -154,6 +155,8 @@ public class SemAnToXML extends AbstrToXML {
 		}
 		if (attrs.memAttr.get(compName))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(compName) != null)
+			attrs.typAttr.get(compName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -174,10 +177,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(exprs);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(exprs) != null)
-			attrs.typAttr.get(exprs).log(logger);
 		if (attrs.memAttr.get(exprs))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(exprs) != null)
+			attrs.typAttr.get(exprs).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -198,10 +201,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(forExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(forExpr) != null)
-			attrs.typAttr.get(forExpr).log(logger);
 		if (attrs.memAttr.get(forExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(forExpr) != null)
+			attrs.typAttr.get(forExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -211,8 +214,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(funCall);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(funCall) != null)
-			attrs.typAttr.get(funCall).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(funCall);
 			if (decl != null) {
@@ -223,6 +224,8 @@ public class SemAnToXML extends AbstrToXML {
 		}
 		if (attrs.memAttr.get(funCall))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(funCall) != null)
+			attrs.typAttr.get(funCall).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -254,10 +257,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(ifExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(ifExpr) != null)
-			attrs.typAttr.get(ifExpr).log(logger);
 		if (attrs.memAttr.get(ifExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(ifExpr) != null)
+			attrs.typAttr.get(ifExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -278,10 +281,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(program);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(program) != null)
-			attrs.typAttr.get(program).log(logger);
 		if (attrs.memAttr.get(program))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(program) != null)
+			attrs.typAttr.get(program).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -339,8 +342,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(typeName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(typeName) != null)
-			attrs.typAttr.get(typeName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(typeName);
 			if (decl != null) {
@@ -349,6 +350,8 @@ public class SemAnToXML extends AbstrToXML {
 				logger.addAttribute("decl", ((Position) decl).toString());
 			}
 		}
+		if (attrs.typAttr.get(typeName) != null)
+			attrs.typAttr.get(typeName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -358,12 +361,12 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(unExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(unExpr) != null)
-			attrs.typAttr.get(unExpr).log(logger);
 		if (attrs.valueAttr.get(unExpr) != null)
 			logger.addAttribute("value", attrs.valueAttr.get(unExpr).toString());
 		if (attrs.memAttr.get(unExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(unExpr) != null)
+			attrs.typAttr.get(unExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -384,8 +387,6 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(varName);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(varName) != null)
-			attrs.typAttr.get(varName).log(logger);
 		{
 			Decl decl = attrs.declAttr.get(varName);
 			if (decl != null) {
@@ -398,6 +399,8 @@ public class SemAnToXML extends AbstrToXML {
 		}
 		if (attrs.memAttr.get(varName))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(varName) != null)
+			attrs.typAttr.get(varName).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -407,10 +410,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(whereExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(whereExpr) != null)
-			attrs.typAttr.get(whereExpr).log(logger);
 		if (attrs.memAttr.get(whereExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(whereExpr) != null)
+			attrs.typAttr.get(whereExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -420,10 +423,10 @@ public class SemAnToXML extends AbstrToXML {
 		begElement();
 		super.visit(whileExpr);
 		logger.begElement("seman");
-		if (attrs.typAttr.get(whileExpr) != null)
-			attrs.typAttr.get(whileExpr).log(logger);
 		if (attrs.memAttr.get(whileExpr))
 			logger.addAttribute("mem", "true");
+		if (attrs.typAttr.get(whileExpr) != null)
+			attrs.typAttr.get(whileExpr).log(logger);
 		logger.endElement();
 		endElement();
 	}
@@ -1,11 +1,12 @@
 package compiler.phase.seman;
 
+import compiler.common.names.Names;
 import compiler.common.report.InternalCompilerError;
 import compiler.common.report.Position;
 import compiler.data.ast.Decl;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Stack;
 
 /**
@@ -27,17 +28,26 @@ import java.util.Stack;
  * inner scope unless replaced by a new declaration of the same name within the
  * inner scope.</li>
  * <li><i>namespaces</i>: The default namespace is <code>#</code>. A new
- * namespace is entered by calling
- * {@link compiler.phase.seman.SymbolTable#enterNamespace(String)
- * enterNamespace} and providing the unique namespace name enterNamespace} where
- * the uniqueness of the namespace's name is the responsibility of the
- * programmer. The namespace is leaved by calling
+ * namespace is created by calling
+ * {@link compiler.phase.seman.SymbolTable#newNamespace(String) newNamespace}
+ * and entered by calling
+ * {@link compiler.phase.seman.SymbolTable#enterNamespace(int)
+ * enterNamespace} and providing the namespace's ID. The namespace is leaved
+ * by calling
  * {@link compiler.phase.seman.SymbolTable#leaveNamespace() leaveNamespace}.
  * Namespaces are nested and each declaration made within outer namespaces is
  * visible within the inner namespace unless replaced by a new declaration of
  * the same name within the inner namespace.</li>
  * </ul>
  *
+ * <p>
+ * Declarations are kept in arrays in the order they have been made and the
+ * most recent declaration of each name is found through an open-addressing
+ * hash table keyed by name IDs. Leaving a scope truncates the declarations
+ * back to the mark made when the scope was entered. Inserting and finding
+ * declarations and entering and leaving scopes thus allocate no objects.
+ * </p>
+ *
  * @author sliva
  */
 public class SymbolTable {
@@ -48,74 +58,155 @@ public class SymbolTable {
 	 * The initial scope is entered and the default namespace is prepared.
 	 */
 	public SymbolTable() {
-		symbolTable = new HashMap<String, LinkedList<ScopedDecl>>();
+		keys = new long[64];
+		Arrays.fill(keys, NO_KEY);
+		heads = new int[64];
+		numKeys = 0;
+
+		decls = new Decl[64];
+		declScopes = new int[64];
+		declKeys = new long[64];
+		shadowed = new int[64];
+		numDecls = 0;
 
 		scope = 0;
-		scopes = new LinkedList<LinkedList<String>>();
-		scopes.addFirst(new LinkedList<String>());
+		scopeMarks = new int[16];
 
-		namespaces = new Stack<String>();
-		namespaces.push("");
+		namespaceNames = new ArrayList<String>();
+		namespaceNames.add("#");
+		namespaces = new Stack<Integer>();
+		namespaces.push(defaultNamespace);
 	}
 
-	// Scopes.
-
 	/**
-	 * A declaration of a name at a particular scope.
+	 * Creates a copy of a symbol table.
+	 * <p>
+	 * The copy contains all declarations active in the original symbol table
+	 * and can be used independently of it, even concurrently. However, both
+	 * symbol tables share the namespaces, so that the IDs of namespaces
+	 * created later in any of them are unique within both.
 	 *
-	 * @author sliva
+	 * @param symbolTable The symbol table to copy.
 	 */
-	private class ScopedDecl {
-
-		/**
-		 * The scope.
-		 */
-		public int scope;
-
-		/**
-		 * The declaration.
-		 */
-		public Decl decl;
-
-		@Override
-		public String toString() {
-			return "ScopedDecl{" +
-				   "scope=" + scope +
-				   ", decl=" + decl +
-				   '}';
-		}
+	public SymbolTable(SymbolTable symbolTable) {
+		keys = symbolTable.keys.clone();
+		heads = symbolTable.heads.clone();
+		numKeys = symbolTable.numKeys;
+
+		decls = symbolTable.decls.clone();
+		declScopes = symbolTable.declScopes.clone();
+		declKeys = symbolTable.declKeys.clone();
+		shadowed = symbolTable.shadowed.clone();
+		numDecls = symbolTable.numDecls;
+
+		scope = symbolTable.scope;
+		scopeMarks = symbolTable.scopeMarks.clone();
+
+		namespaceNames = symbolTable.namespaceNames;
+		namespaces = new Stack<Integer>();
+		namespaces.addAll(symbolTable.namespaces);
 	}
 
+	// Scopes.
+
 	/**
 	 * The current scope.
 	 */
 	private int scope;
 
 	/**
-	 * The mapping of each node to its declarations at different scopes. The of
-	 * name's declarations includes all declarations at different scopes, with
-	 * the most recent declaration at the head of the list.
+	 * The names declared so far, i.e., an open-addressing hash table of keys
+	 * (see {@link #key(int, int) key}), each combining the ID of a namespace
+	 * and the ID of a name. A key stays in the table even when all its
+	 * declarations are flushed out, until the table is rehashed.
 	 */
-	private HashMap<String, LinkedList<ScopedDecl>> symbolTable;
+	private long[] keys;
 
 	/**
-	 * A stack of spaces, i.e., a list of all declarations by scopes, used for
-	 * flushing out declarations when leaving a scope.
-	 * <p>
-	 * <p>
-	 * The inner list includes all names that have been declared at a particular
-	 * scope, and thus the outer list contains all names declared at different
-	 * scopes, with the most recent scope at the head of the list.
-	 * </p>
+	 * The value of empty slots of {@link #keys} (keys are never negative).
+	 */
+	private static final long NO_KEY = -1;
+
+	/**
+	 * The indices of the most recent declarations of names in {@link #keys}
+	 * (or -1 if a name has no active declaration).
+	 */
+	private int[] heads;
+
+	/**
+	 * The number of keys in {@link #keys}.
+	 */
+	private int numKeys;
+
+	/**
+	 * The active declarations, ordered by the time they have been made, so that
+	 * the declarations made within the current scope are at the end.
+	 */
+	private Decl[] decls;
+
+	/**
+	 * The scopes of the active declarations.
+	 */
+	private int[] declScopes;
+
+	/**
+	 * The keys of the active declarations.
+	 */
+	private long[] declKeys;
+
+	/**
+	 * The indices of the declarations that are shadowed by the active
+	 * declarations (or -1 if a declaration shadows none).
+	 */
+	private int[] shadowed;
+
+	/**
+	 * The number of active declarations.
+	 */
+	private int numDecls;
+
+	/**
+	 * The number of active declarations when each of the active scopes but
+	 * the initial one was entered.
 	 */
-	private LinkedList<LinkedList<String>> scopes;
+	private int[] scopeMarks;
+
+	/**
+	 * Combines the ID of a namespace and the ID of a name into a single key.
+	 *
+	 * @param nameSpace The ID of the namespace.
+	 * @param nameId    The ID of the name.
+	 * @return The key of the name within the namespace.
+	 */
+	private static long key(int nameSpace, int nameId) {
+		return ((long) nameSpace << 32) | (nameId & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the slot of a key in {@link #keys}, i.e., either the slot the key
+	 * is at or the empty slot it should be put to.
+	 *
+	 * @param key The key.
+	 * @return The slot.
+	 */
+	private int slot(long key) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+		while ((keys[slot] != NO_KEY) && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
 
 	/**
 	 * Enters a new scope.
 	 */
 	public void enterScope() {
+		if (scope == scopeMarks.length) {
+			scopeMarks = Arrays.copyOf(scopeMarks, 2 * scope);
+		}
+		scopeMarks[scope] = numDecls;
 		scope++;
-		scopes.addFirst(new LinkedList<String>());
 	}
 
 	/**
@@ -123,50 +214,74 @@ public class SymbolTable {
 	 * current scope.
 	 */
 	public void leaveScope() {
-		for (String name : scopes.peek()) {
-			LinkedList<ScopedDecl> scopedDecls = symbolTable.get(name);
-			scopedDecls.removeFirst();
-			if (scopedDecls.isEmpty()) {
-				symbolTable.remove(name);
-			}
-		}
-		scopes.removeFirst();
 		scope--;
+		int mark = scopeMarks[scope];
+		while (numDecls > mark) {
+			numDecls--;
+			heads[slot(declKeys[numDecls])] = shadowed[numDecls];
+			decls[numDecls] = null;
+		}
 	}
 
 	/**
 	 * Inserts a declaration of a name within the current scope and within the
 	 * specified namespace.
 	 *
-	 * @param nameSpace The namespace that the declaration of the name is made within.
-	 * @param name      The name declared.
+	 * @param nameSpace The ID of the namespace that the declaration of the name is made within.
+	 * @param nameId    The ID of the name declared.
 	 * @param decl      The declaration of the name.
 	 * @throws CannotInsNameDecl If the name cannot be declared at this scope as it has
 	 *                           already been.
 	 */
-	public void insDecl(String nameSpace, String name, Decl decl) throws CannotInsNameDecl {
-		LinkedList<ScopedDecl> scopedDecls = symbolTable.get(nameSpace + name);
-		if (scopedDecls == null) {
-			scopedDecls = new LinkedList<ScopedDecl>();
-			{
-				ScopedDecl scopedDecl = new ScopedDecl();
-				scopedDecl.scope = scope;
-				scopedDecl.decl = decl;
-				scopedDecls.addFirst(scopedDecl);
-				scopes.peek().addFirst(nameSpace + name);
+	public void insDecl(int nameSpace, int nameId, Decl decl) throws CannotInsNameDecl {
+		long key = key(nameSpace, nameId);
+		int slot = slot(key);
+		if (keys[slot] == NO_KEY) {
+			if (2 * (numKeys + 1) > keys.length) {
+				rehash();
+				slot = slot(key);
 			}
-			symbolTable.put(nameSpace + name, scopedDecls);
-		} else {
-			ScopedDecl scopedDecl = scopedDecls.peekFirst();
-			if (scopedDecl.scope == scope) {
-				throw new CannotInsNameDecl("Duplicate name " + nameSpace + name +
-											" in this scope: " + ((Position) scopedDecl.decl).toString());
-			} else {
-				scopedDecl = new ScopedDecl();
-				scopedDecl.scope = scope;
-				scopedDecl.decl = decl;
-				scopedDecls.addFirst(scopedDecl);
-				scopes.peek().addFirst(nameSpace + name);
+			keys[slot] = key;
+			heads[slot] = -1;
+			numKeys++;
+		}
+		int head = heads[slot];
+		if ((head >= 0) && (declScopes[head] == scope)) {
+			throw new CannotInsNameDecl("Duplicate name " + namespaceName(nameSpace) + Names.name(nameId) +
+										" in this scope: " + ((Position) decls[head]).toString());
+		}
+
+		if (numDecls == decls.length) {
+			decls = Arrays.copyOf(decls, 2 * numDecls);
+			declScopes = Arrays.copyOf(declScopes, 2 * numDecls);
+			declKeys = Arrays.copyOf(declKeys, 2 * numDecls);
+			shadowed = Arrays.copyOf(shadowed, 2 * numDecls);
+		}
+		decls[numDecls] = decl;
+		declScopes[numDecls] = scope;
+		declKeys[numDecls] = key;
+		shadowed[numDecls] = head;
+		heads[slot] = numDecls;
+		numDecls++;
+	}
+
+	/**
+	 * Doubles the size of the hash table of keys, dropping the keys without
+	 * active declarations.
+	 */
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldHeads = heads;
+		keys = new long[2 * oldKeys.length];
+		Arrays.fill(keys, NO_KEY);
+		heads = new int[2 * oldKeys.length];
+		numKeys = 0;
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if ((oldKeys[oldSlot] != NO_KEY) && (oldHeads[oldSlot] >= 0)) {
+				int slot = slot(oldKeys[oldSlot]);
+				keys[slot] = oldKeys[oldSlot];
+				heads[slot] = oldHeads[oldSlot];
+				numKeys++;
 			}
 		}
 	}
@@ -175,30 +290,31 @@ public class SymbolTable {
 	 * Inserts a declaration of a name within the current scope and within the
 	 * default namespace.
 	 *
-	 * @param name The name declared.
-	 * @param decl The declaration of the name.
+	 * @param nameId The ID of the name declared.
+	 * @param decl   The declaration of the name.
 	 * @throws CannotInsNameDecl If the name cannot be declared at this scope as it has
 	 *                           already been.
 	 */
-	public void insDecl(String name, Decl decl) throws CannotInsNameDecl {
-		insDecl("#", name, decl);
+	public void insDecl(int nameId, Decl decl) throws CannotInsNameDecl {
+		insDecl(defaultNamespace, nameId, decl);
 	}
 
 	/**
 	 * Returns the declaration of a name within all active scopes and within a
 	 * specified namespace.
 	 *
-	 * @param nameSpace The namespace that the declaration of the name is made within.
-	 * @param name      The name the declaration is being looked for.
+	 * @param nameSpace The ID of the namespace that the declaration of the name is made within.
+	 * @param nameId    The ID of the name the declaration is being looked for.
 	 * @return The declaration of the name.
 	 * @throws CannotFndNameDecl If the declaration is not found.
 	 */
-	public Decl fndDecl(String nameSpace, String name) throws CannotFndNameDecl {
-		LinkedList<ScopedDecl> scopedDecls = symbolTable.get(nameSpace + name);
-		if ((scopedDecls == null) || (scopedDecls.isEmpty())) {
-			throw new CannotFndNameDecl("Declaration of " + nameSpace + (nameSpace.equals("#") ? "" : "#") + name + " was not found");
+	public Decl fndDecl(int nameSpace, int nameId) throws CannotFndNameDecl {
+		int slot = slot(key(nameSpace, nameId));
+		if ((keys[slot] == NO_KEY) || (heads[slot] < 0)) {
+			String nameSpaceName = namespaceName(nameSpace);
+			throw new CannotFndNameDecl("Declaration of " + nameSpaceName + (nameSpaceName.equals("#") ? "" : "#") + Names.name(nameId) + " was not found");
 		} else {
-			return scopedDecls.peekFirst().decl;
+			return decls[heads[slot]];
 		}
 	}
 
@@ -206,37 +322,63 @@ public class SymbolTable {
 	 * Returns the declaration of a name within all active scopes and within the
 	 * default namespace.
 	 *
-	 * @param name The name the declaration is being looked for.
+	 * @param nameId The ID of the name the declaration is being looked for.
 	 * @return The declaration of the name.
 	 * @throws CannotFndNameDecl If the declaration is not found.
 	 */
-	public Decl fndDecl(String name) throws CannotFndNameDecl {
-		return fndDecl("#", name);
+	public Decl fndDecl(int nameId) throws CannotFndNameDecl {
+		return fndDecl(defaultNamespace, nameId);
 	}
 
 	// Namespaces.
 
+	/**
+	 * The ID of the default namespace.
+	 */
+	private static final int defaultNamespace = 0;
+
+	/**
+	 * The names of all namespaces indexed by their IDs (shared with the copies
+	 * of this symbol table).
+	 */
+	private ArrayList<String> namespaceNames;
+
 	/**
 	 * The stack of namespaces.
 	 */
-	private Stack<String> namespaces;
+	private Stack<Integer> namespaces;
 
 	/**
-	 * Generates a new namespace name.
+	 * Creates a new namespace.
 	 *
-	 * @param name The name associated with this namespace.
-	 * @return A new namespace name unique within a current context.
+	 * @param name The name of the namespace (used in error messages only).
+	 * @return The ID of the new namespace, unique within this symbol table and its copies.
 	 */
-	public String newNamespace(String name) {
-		return (namespaces.size() > 0 ? namespaces.peek() : "") + name + "#";
+	public int newNamespace(String name) {
+		synchronized (namespaceNames) {
+			namespaceNames.add(name);
+			return namespaceNames.size() - 1;
+		}
+	}
+
+	/**
+	 * Returns the name of a namespace.
+	 *
+	 * @param namespace The namespace's ID.
+	 * @return The name of the namespace.
+	 */
+	private String namespaceName(int namespace) {
+		synchronized (namespaceNames) {
+			return namespaceNames.get(namespace);
+		}
 	}
 
 	/**
 	 * Enters a new namespace;
 	 *
-	 * @param namespace The namespace's name.
+	 * @param namespace The namespace's ID.
 	 */
-	public void enterNamespace(String namespace) {
+	public void enterNamespace(int namespace) {
 		namespaces.push(namespace);
 	}
 
@@ -255,13 +397,22 @@ public class SymbolTable {
 		System.out.println("Scope: " + scope);
 
 		System.out.println("Symbol Table: ");
-		for (String name : symbolTable.keySet()) {
-			String value = symbolTable.get(name).toString();
-			System.out.println(name + " " + value);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if ((keys[slot] == NO_KEY) || (heads[slot] < 0)) {
+				continue;
+			}
+			StringBuilder value = new StringBuilder();
+			for (int d = heads[slot]; d >= 0; d = shadowed[d]) {
+				value.append(value.length() == 0 ? "[" : ", ");
+				value.append("ScopedDecl{scope=" + declScopes[d] + ", decl=" + decls[d] + "}");
+			}
+			value.append("]");
+			long key = keys[slot];
+			System.out.println(namespaceName((int) (key >>> 32)) + Names.name((int) key) + " " + value);
 		}
 		System.out.println("Visible namespaces:");
-		for (String ns : namespaces) {
-			System.out.println(ns);
+		for (int ns : namespaces) {
+			System.out.println(namespaceName(ns));
 		}
 	}
 }
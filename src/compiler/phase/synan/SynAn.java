@@ -9,6 +9,7 @@ import compiler.data.ast.*;
 import compiler.phase.Phase;
 import compiler.phase.lexan.LexAn;
 import compiler.phase.lexan.Symbol;
+import compiler.phase.lexan.TokenBuffer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -92,30 +93,52 @@ public class SynAn extends Phase {
 	 */
 	@Override
 	public void close() {
+		tokens = null;
 		lexAn.close();
 		super.close();
 	}
 
 	/**
-	 * The parser's lookahead buffer.
+	 * The tokens of the source file.
 	 */
-	private Symbol laSymbol;
+	private TokenBuffer tokens;
 
 	/**
-	 * Reads the next lexical symbol from the source file and stores it in the
-	 * lookahead buffer (before that it logs the previous lexical symbol, if
-	 * requested); returns the previous symbol.
+	 * The index of the lookahead symbol in the token buffer.
+	 */
+	private int laIndex;
+
+	/**
+	 * Moves the lookahead to the next lexical symbol (before that it logs the
+	 * previous lexical symbol, if requested); returns the index of the
+	 * previous symbol.
 	 *
-	 * @return The previous symbol (the one that has just been replaced by the
-	 * new symbol).
+	 * @return The index of the previous symbol (the one that has just been
+	 * replaced by the new symbol).
 	 */
-	private Symbol nextSymbol() {
-		Symbol symbol = laSymbol;
-		symbol.log(logger);
-		laSymbol = lexAn.lexAn();
+	private int nextSymbol() {
+		int symbol = laIndex;
+		if (logger != null) {
+			tokens.symbol(symbol).log(logger);
+		}
+		reach(laIndex + 1);
 		return symbol;
 	}
 
+	/**
+	 * Makes the specified symbol the lookahead symbol as if it has just been
+	 * returned by the lexical analyzer: the lexical analyzer logs it and
+	 * signals the lexical error that occurred at it, if any.
+	 *
+	 * @param t The index of the symbol.
+	 */
+	private void reach(int t) {
+		tokens.await(t);
+		laIndex = t;
+		lexAn.log(tokens, t);
+		tokens.check(t);
+	}
+
 	/**
 	 * Starts logging an internal node of the derivation tree.
 	 *
@@ -141,39 +164,46 @@ public class SynAn extends Phase {
 	 * This method performs the syntax analysis of the source file.
 	 */
 	public Program synAn() {
-		laSymbol = lexAn.lexAn();
-		Program prg = parseProgram();
-
-		if (laSymbol.token != Symbol.Token.EOF) {
-			Report.warning(laSymbol, "Unexpected symbol(s) at the end of file.");
+		// The nodes of the tree are numbered densely from 0 (see Attribute).
+		ASTNode.resetIds();
+		tokens = task.pipelined ? lexAn.lexPipelined() : lexAn.lexAll();
+		try {
+			reach(0);
+			Program prg = parseProgram();
+
+			if (tokens.token(laIndex) != Symbol.Token.EOF) {
+				Report.warning(tokens.position(laIndex), "Unexpected symbol(s) at the end of file.");
+			}
+
+			return prg;
+		} finally {
+			tokens.stopReceiving();
 		}
-
-		return prg;
 	}
 
 
-	private Symbol skip(Symbol.Token token) {
-		if (laSymbol.token == token) {
+	private int skip(Symbol.Token token) {
+		if (tokens.token(laIndex) == token) {
 			return nextSymbol();
 		} else {
 			SynAnError error = new SynAnError("[skip] expected " + token
-					+ " got " + laSymbol.token + " at " + laSymbol.getPosition());
+					+ " got " + tokens.token(laIndex) + " at " + tokens.position(laIndex));
 
 			throw new SynAnError("[skip] expected " + token + " got "
-					+ laSymbol.token + " at " + laSymbol.getPosition()
+					+ tokens.token(laIndex) + " at " + tokens.position(laIndex)
 					+ " " + (error.getStackTrace()[1]));
 		}
 	}
 
 
 	private void signalError(String funName) {
-		throw new SynAnError("[" + funName + "]" + laSymbol.getPosition() + " | " + laSymbol.token);
+		throw new SynAnError("[" + funName + "]" + tokens.position(laIndex) + " | " + tokens.token(laIndex));
 	}
 
 	private void signalError(String funName, String expect) {
 		throw new SynAnError("[" + funName + "]"
-				+ " At " + laSymbol.getPosition()
-				+ " got " + laSymbol.token
+				+ " At " + tokens.position(laIndex)
+				+ " got " + tokens.token(laIndex)
 				+ " expected " + expect);
 	}
 
@@ -186,9 +216,9 @@ public class SynAn extends Phase {
 		begLog("Program");
 		Expr expr = parseExpression();
 
-		if (laSymbol.token != Symbol.Token.EOF) {
-			throw new SynAnError("At " + laSymbol.getPosition()
-					+ " expected EOF, got" + laSymbol.token);
+		if (tokens.token(laIndex) != Symbol.Token.EOF) {
+			throw new SynAnError("At " + tokens.position(laIndex)
+					+ " expected EOF, got" + tokens.token(laIndex));
 		}
 
 		endLog();
@@ -209,12 +239,12 @@ public class SynAn extends Phase {
 	private Expr parseExpressionPrime(Expr op1) {
 		begLog("ExpressionPrime");
 		Expr expr;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case WHERE:
 				skip(Symbol.Token.WHERE);
 				LinkedList<Decl> decls = parseDeclarations();
-				Symbol endToken = skip(Symbol.Token.END);
-				Expr where = new WhereExpr(new Position(op1, endToken), op1, decls);
+				int endToken = skip(Symbol.Token.END);
+				Expr where = new WhereExpr(new Position(op1, tokens.position(endToken)), op1, decls);
 				expr = parseExpressionPrime(where);
 				break;
 
@@ -258,7 +288,7 @@ public class SynAn extends Phase {
 	private LinkedList<Expr> parseExpressionsPrime() {
 		begLog("ExpressionsPrime");
 		LinkedList<Expr> exprs;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case COMMA:
 				skip(Symbol.Token.COMMA);
 				Expr expr = parseExpression();
@@ -276,352 +306,168 @@ public class SynAn extends Phase {
 		return exprs;
 	}
 
+	// The binary operators are parsed by precedence climbing instead of by a
+	// chain of recursive methods, one per precedence level, each followed by
+	// its Prime method. The levels of the grammar are kept in the tables
+	// below; level 0 is the lowest.
+	//
 	//AssignmentExpression -> DisjunctiveExpression AssignmentExpressionPrime .
-	private Expr parseAssignmentExpression() {
-		begLog("AssignmentExpression");
-		Expr op1 = parseDisjunctiveExpression();
-		Expr expr = parseAssignmentExpressionPrime(op1);
-		endLog();
-		return expr;
-	}
-
-
-	//AssignmentExpressionPrime -> .
 	//AssignmentExpressionPrime -> assign DisjunctiveExpression .
-	private Expr parseAssignmentExpressionPrime(Expr op1) {
-		begLog("AssignmentExpressionPrime");
-		Expr expr;
-
-		switch (laSymbol.token) {
-			case ASSIGN:
-				skip(Symbol.Token.ASSIGN);
-				Expr op2 = parseDisjunctiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.ASSIGN, op1, op2);
-				break;
-
-			case WHERE:
-			case END:
-			case COMMA:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
-				break;
-
-			default:
-				expr = null;
-				signalError("AssignmentExpressionPrime", "assignment or next statement");
-		}
-
-		endLog();
-		return expr;
-	}
-
+	//AssignmentExpressionPrime -> .
 	//DisjunctiveExpression -> ConjunctiveExpression DisjunctiveExpressionPrime .
-	private Expr parseDisjunctiveExpression() {
-		begLog("DisjunctiveExpression");
-		Expr op1 = parseConjunctiveExpression();
-		Expr expr = parseDisjunctiveExpressionPrime(op1);
-		endLog();
-		return expr;
-	}
-
 	//DisjunctiveExpressionPrime -> or ConjunctiveExpression DisjunctiveExpressionPrime .
 	//DisjunctiveExpressionPrime -> .
-	private Expr parseDisjunctiveExpressionPrime(Expr op1) {
-		begLog("DisjunctiveExpressionPrime");
-		Expr expr;
-		switch (laSymbol.token) {
-			case OR:
-				skip(Symbol.Token.OR);
-				Expr op2 = parseConjunctiveExpression();
-				Expr conjunctiveExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.OR, op1, op2);
-				expr = parseDisjunctiveExpressionPrime(conjunctiveExpr);
-				break;
-			case WHERE:
-			case END:
-			case COMMA:
-			case ASSIGN:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
-				break;
-			default:
-				expr = null;
-				signalError("DisjunctiveExpressionPrime");
-		}
-		endLog();
-		return expr;
-	}
-
 	//ConjunctiveExpression -> RelationalExpression ConjunctiveExpressionPrime .
-	private Expr parseConjunctiveExpression() {
-		begLog("ConjunctiveExpression");
-		Expr op1 = parseRelationalExpression();
-		Expr expr = parseConjunctiveExpressionPrime(op1);
-		endLog();
-		return expr;
-	}
-
 	//ConjunctiveExpressionPrime -> and RelationalExpression ConjunctiveExpressionPrime .
 	//ConjunctiveExpressionPrime -> .
-	private Expr parseConjunctiveExpressionPrime(Expr op1) {
-		begLog("ConjunctiveExpressionPrime");
-		Expr expr;
-		switch (laSymbol.token) {
-			case AND:
-				skip(Symbol.Token.AND);
-				Expr op2 = parseRelationalExpression();
-				Expr relationalExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.AND, op1, op2);
-				expr = parseConjunctiveExpressionPrime(relationalExpr);
-				break;
-			case WHERE:
-			case END:
-			case COMMA:
-			case ASSIGN:
-			case OR:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
-				break;
-			default:
-				expr = null;
-				signalError("ConjunctiveExpressionPrime");
-		}
-		endLog();
-		return expr;
-	}
-
 	//RelationalExpression -> AdditiveExpression RelationalExpressionPrime .
-	private Expr parseRelationalExpression() {
-		begLog("RelationalExpression");
-		Expr op1 = parseAdditiveExpression();
-		Expr expr = parseRelationalExpressionPrime(op1);
-		endLog();
-		return expr;
-	}
-
+	//RelationalExpressionPrime -> (equ|neq|lth|gth|leq|geq) AdditiveExpression .
 	//RelationalExpressionPrime -> .
-	//RelationalExpressionPrime -> equ AdditiveExpression .
-	//RelationalExpressionPrime -> neq AdditiveExpression .
-	//RelationalExpressionPrime -> lth AdditiveExpression .
-	//RelationalExpressionPrime -> gth AdditiveExpression .
-	//RelationalExpressionPrime -> leq AdditiveExpression .
-	//RelationalExpressionPrime -> geq AdditiveExpression .
-	private Expr parseRelationalExpressionPrime(Expr op1) {
-		begLog("RelationalExpressionPrime");
-		Expr expr;
-		Expr op2;
-		switch (laSymbol.token) {
-			case EQU:
-				skip(Symbol.Token.EQU);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.EQU, op1, op2);
-				break;
-			case NEQ:
-				skip(Symbol.Token.NEQ);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.NEQ, op1, op2);
-				break;
-			case LTH:
-				skip(Symbol.Token.LTH);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.LTH, op1, op2);
-				break;
-			case GTH:
-				skip(Symbol.Token.GTH);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.GTH, op1, op2);
-				break;
-			case LEQ:
-				skip(Symbol.Token.LEQ);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.LEQ, op1, op2);
-				break;
-			case GEQ:
-				skip(Symbol.Token.GEQ);
-				op2 = parseAdditiveExpression();
-				expr = new BinExpr(new Position(op1, op2), BinExpr.Oper.GEQ, op1, op2);
-				break;
+	//AdditiveExpression -> MultiplicativeExpression AdditiveExpressionPrime .
+	//AdditiveExpressionPrime -> (add|sub) MultiplicativeExpression AdditiveExpressionPrime .
+	//AdditiveExpressionPrime -> .
+	//MultiplicativeExpression -> PrefixExpression MultiplicativeExpressionPrime .
+	//MultiplicativeExpressionPrime -> (mul|div|mod) PrefixExpression MultiplicativeExpressionPrime .
+	//MultiplicativeExpressionPrime -> .
 
-			case WHERE:
-			case END:
-			case COMMA:
-			case ASSIGN:
-			case OR:
-			case AND:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
-				break;
-			default:
-				expr = null;
-				signalError("RelationalExpressionPrime");
+	private static final String[] levelNonts = {
+			"AssignmentExpression", "DisjunctiveExpression", "ConjunctiveExpression",
+			"RelationalExpression", "AdditiveExpression", "MultiplicativeExpression"};
+
+	private static final String[] levelPrimeNonts = {
+			"AssignmentExpressionPrime", "DisjunctiveExpressionPrime", "ConjunctiveExpressionPrime",
+			"RelationalExpressionPrime", "AdditiveExpressionPrime", "MultiplicativeExpressionPrime"};
+
+	//What is reported as expected if a Prime nonterminal cannot be derived (or null)
+	private static final String[] levelPrimeExpects = {
+			"assignment or next statement", null, null, null, null, null};
+
+	//Whether several operators of the same level may follow each other (left associativity)
+	private static final boolean[] levelRepeats = {false, true, true, false, true, true};
+
+	private static final int numLevels = levelNonts.length;
+
+	//The level and the operator of every token (-1 and null if the token is not a binary operator)
+	private static final int[] binLevels = new int[Symbol.Token.values().length];
+	private static final BinExpr.Oper[] binOpers = new BinExpr.Oper[Symbol.Token.values().length];
+
+	//Whether a token may follow an expression
+	private static final boolean[] exprFollows = new boolean[Symbol.Token.values().length];
+
+	static {
+		java.util.Arrays.fill(binLevels, -1);
+		binOperator(Symbol.Token.ASSIGN, 0, BinExpr.Oper.ASSIGN);
+		binOperator(Symbol.Token.OR, 1, BinExpr.Oper.OR);
+		binOperator(Symbol.Token.AND, 2, BinExpr.Oper.AND);
+		binOperator(Symbol.Token.EQU, 3, BinExpr.Oper.EQU);
+		binOperator(Symbol.Token.NEQ, 3, BinExpr.Oper.NEQ);
+		binOperator(Symbol.Token.LTH, 3, BinExpr.Oper.LTH);
+		binOperator(Symbol.Token.GTH, 3, BinExpr.Oper.GTH);
+		binOperator(Symbol.Token.LEQ, 3, BinExpr.Oper.LEQ);
+		binOperator(Symbol.Token.GEQ, 3, BinExpr.Oper.GEQ);
+		binOperator(Symbol.Token.ADD, 4, BinExpr.Oper.ADD);
+		binOperator(Symbol.Token.SUB, 4, BinExpr.Oper.SUB);
+		binOperator(Symbol.Token.MUL, 5, BinExpr.Oper.MUL);
+		binOperator(Symbol.Token.DIV, 5, BinExpr.Oper.DIV);
+		binOperator(Symbol.Token.MOD, 5, BinExpr.Oper.MOD);
+
+		Symbol.Token[] follows = {
+				Symbol.Token.WHERE, Symbol.Token.END, Symbol.Token.COMMA,
+				Symbol.Token.CLOSING_BRACKET, Symbol.Token.CLOSING_PARENTHESIS,
+				Symbol.Token.THEN, Symbol.Token.ELSE, Symbol.Token.COLON,
+				Symbol.Token.TYP, Symbol.Token.FUN, Symbol.Token.VAR, Symbol.Token.EOF};
+		for (Symbol.Token token : follows) {
+			exprFollows[token.ordinal()] = true;
 		}
-		endLog();
-		return expr;
 	}
 
-	//AdditiveExpression -> MultiplicativeExpression AdditiveExpressionPrime .
-	private Expr parseAdditiveExpression() {
-		begLog("AdditiveExpression");
-		Expr op1 = parseMultiplicativeExpression();
-		Expr expr = parseAdditiveExpressionPrime(op1);
-		endLog();
-		return expr;
+	private static void binOperator(Symbol.Token token, int level, BinExpr.Oper oper) {
+		binLevels[token.ordinal()] = level;
+		binOpers[token.ordinal()] = oper;
 	}
 
-	//AdditiveExpressionPrime -> add MultiplicativeExpression AdditiveExpressionPrime .
-	//AdditiveExpressionPrime -> sub MultiplicativeExpression AdditiveExpressionPrime .
-	//AdditiveExpressionPrime -> .
-	private Expr parseAdditiveExpressionPrime(Expr op1) {
-		begLog("AdditiveExpressionPrime");
-		Expr op2;
-		Expr expr;
-		BinExpr additiveExpr;
-		switch (laSymbol.token) {
-			case ADD:
-				skip(Symbol.Token.ADD);
-				op2 = parseMultiplicativeExpression();
-				additiveExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.ADD, op1, op2);
-				expr = parseAdditiveExpressionPrime(additiveExpr);
-				break;
-			case SUB:
-				skip(Symbol.Token.SUB);
-				op2 = parseMultiplicativeExpression();
-				additiveExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.SUB, op1, op2);
-				expr = parseAdditiveExpressionPrime(additiveExpr);
-				break;
-
-			case WHERE:
-			case END:
-			case COMMA:
-			case ASSIGN:
-			case OR:
-			case AND:
-			case EQU:
-			case NEQ:
-			case LTH:
-			case GTH:
-			case LEQ:
-			case GEQ:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
-				break;
+	//Whether a token may follow a Prime nonterminal of the specified level
+	private static boolean follows(int level, Symbol.Token token) {
+		return exprFollows[token.ordinal()] || binLevels[token.ordinal()] < level && binLevels[token.ordinal()] >= 0;
+	}
 
-			default:
-				expr = null;
-				signalError("AdditiveExpressionPrime");
+	/**
+	 * The operator stack of precedence climbing (shared by nested
+	 * expressions): for every open level the left operand, the operator
+	 * waiting for its right operand and the number of open Prime
+	 * nonterminals.
+	 */
+	private Expr[] levelOpnds = new Expr[4 * numLevels];
+	private BinExpr.Oper[] levelOpers = new BinExpr.Oper[4 * numLevels];
+	private int[] levelPrimes = new int[4 * numLevels];
+	private int levelTop = 0;
 
+	//AssignmentExpression (and all levels of binary operators)
+	private Expr parseAssignmentExpression() {
+		int base = levelTop;
+		levelTop += numLevels;
+		if (levelTop > levelOpnds.length) {
+			levelOpnds = java.util.Arrays.copyOf(levelOpnds, 2 * levelTop);
+			levelOpers = java.util.Arrays.copyOf(levelOpers, 2 * levelTop);
+			levelPrimes = java.util.Arrays.copyOf(levelPrimes, 2 * levelTop);
 		}
-		endLog();
-		return expr;
-	}
-
-	//MultiplicativeExpression -> PrefixExpression MultiplicativeExpressionPrime .
-	private Expr parseMultiplicativeExpression() {
-		begLog("MultiplicativeExpression");
-		Expr op1 = parsePrefixExpression();
-		Expr expr = parseMultiplicativeExpressionPrime(op1);
-		endLog();
-		return expr;
-	}
 
-	//MultiplicativeExpressionPrime -> mul PrefixExpression MultiplicativeExpressionPrime .
-	//MultiplicativeExpressionPrime -> div PrefixExpression MultiplicativeExpressionPrime .
-	//MultiplicativeExpressionPrime -> mod PrefixExpression MultiplicativeExpressionPrime .
-	//MultiplicativeExpressionPrime -> .
-	private Expr parseMultiplicativeExpressionPrime(Expr op1) {
-		begLog("MultiplicativeExpressionPrime");
 		Expr expr;
-		Expr op2;
-		Expr multExpr;
-		switch (laSymbol.token) {
-			case MUL:
-				skip(Symbol.Token.MUL);
-				op2 = parsePrefixExpression();
-				multExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.MUL, op1, op2);
-				expr = parseMultiplicativeExpressionPrime(multExpr);
-				break;
-			case DIV:
-				skip(Symbol.Token.DIV);
-				op2 = parsePrefixExpression();
-				multExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.DIV, op1, op2);
-				expr = parseMultiplicativeExpressionPrime(multExpr);
-				break;
-			case MOD:
-				skip(Symbol.Token.MOD);
-				op2 = parsePrefixExpression();
-				multExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.MOD, op1, op2);
-				expr = parseMultiplicativeExpressionPrime(multExpr);
-				break;
+		int level = 0;
+		while (true) {
+			// Open all levels from the current one up and parse an operand.
+			for (int l = level; l < numLevels; l++) {
+				begLog(levelNonts[l]);
+				levelOpers[base + l] = null;
+				levelPrimes[base + l] = 0;
+			}
+			expr = parsePrefixExpression();
+
+			// Close levels until an operator that belongs to one of them follows.
+			for (level = numLevels - 1; level >= 0; level--) {
+				int top = base + level;
+				if (levelOpers[top] != null) {
+					expr = new BinExpr(new Position(levelOpnds[top], expr), levelOpers[top], levelOpnds[top], expr);
+					levelOpers[top] = null;
+				}
 
-			case WHERE:
-			case END:
-			case COMMA:
-			case ASSIGN:
-			case OR:
-			case AND:
-			case EQU:
-			case NEQ:
-			case LTH:
-			case GTH:
-			case LEQ:
-			case GEQ:
-			case ADD:
-			case SUB:
-			case CLOSING_BRACKET:
-			case CLOSING_PARENTHESIS:
-			case THEN:
-			case ELSE:
-			case COLON:
-			case TYP:
-			case FUN:
-			case VAR:
-			case EOF:
-				expr = op1;
+				Symbol.Token token = tokens.token(laIndex);
+				boolean repeats = levelRepeats[level] || levelPrimes[top] == 0;
+				if (repeats && binLevels[token.ordinal()] == level) {
+					begLog(levelPrimeNonts[level]);
+					levelPrimes[top]++;
+					skip(token);
+					levelOpnds[top] = expr;
+					levelOpers[top] = binOpers[token.ordinal()];
+					break;
+				}
+
+				if (repeats) {
+					if (!follows(level, token)) {
+						if (levelPrimeExpects[level] == null) {
+							signalError(levelPrimeNonts[level]);
+						} else {
+							signalError(levelPrimeNonts[level], levelPrimeExpects[level]);
+						}
+					}
+					begLog(levelPrimeNonts[level]);
+					endLog();
+				}
+				for (int prime = 0; prime < levelPrimes[top]; prime++) {
+					endLog();
+				}
+				endLog();
+			}
+			if (level < 0) {
 				break;
+			}
+			level++;
+		}
 
-			default:
-				expr = null;
-				signalError("MultiplicativeExpressionPrime");
+		for (int l = base; l < levelTop; l++) {
+			levelOpnds[l] = null;
 		}
-		endLog();
+		levelTop = base;
 		return expr;
 	}
 
@@ -635,35 +481,35 @@ public class SynAn extends Phase {
 		begLog("PrefixExpression");
 		Expr expr;
 		Expr op1;
-		Symbol prefSymbol;
+		int prefSymbol;
 
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case ADD:
 				prefSymbol = skip(Symbol.Token.ADD);
 				op1 = parsePrefixExpression();
-				expr = new UnExpr(new Position(prefSymbol, op1), UnExpr.Oper.ADD, op1);
+				expr = new UnExpr(new Position(tokens.position(prefSymbol), op1), UnExpr.Oper.ADD, op1);
 				break;
 			case SUB:
 				prefSymbol = skip(Symbol.Token.SUB);
 				op1 = parsePrefixExpression();
-				expr = new UnExpr(new Position(prefSymbol, op1), UnExpr.Oper.SUB, op1);
+				expr = new UnExpr(new Position(tokens.position(prefSymbol), op1), UnExpr.Oper.SUB, op1);
 				break;
 			case NOT:
 				prefSymbol = skip(Symbol.Token.NOT);
 				op1 = parsePrefixExpression();
-				expr = new UnExpr(new Position(prefSymbol, op1), UnExpr.Oper.NOT, op1);
+				expr = new UnExpr(new Position(tokens.position(prefSymbol), op1), UnExpr.Oper.NOT, op1);
 				break;
 			case MEM:
 				prefSymbol = skip(Symbol.Token.MEM);
 				op1 = parsePrefixExpression();
-				expr = new UnExpr(new Position(prefSymbol, op1), UnExpr.Oper.MEM, op1);
+				expr = new UnExpr(new Position(tokens.position(prefSymbol), op1), UnExpr.Oper.MEM, op1);
 				break;
 			case OPENING_BRACKET:
 				prefSymbol = skip(Symbol.Token.OPENING_BRACKET);
 				Type type = parseType();
 				skip(Symbol.Token.CLOSING_BRACKET);
 				op1 = parsePrefixExpression();
-				expr = new CastExpr(new Position(prefSymbol, op1), type, op1);
+				expr = new CastExpr(new Position(tokens.position(prefSymbol), op1), type, op1);
 				break;
 			default:
 				expr = parsePostfixExpression();
@@ -690,27 +536,27 @@ public class SynAn extends Phase {
 		begLog("PostfixExpressionPrime");
 		Expr expr;
 		Expr op2;
-		Symbol postfixEnd;
+		int postfixEnd;
 		Expr postfixExpr;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case OPENING_BRACKET: //prefix [expr]
 				skip(Symbol.Token.OPENING_BRACKET);
 				op2 = parseExpression();
 				postfixEnd = skip(Symbol.Token.CLOSING_BRACKET);
-				postfixExpr = new BinExpr(new Position(op1, postfixEnd), BinExpr.Oper.ARR, op1, op2);
+				postfixExpr = new BinExpr(new Position(op1, tokens.position(postfixEnd)), BinExpr.Oper.ARR, op1, op2);
 				expr = parsePostfixExpressionPrime(postfixExpr);
 				break;
 
 			case DOT:
 				skip(Symbol.Token.DOT);
-				Symbol id = skip(Symbol.Token.IDENTIFIER);
-				op2 = new CompName(laSymbol, id.lexeme);
+				int id = skip(Symbol.Token.IDENTIFIER);
+				op2 = new CompName(tokens.position(laIndex), tokens.nameId(id));
 				postfixExpr = new BinExpr(new Position(op1, op2), BinExpr.Oper.REC, op1, op2);
 				expr = parsePostfixExpressionPrime(postfixExpr);
 				break;
 			case VAL:
-				Symbol valSym = skip(Symbol.Token.VAL);
-				UnExpr valExpr = new UnExpr(new Position(op1, valSym), UnExpr.Oper.VAL, op1);
+				int valSym = skip(Symbol.Token.VAL);
+				UnExpr valExpr = new UnExpr(new Position(op1, tokens.position(valSym)), UnExpr.Oper.VAL, op1);
 				expr = parsePostfixExpressionPrime(valExpr);
 				break;
 
@@ -765,93 +611,93 @@ public class SynAn extends Phase {
 	private Expr parseAtomicExpression() {
 		begLog("AtomicExpression");
 		Expr expr;
-		Symbol atom;
-		switch (laSymbol.token) {
+		int atom;
+		switch (tokens.token(laIndex)) {
 			case CONST_INTEGER:
 				atom = skip(Symbol.Token.CONST_INTEGER);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.INTEGER, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.INTEGER, tokens.lexeme(atom));
 				break;
 			case CONST_BOOLEAN:
 				atom = skip(Symbol.Token.CONST_BOOLEAN);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.BOOLEAN, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.BOOLEAN, tokens.lexeme(atom));
 				break;
 			case CONST_CHAR:
 				atom = skip(Symbol.Token.CONST_CHAR);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.CHAR, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.CHAR, tokens.lexeme(atom));
 				break;
 			case CONST_STRING:
 				atom = skip(Symbol.Token.CONST_STRING);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.STRING, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.STRING, tokens.lexeme(atom));
 				break;
 			case CONST_NULL:
 				atom = skip(Symbol.Token.CONST_NULL);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.PTR, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.PTR, null);
 				break;
 			case CONST_NONE:
 				atom = skip(Symbol.Token.CONST_NONE);
-				expr = new AtomExpr(new Position(atom), AtomExpr.AtomTypes.VOID, atom.lexeme);
+				expr = new AtomExpr(tokens.position(atom), AtomExpr.AtomTypes.VOID, null);
 				break;
 			case IDENTIFIER:
 				atom = skip(Symbol.Token.IDENTIFIER);
 				LinkedList<Expr> args = parseArgumentsOpt();
 				if (args == null) {
-					expr = new VarName(new Position(atom), atom.lexeme);
+					expr = new VarName(tokens.position(atom), tokens.nameId(atom));
 				} else {
 					Position p;
 					if(args.size() == 0){
-						p = new Position(atom);
+						p = tokens.position(atom);
 					}else{
-						p = new Position(atom, args.getLast());
+						p = new Position(tokens.position(atom), args.getLast());
 					}
 
-					expr = new FunCall(p, atom.lexeme, args);
+					expr = new FunCall(p, tokens.nameId(atom), args);
 				}
 
 				break;
 			case OPENING_PARENTHESIS:
-				Symbol lparen = skip(Symbol.Token.OPENING_PARENTHESIS);
+				int lparen = skip(Symbol.Token.OPENING_PARENTHESIS);
 				LinkedList<Expr> exprs = parseExpressions();
-				Symbol rparen = skip(Symbol.Token.CLOSING_PARENTHESIS);
+				int rparen = skip(Symbol.Token.CLOSING_PARENTHESIS);
 				if (exprs.size() == 1) {
 					expr = exprs.get(0);
 				} else {
-					expr = new Exprs(new Position(lparen, rparen), exprs);
+					expr = new Exprs(tokens.position(lparen, rparen), exprs);
 				}
 				break;
 			//AtomicExpression -> if Expression then Expression else Expression end .
 			case IF:
-				Symbol ifSym = skip(Symbol.Token.IF);
+				int ifSym = skip(Symbol.Token.IF);
 				Expr ifCond = parseExpression();
 				skip(Symbol.Token.THEN);
 				Expr thenExpr = parseExpression();
 				skip(Symbol.Token.ELSE);
 				Expr elseExpr = parseExpression();
-				Symbol ifEndSym = skip(Symbol.Token.END);
-				expr = new IfExpr(new Position(ifSym, ifEndSym), ifCond, thenExpr, elseExpr);
+				int ifEndSym = skip(Symbol.Token.END);
+				expr = new IfExpr(tokens.position(ifSym, ifEndSym), ifCond, thenExpr, elseExpr);
 				break;
 			//AtomicExpression -> for IDENTIFIER assign Expression comma Expression colon Expression end .
 			case FOR:
-				Symbol forSym = skip(Symbol.Token.FOR);
-				Symbol id = skip(Symbol.Token.IDENTIFIER);
-				VarName iterVar = new VarName(new Position(id), id.lexeme);
+				int forSym = skip(Symbol.Token.FOR);
+				int id = skip(Symbol.Token.IDENTIFIER);
+				VarName iterVar = new VarName(tokens.position(id), tokens.nameId(id));
 				skip(Symbol.Token.ASSIGN);
 				Expr lowBound = parseExpression();
 				skip(Symbol.Token.COMMA);
 				Expr highBound = parseExpression();
 				skip(Symbol.Token.COLON);
 				Expr forBody = parseExpression();
-				Symbol forEndSym = skip(Symbol.Token.END);
-				expr = new ForExpr(new Position(forSym, forEndSym), iterVar, lowBound, highBound, forBody);
+				int forEndSym = skip(Symbol.Token.END);
+				expr = new ForExpr(tokens.position(forSym, forEndSym), iterVar, lowBound, highBound, forBody);
 				break;
 
 			//AtomicExpression -> while Expression colon Expression end .
 			case WHILE:
-				Symbol whileSym = skip(Symbol.Token.WHILE);
+				int whileSym = skip(Symbol.Token.WHILE);
 				Expr whileCond = parseExpression();
 				skip(Symbol.Token.COLON);
 				Expr whileBody = parseExpression();
-				Symbol whileEndSym = skip(Symbol.Token.END);
-				expr = new WhileExpr(new Position(whileSym, whileEndSym), whileCond, whileBody);
+				int whileEndSym = skip(Symbol.Token.END);
+				expr = new WhileExpr(tokens.position(whileSym, whileEndSym), whileCond, whileBody);
 				break;
 
 			default:
@@ -870,7 +716,7 @@ public class SynAn extends Phase {
 		begLog("ArgumentsOpt");
 		LinkedList<Expr> exprs;
 
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case OPENING_PARENTHESIS:
 				skip(Symbol.Token.OPENING_PARENTHESIS);
 				exprs = parseArgumentsOptPrime();
@@ -923,7 +769,7 @@ public class SynAn extends Phase {
 		begLog("ArgumentsOpt");
 		LinkedList<Expr> exprs;
 
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case CLOSING_PARENTHESIS:
 				exprs = new LinkedList<>();
 				skip(Symbol.Token.CLOSING_PARENTHESIS);
@@ -952,7 +798,7 @@ public class SynAn extends Phase {
 	private LinkedList<Decl> parseDeclarationsPrime() {
 		begLog("DeclarationsPrime");
 		LinkedList<Decl> decls;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case TYP:
 			case FUN:
 			case VAR:
@@ -978,7 +824,7 @@ public class SynAn extends Phase {
 	private Decl parseDeclaration() {
 		begLog("Declaration");
 		Decl decl;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case TYP:
 				decl = parseTypeDeclaration();
 				break;
@@ -999,11 +845,11 @@ public class SynAn extends Phase {
 	//TypeDeclaration -> typ IDENTIFIER colon Type .
 	private TypeDecl parseTypeDeclaration() {
 		begLog("TypeDeclaration");
-		Symbol typSym = skip(Symbol.Token.TYP);
-		Symbol id = skip(Symbol.Token.IDENTIFIER);
+		int typSym = skip(Symbol.Token.TYP);
+		int id = skip(Symbol.Token.IDENTIFIER);
 		skip(Symbol.Token.COLON);
 		Type type = parseType();
-		TypeDecl decl = new TypeDecl(new Position(typSym, type), id.lexeme, type);
+		TypeDecl decl = new TypeDecl(new Position(tokens.position(typSym), type), tokens.nameId(id), type);
 
 		endLog();
 		return decl;
@@ -1012,8 +858,8 @@ public class SynAn extends Phase {
 	//FunctionDeclaration -> fun IDENTIFIER lparen ParametersOpt rparen colon Type FunctionBodyOpt .
 	private FunDecl parseFunctionDeclaration() {
 		begLog("FunctionDeclaration");
-		Symbol funSym = skip(Symbol.Token.FUN);
-		Symbol id = skip(Symbol.Token.IDENTIFIER);
+		int funSym = skip(Symbol.Token.FUN);
+		int id = skip(Symbol.Token.IDENTIFIER);
 		skip(Symbol.Token.OPENING_PARENTHESIS);
 		LinkedList<ParDecl> params = parseParametersOpt();
 		skip(Symbol.Token.CLOSING_PARENTHESIS);
@@ -1023,9 +869,9 @@ public class SynAn extends Phase {
 
 		FunDecl decl;
 		if (body == null) {
-			decl = new FunDecl(new Position(funSym, type), id.lexeme, params, type);
+			decl = new FunDecl(new Position(tokens.position(funSym), type), tokens.nameId(id), params, type);
 		} else {
-			decl = new FunDef(new Position(funSym, body), id.lexeme, params, type, body);
+			decl = new FunDef(new Position(tokens.position(funSym), body), tokens.nameId(id), params, type, body);
 		}
 
 		endLog();
@@ -1037,7 +883,7 @@ public class SynAn extends Phase {
 	private LinkedList<ParDecl> parseParametersOpt() {
 		begLog("ParametersOpt");
 		LinkedList<ParDecl> params;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case IDENTIFIER:
 				params = parseParameters();
 				break;
@@ -1068,7 +914,7 @@ public class SynAn extends Phase {
 	private LinkedList<ParDecl> parseParametersPrime() {
 		begLog("ParametersPrime");
 		LinkedList<ParDecl> params;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case COMMA:
 				skip(Symbol.Token.COMMA);
 				ParDecl param = parseParameter();
@@ -1090,11 +936,11 @@ public class SynAn extends Phase {
 	//Parameter -> IDENTIFIER colon Type .
 	private ParDecl parseParameter() {
 		begLog("Parameter");
-		Symbol id = skip(Symbol.Token.IDENTIFIER);
+		int id = skip(Symbol.Token.IDENTIFIER);
 		skip(Symbol.Token.COLON);
 		Type type = parseType();
 		endLog();
-		return new ParDecl(new Position(id, type), id.lexeme, type);
+		return new ParDecl(new Position(tokens.position(id), type), tokens.nameId(id), type);
 	}
 
 	//FunctionBodyOpt -> .
@@ -1102,7 +948,7 @@ public class SynAn extends Phase {
 	private Expr parseFunctionBodyOpt() {
 		begLog("FunctionBodyOpt");
 		Expr expr;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case ASSIGN:
 				skip(Symbol.Token.ASSIGN);
 				expr = parseExpression();
@@ -1125,11 +971,11 @@ public class SynAn extends Phase {
 	//VariableDeclaration -> var IDENTIFIER colon Type .
 	private VarDecl parseVariableDeclaration() {
 		begLog("VariableDeclaration");
-		Symbol varSym = skip(Symbol.Token.VAR);
-		Symbol id = skip(Symbol.Token.IDENTIFIER);
+		int varSym = skip(Symbol.Token.VAR);
+		int id = skip(Symbol.Token.IDENTIFIER);
 		skip(Symbol.Token.COLON);
 		Type type = parseType();
-		VarDecl decl = new VarDecl(new Position(varSym, type), id.lexeme, type);
+		VarDecl decl = new VarDecl(new Position(tokens.position(varSym), type), tokens.nameId(id), type);
 
 		endLog();
 		return decl;
@@ -1146,28 +992,28 @@ public class SynAn extends Phase {
 	//Type -> IDENTIFIER .
 	private Type parseType() {
 		begLog("Type");
-		Symbol typeStartSym;
+		int typeStartSym;
 		Type type;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case INTEGER:
 				typeStartSym = skip(Symbol.Token.INTEGER);
-				type = new AtomType(new Position(typeStartSym), AtomType.AtomTypes.INTEGER);
+				type = new AtomType(tokens.position(typeStartSym), AtomType.AtomTypes.INTEGER);
 				break;
 			case BOOLEAN:
 				typeStartSym = skip(Symbol.Token.BOOLEAN);
-				type = new AtomType(new Position(typeStartSym), AtomType.AtomTypes.BOOLEAN);
+				type = new AtomType(tokens.position(typeStartSym), AtomType.AtomTypes.BOOLEAN);
 				break;
 			case CHAR:
 				typeStartSym = skip(Symbol.Token.CHAR);
-				type = new AtomType(new Position(typeStartSym), AtomType.AtomTypes.CHAR);
+				type = new AtomType(tokens.position(typeStartSym), AtomType.AtomTypes.CHAR);
 				break;
 			case STRING:
 				typeStartSym = skip(Symbol.Token.STRING);
-				type = new AtomType(new Position(typeStartSym), AtomType.AtomTypes.STRING);
+				type = new AtomType(tokens.position(typeStartSym), AtomType.AtomTypes.STRING);
 				break;
 			case VOID:
 				typeStartSym = skip(Symbol.Token.VOID);
-				type = new AtomType(new Position(typeStartSym), AtomType.AtomTypes.VOID);
+				type = new AtomType(tokens.position(typeStartSym), AtomType.AtomTypes.VOID);
 				break;
 			case ARR:
 				typeStartSym = skip(Symbol.Token.ARR);
@@ -1176,23 +1022,23 @@ public class SynAn extends Phase {
 				skip(Symbol.Token.CLOSING_BRACKET);
 				Type arrType = parseType();
 
-				type = new ArrType(new Position(typeStartSym, arrType), size, arrType);
+				type = new ArrType(new Position(tokens.position(typeStartSym), arrType), size, arrType);
 				break;
 			case REC:
 				typeStartSym = skip(Symbol.Token.REC);
 				skip(Symbol.Token.OPENING_BRACE);
 				LinkedList<CompDecl> comps = parseComponents();
-				Symbol rbraceSym = skip(Symbol.Token.CLOSING_BRACE);
-				type = new RecType(new Position(typeStartSym, rbraceSym), comps);
+				int rbraceSym = skip(Symbol.Token.CLOSING_BRACE);
+				type = new RecType(tokens.position(typeStartSym, rbraceSym), comps);
 				break;
 			case PTR:
 				typeStartSym = skip(Symbol.Token.PTR);
 				Type ptrType = parseType();
-				type = new PtrType(new Position(typeStartSym, ptrType), ptrType);
+				type = new PtrType(new Position(tokens.position(typeStartSym), ptrType), ptrType);
 				break;
 			case IDENTIFIER:
-				Symbol typeName = skip(Symbol.Token.IDENTIFIER);
-				type = new TypeName(new Position(typeName), typeName.lexeme);
+				int typeName = skip(Symbol.Token.IDENTIFIER);
+				type = new TypeName(tokens.position(typeName), tokens.nameId(typeName));
 				break;
 			default:
 				type = null;
@@ -1219,7 +1065,7 @@ public class SynAn extends Phase {
 	private LinkedList<CompDecl> parseComponentsPrime() {
 		begLog("ComponentsPrime");
 		LinkedList<CompDecl> comps;
-		switch (laSymbol.token) {
+		switch (tokens.token(laIndex)) {
 			case COMMA:
 				skip(Symbol.Token.COMMA);
 				CompDecl comp = parseComponent();
@@ -1241,10 +1087,10 @@ public class SynAn extends Phase {
 	//Component -> IDENTIFIER colon Type .
 	private CompDecl parseComponent() {
 		begLog("Component");
-		Symbol id = skip(Symbol.Token.IDENTIFIER);
+		int id = skip(Symbol.Token.IDENTIFIER);
 		skip(Symbol.Token.COLON);
 		Type type = parseType();
-		CompDecl decl = new CompDecl(new Position(id, type), id.lexeme, type);
+		CompDecl decl = new CompDecl(new Position(tokens.position(id), type), tokens.nameId(id), type);
 
 		endLog();
 		return decl;